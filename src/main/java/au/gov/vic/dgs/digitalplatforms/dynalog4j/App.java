@@ -3,15 +3,36 @@ package au.gov.vic.dgs.digitalplatforms.dynalog4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.AsyncBackend;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.Backend;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.BackendFactory;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.BackendSubscription;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.LevelsDelta;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.LevelOverrides;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.LevelsHistory;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.VersionedBackend;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.VersionedLevels;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.config.AppConfiguration;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.config.ConfigurationReconciler;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx.JMXManager;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx.LoggerContext;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx.TargetProcessWatcher;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
 
+import java.time.Duration;
+import java.time.Instant;
+
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -20,19 +41,43 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class App {
     private static final Logger logger = LoggerFactory.getLogger(App.class);
     
+    private static final long FAST_REDISCOVERY_INTERVAL_MS = 500;
+    private static final long FAST_REDISCOVERY_WINDOW_MS = 120_000;
+    private static final Duration BOOT_RACE_POLL = Duration.ofMillis(250);
+    
     private final AppConfiguration config;
     private final Backend backend;
     private final JMXManager jmxManager;
     private final ConfigurationReconciler reconciler;
     private final AtomicBoolean running = new AtomicBoolean(false);
+    // Released to cut the current wait short and run the next cycle immediately
+    private final Semaphore wakeSignal = new Semaphore(0);
+    // Changes pushed by the backend, null for mocked backends in tests
+    private final BackendSubscription changeSubscription;
+    // Upcoming override expiries, earliest first; the loop wakes at each one so the override is reverted on time
+    private final PriorityQueue<Instant> expiryWakeups = new PriorityQueue<>();
     
     private LoggerContext targetContext;
+    private volatile long fastRediscoveryUntil;
+    // Set when a new target is connected, used to report the time to first apply
+    private volatile Instant targetSeenAt;
+    // Desired levels last confirmed to be in effect in the target, null when unknown
+    private volatile Map<String, String> lastAppliedLevels;
+    // Version of lastAppliedLevels, and of the desired levels being applied
+    private volatile long lastAppliedVersion = VersionedLevels.NO_VERSION;
+    private volatile long desiredVersion = VersionedLevels.NO_VERSION;
+    // Versions the levels of backends that do not version them, by diffing each fetch with the previous one
+    private final LevelsHistory fetchedLevels = new LevelsHistory();
+    // Levels of an immutable backend, fetched once
+    private volatile Map<String, String> immutableLevels;
 
     public App(AppConfiguration config) {
         this.config = config;
         this.backend = BackendFactory.createBackend(config);
         this.jmxManager = new JMXManager(config);
         this.reconciler = new ConfigurationReconciler();
+        this.jmxManager.setTargetLostListener(this::onTargetLost);
+        this.changeSubscription = this.backend.subscribe(this::requestReconcile);
     }
 
     public App(AppConfiguration config, Backend backend, JMXManager jmxManager, ConfigurationReconciler reconciler) {
@@ -40,6 +85,8 @@ public class App {
         this.backend = backend;
         this.jmxManager = jmxManager;
         this.reconciler = reconciler;
+        this.jmxManager.setTargetLostListener(this::onTargetLost);
+        this.changeSubscription = this.backend.subscribe(this::requestReconcile);
     }
 
     public static void main(String[] args) {
@@ -50,9 +97,17 @@ public class App {
         configureLogLevel(config.getLogLevel());
 
         logger.info("Starting dynalog4j with configuration: {}", config);
+        Metrics.getInstance().registerMBean();
+        JMXManager.configureRmiTimeouts(config.getJmxTimeout());
         
         App app = new App(config);
         
+        if (config.isStatus()) {
+            int exitCode = app.printStatus();
+            app.cleanupAll();
+            System.exit(exitCode);
+        }
+        
         // Add shutdown hook for graceful termination
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             logger.info("Received shutdown signal, stopping application...");
@@ -84,22 +139,38 @@ public class App {
         logger.info("Starting reconciliation loop with interval: {}", config.getReconcileInterval());
 
         // Initial connection and setup
-        connectAndDiscover();
+        if (config.isBootRace()) {
+            bootRaceFirstApply();
+        } else {
+            connectAndDiscover();
+        }
 
         // Main reconciliation loop
         while (running.get()) {
             try {
-                performReconciliation();
-                Thread.sleep(config.getReconcileInterval().toMillis());
+                // Started first so an async backend fetches while the target is (re)discovered
+                CompletableFuture<Map<String, String>> pendingLevels = startFetch();
+                if (!jmxManager.isConnected() || targetContext == null) {
+                    connectAndDiscover();
+                    fastRediscoveryUntil = 0;
+                }
+                performReconciliation(pendingLevels);
+                waitForNextCycle(config.getReconcileInterval().toMillis());
             } catch (InterruptedException e) {
                 logger.debug("Reconciliation loop interrupted");
                 Thread.currentThread().interrupt();
                 break;
             } catch (Exception e) {
-                logger.error("Error during reconciliation: {}", e.getMessage(), e);
+                boolean fastRediscovery = isFastRediscovery();
+                if (fastRediscovery) {
+                    // Expected while the replacement target is starting up
+                    logger.debug("Target not available yet: {}", e.getMessage());
+                } else {
+                    logger.error("Error during reconciliation: {}", e.getMessage(), e);
+                }
                 
                 // Try to reconnect on connection errors
-                if (!jmxManager.isConnected()) {
+                if (!fastRediscovery && !jmxManager.isConnected()) {
                     logger.info("Attempting to reconnect to JMX endpoint...");
                     try {
                         connectAndDiscover();
@@ -110,7 +181,10 @@ public class App {
                 
                 // Continue the loop even if reconciliation fails
                 try {
-                    Thread.sleep(Math.min(config.getReconcileInterval().toMillis(), 30000)); // Wait at most 30s on error
+                    long delayMs = fastRediscovery 
+                        ? FAST_REDISCOVERY_INTERVAL_MS 
+                        : Math.min(config.getReconcileInterval().toMillis(), 30000); // Wait at most 30s on error
+                    waitForNextCycle(delayMs);
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
                     break;
@@ -175,12 +249,62 @@ public class App {
      */
     public void stop() {
         running.set(false);
+        wakeSignal.release();
+    }
+
+    /**
+     * Wake the reconciliation loop so the next cycle runs immediately.
+     * Multiple requests made while a cycle is running are coalesced into a single extra cycle.
+     */
+    public void requestReconcile() {
+        wakeSignal.release();
+    }
+
+    /**
+     * Called by the JMX manager when the target JVM exits or its connection fails.
+     * Switches the loop to fast rediscovery so the replacement process is picked up quickly.
+     */
+    private void onTargetLost() {
+        targetSeenAt = null;
+        lastAppliedLevels = null;
+        fastRediscoveryUntil = System.currentTimeMillis() + FAST_REDISCOVERY_WINDOW_MS;
+        requestReconcile();
+    }
+
+    private boolean isFastRediscovery() {
+        return System.currentTimeMillis() < fastRediscoveryUntil;
+    }
+
+    /**
+     * Wait up to the given delay for the next cycle, returning early if a reconcile was requested or when the
+     * earliest upcoming override expiry passes.
+     */
+    private void waitForNextCycle(long delayMs) throws InterruptedException {
+        Instant now = Instant.now();
+        while (!expiryWakeups.isEmpty() && !expiryWakeups.peek().isAfter(now)) {
+            expiryWakeups.poll();
+        }
+        if (!expiryWakeups.isEmpty()) {
+            long untilExpiryMs = Duration.between(now, expiryWakeups.peek()).toMillis() + 1;
+            if (untilExpiryMs < delayMs) {
+                logger.debug("Waking at {} when an override expires", expiryWakeups.peek());
+                delayMs = untilExpiryMs;
+            }
+        }
+        if (wakeSignal.tryAcquire(delayMs, TimeUnit.MILLISECONDS)) {
+            wakeSignal.drainPermits();
+        }
     }
 
     private void connectAndDiscover() throws Exception {
-        // Connect to JMX
-        logger.debug("Connecting to JMX endpoint...");
-        jmxManager.connect();
+        targetContext = null;
+        lastAppliedLevels = null;
+        
+        // Connect to JMX (a live connection is kept when only discovery previously failed)
+        if (!jmxManager.isConnected()) {
+            logger.debug("Connecting to JMX endpoint...");
+            jmxManager.connect();
+        }
         
         // Discover and select LoggerContext
         logger.debug("Discovering LoggerContexts...");
@@ -191,16 +315,161 @@ public class App {
         
         targetContext = jmxManager.selectLoggerContext(contexts);
         logger.info("Connected to LoggerContext: {}", targetContext.getName());
+        if (targetSeenAt == null) {
+            targetSeenAt = jmxManager.getTargetStartTime().orElse(Instant.now());
+        }
     }
 
-    private void performReconciliation() throws Exception {
+    /**
+     * Boot-race startup: preload the desired levels, wait for the target JVM to appear and apply the
+     * overrides the moment its LoggerContext MBean is registered, instead of waiting for the next cycle.
+     */
+    private void bootRaceFirstApply() {
+        // Preload so the first apply does not wait on the backend; an async backend keeps fetching while waiting
+        CompletableFuture<Map<String, String>> pendingLevels = startFetch();
+        Map<String, String> preloadedLevels = null;
+        if (pendingLevels == null) {
+            try {
+                preloadedLevels = backend.fetchDesiredLevels();
+                logger.info("Boot race: preloaded {} log level overrides, waiting for target JVM", preloadedLevels.size());
+            } catch (Exception e) {
+                logger.warn("Boot race: unable to preload desired levels: {}", e.getMessage());
+            }
+        }
+
+        try {
+            try (TargetProcessWatcher watcher = new TargetProcessWatcher()) {
+                while (running.get() && !jmxManager.isConnected()) {
+                    try {
+                        jmxManager.connect();
+                    } catch (Exception e) {
+                        logger.debug("Boot race: target not attachable yet: {}", e.getMessage());
+                        watcher.awaitChange(BOOT_RACE_POLL);
+                    }
+                }
+            }
+            targetSeenAt = jmxManager.getTargetStartTime().orElse(Instant.now());
+
+            List<LoggerContext> contexts = List.of();
+            while (running.get() && contexts.isEmpty()) {
+                contexts = jmxManager.awaitLoggerContexts(config.getReconcileInterval());
+            }
+            if (!running.get()) {
+                return;
+            }
+            targetContext = jmxManager.selectLoggerContext(contexts);
+            logger.info("Connected to LoggerContext: {}", targetContext.getName());
+        } catch (InterruptedException e) {
+            logger.debug("Boot race interrupted");
+            Thread.currentThread().interrupt();
+            stop();
+            return;
+        } catch (Exception e) {
+            logger.warn("Boot race: unable to discover target, continuing with the reconciliation loop: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            if (preloadedLevels != null) {
+                applyDesiredLevels(preloadedLevels);
+            } else {
+                performReconciliation(pendingLevels);
+            }
+        } catch (Exception e) {
+            logger.warn("Boot race: first apply failed, will retry in the reconciliation loop: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Queue a wake-up at each upcoming expiry of the fetched overrides that is not queued yet.
+     */
+    private void scheduleExpiryWakeups(Map<String, Instant> expiries) {
+        if (expiries == null) {
+            return;
+        }
+        Instant now = Instant.now();
+        for (Instant expiry : expiries.values()) {
+            if (expiry.isAfter(now) && !expiryWakeups.contains(expiry)) {
+                expiryWakeups.add(expiry);
+            }
+        }
+    }
+
+    /**
+     * Start fetching the desired levels if the backend can do so without blocking.
+     * 
+     * @return the pending fetch, or null if the backend only fetches synchronously
+     */
+    private CompletableFuture<Map<String, String>> startFetch() {
+        if (immutableLevels == null && backend instanceof AsyncBackend asyncBackend) {
+            logger.debug("Fetching desired log levels from backend...");
+            return asyncBackend.fetchDesiredLevelsAsync();
+        }
+        return null;
+    }
+
+    /**
+     * Reconcile the target with the desired levels.
+     * 
+     * @param pendingLevels fetch started by {@link #startFetch()}, or null to fetch the desired levels now
+     */
+    private void performReconciliation(CompletableFuture<Map<String, String>> pendingLevels) throws Exception {
         logger.trace("Starting reconciliation cycle...");
         
-        // Fetch desired levels from backend
-        logger.debug("Fetching desired log levels from backend...");
-        Map<String, String> desiredLevels = backend.fetchDesiredLevels();
+        Map<String, String> desiredLevels;
+        if (immutableLevels != null) {
+            // The levels cannot have changed, only whether the target still has them in effect is checked
+            desiredLevels = immutableLevels;
+            Metrics.getInstance().increment("immutable_fetches_skipped");
+        } else if (pendingLevels != null) {
+            try {
+                desiredLevels = pendingLevels.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        } else {
+            // Fetch desired levels from backend
+            logger.debug("Fetching desired log levels from backend...");
+            desiredLevels = backend.fetchDesiredLevels();
+        }
         logger.trace("Fetched {} desired log levels", desiredLevels.size());
+        if (immutableLevels == null && backend.isImmutable()) {
+            logger.info("Backend levels cannot change, they will not be fetched again");
+            immutableLevels = LevelOverrides.copyOf(desiredLevels);
+        }
         
+        applyDesiredLevels(desiredLevels);
+    }
+
+    private void applyDesiredLevels(Map<String, String> desiredLevels) throws Exception {
+        scheduleExpiryWakeups(backend.getExpiries());
+        desiredVersion = versionOf(desiredLevels);
+        boolean driftDetected = false;
+        // When nothing changed since the last apply, a single level query is enough to confirm the target is in sync
+        if (lastAppliedLevels != null && desiredVersion == lastAppliedVersion) {
+            try {
+                Set<String> drift = jmxManager.findLevelDrift(targetContext, desiredLevels);
+                if (drift.isEmpty()) {
+                    logger.debug("Effective levels match desired state, skipping configuration check");
+                    recordFirstApply();
+                    return;
+                }
+                logger.info("Detected level drift for {} logger(s): {}", drift.size(), drift);
+                Metrics.getInstance().increment("level_drift_detected");
+                driftDetected = true;
+            } catch (Exception e) {
+                logger.debug("Level drift check failed, falling back to full configuration check: {}", e.getMessage());
+            }
+        }
+
+        if (config.isAgentMode() && !config.isDryRun() && applyViaAgent(desiredLevels, driftDetected)) {
+            recordFirstApply();
+            return;
+        }
+
         // Get current configuration
         logger.debug("Retrieving current configuration from LoggerContext...");
         String currentConfig = jmxManager.getConfigurationText(targetContext);
@@ -216,6 +485,8 @@ public class App {
         // Check if configuration actually changed
         if (currentConfig.equals(updatedConfig)) {
             logger.info("Configuration unchanged, skipping update");
+            markApplied(desiredLevels);
+            recordFirstApply();
             return;
         }
 
@@ -236,9 +507,166 @@ public class App {
                 logger.info("Configuration updated with {} log level overrides", desiredLevels.size());
                 logger.debug("Applied overrides: {}", desiredLevels);
             }
+            verifyAppliedLevels(desiredLevels);
+        }
+        recordFirstApply();
+    }
+
+    /**
+     * Apply the desired levels in-process through the level agent. Only the loggers that changed since the
+     * last confirmed apply are sent; everything is sent (and stale overrides reverted) when that state is
+     * unknown or the target drifted.
+     * 
+     * @return false if the agent is unavailable or failed, so the configuration text path is used instead
+     */
+    private boolean applyViaAgent(Map<String, String> desiredLevels, boolean fullSync) {
+        try {
+            if (!jmxManager.ensureLevelAgent()) {
+                logger.debug("Level agent not available, using configuration text");
+                return false;
+            }
+            
+            Map<String, String> previousLevels = fullSync ? null : lastAppliedLevels;
+            LevelsDelta delta = previousLevels != null ? changesSince(lastAppliedVersion) : null;
+            Map<String, String> batch = new HashMap<>();
+            if (previousLevels == null) {
+                batch.putAll(desiredLevels);
+            } else if (!delta.isFull()) {
+                // The backend knows what changed, the levels do not need to be compared
+                batch.putAll(delta.getChanged());
+                delta.getRemoved().forEach(name -> batch.put(name, null));
+            } else {
+                desiredLevels.forEach((name, level) -> {
+                    if (!level.equals(previousLevels.get(name))) {
+                        batch.put(name, level);
+                    }
+                });
+                previousLevels.keySet().forEach(name -> {
+                    if (!desiredLevels.containsKey(name)) {
+                        batch.put(name, null);
+                    }
+                });
+            }
+            
+            int changed = jmxManager.applyLevelsViaAgent(targetContext, batch, previousLevels == null);
+            logger.info("Applied {} log level overrides via agent ({} logger(s) changed)", desiredLevels.size(), changed);
+            lastAppliedLevels = null;
+            verifyAppliedLevels(desiredLevels);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Agent apply failed, falling back to configuration text: {}", e.getMessage());
+            Metrics.getInstance().increment("agent_apply_failures");
+            return false;
         }
     }
 
+    /**
+     * The version of the fetched levels, from the backend when it versions them.
+     */
+    private long versionOf(Map<String, String> desiredLevels) {
+        if (backend instanceof VersionedBackend versionedBackend) {
+            return versionedBackend.getSnapshot().getVersion();
+        }
+        return fetchedLevels.update(desiredLevels).getVersion();
+    }
+
+    private LevelsDelta changesSince(long version) {
+        if (backend instanceof VersionedBackend versionedBackend) {
+            return versionedBackend.changesSince(version);
+        }
+        return fetchedLevels.changesSince(version);
+    }
+
+    private void markApplied(Map<String, String> desiredLevels) {
+        lastAppliedLevels = LevelOverrides.copyOf(desiredLevels);
+        lastAppliedVersion = desiredVersion;
+    }
+
+    /**
+     * Confirm the applied levels are in effect using the level snapshot, so later cycles can skip
+     * fetching the configuration text while the desired state stays the same.
+     */
+    private void verifyAppliedLevels(Map<String, String> desiredLevels) {
+        try {
+            Set<String> drift = jmxManager.findLevelDrift(targetContext, desiredLevels);
+            if (drift.isEmpty()) {
+                markApplied(desiredLevels);
+            } else {
+                logger.warn("Post-apply verification: {} logger(s) not at desired level: {}", drift.size(), drift);
+                Metrics.getInstance().increment("verification_failures");
+            }
+        } catch (Exception e) {
+            logger.debug("Post-apply verification failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Print the effective level of every logger in the target next to the desired level from the backend.
+     * 
+     * @return process exit code
+     */
+    int printStatus() {
+        try {
+            connectAndDiscover();
+            Map<String, String> effectiveLevels = new TreeMap<>(jmxManager.getEffectiveLevels(targetContext));
+            
+            Map<String, String> desiredLevels = Map.of();
+            Map<String, String> sources = Map.of();
+            try {
+                desiredLevels = backend.fetchDesiredLevels();
+                sources = backend.getSources() != null ? backend.getSources() : Map.of();
+            } catch (Exception e) {
+                logger.warn("Unable to fetch desired levels: {}", e.getMessage());
+            }
+            Set<String> drift = jmxManager.findLevelDrift(targetContext, desiredLevels);
+            
+            // The reconciler accepts any case for the root logger, the snapshot always reports "root"
+            Map<String, String> desiredByLogger = new TreeMap<>();
+            desiredLevels.forEach((name, level) -> desiredByLogger.put("root".equalsIgnoreCase(name) ? "root" : name, level));
+            Set<String> driftByLogger = new HashSet<>();
+            drift.forEach(name -> driftByLogger.add("root".equalsIgnoreCase(name) ? "root" : name));
+            Map<String, String> sourceByLogger = new HashMap<>();
+            sources.forEach((name, source) -> sourceByLogger.put("root".equalsIgnoreCase(name) ? "root" : name, source));
+            desiredByLogger.keySet().forEach(name -> effectiveLevels.putIfAbsent(name, "-"));
+            
+            System.out.printf("LoggerContext: %s%n", targetContext.getName());
+            if (sourceByLogger.isEmpty()) {
+                System.out.printf("%-60s %-8s %-8s%n", "LOGGER", "LEVEL", "DESIRED");
+            } else {
+                System.out.printf("%-60s %-8s %-8s %-12s%n", "LOGGER", "LEVEL", "DESIRED", "SOURCE");
+            }
+            for (Map.Entry<String, String> entry : effectiveLevels.entrySet()) {
+                String loggerName = entry.getKey();
+                String drifted = driftByLogger.contains(loggerName) ? " (drift)" : "";
+                if (sourceByLogger.isEmpty()) {
+                    System.out.printf("%-60s %-8s %-8s%s%n", loggerName, entry.getValue(), 
+                        desiredByLogger.getOrDefault(loggerName, ""), drifted);
+                } else {
+                    System.out.printf("%-60s %-8s %-8s %-12s%s%n", loggerName, entry.getValue(), 
+                        desiredByLogger.getOrDefault(loggerName, ""), sourceByLogger.getOrDefault(loggerName, ""), drifted);
+                }
+            }
+            return 0;
+        } catch (Exception e) {
+            logger.error("Unable to read status from target: {}", e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Report the time from the target appearing (its process start time when known) to the first
+     * successful reconciliation against it.
+     */
+    private void recordFirstApply() {
+        if (targetSeenAt == null) {
+            return;
+        }
+        long latencyMs = Duration.between(targetSeenAt, Instant.now()).toMillis();
+        Metrics.getInstance().set("first_apply_latency_ms", latencyMs);
+        logger.info("First apply to target completed {}ms after it appeared", latencyMs);
+        targetSeenAt = null;
+    }
+
     private void cleanup() {
         cleanupJmx();
     }
@@ -250,7 +678,12 @@ public class App {
     }
     
     void cleanupAll() {
-        cleanupJmx();
+        if (jmxManager != null) {
+            jmxManager.close();
+        }
+        if (changeSubscription != null) {
+            changeSubscription.close();
+        }
         if (backend != null) {
             backend.close();
         }
@@ -0,0 +1,57 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.agent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Builds the minimal jar loaded into the target JVM, containing only the level agent classes so that
+ * nothing else from DynaLog4J (or its dependencies) ends up on the target's class path.
+ */
+public final class AgentJar {
+    private static final Class<?>[] AGENT_CLASSES = {LevelAgent.class, LevelAgentMBean.class};
+
+    private AgentJar() {
+    }
+
+    /**
+     * Write the agent jar to a new file in the given directory. The directory must be readable by the
+     * target JVM under the same path.
+     *
+     * @return path of the created jar
+     */
+    public static Path create(Path directory) throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Agent-Class", LevelAgent.class.getName());
+        attributes.putValue("Premain-Class", LevelAgent.class.getName());
+
+        Files.createDirectories(directory);
+        Path jar = Files.createTempFile(directory, "dynalog4j-agent-", ".jar");
+        try (OutputStream out = Files.newOutputStream(jar);
+             JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+            for (Class<?> agentClass : AGENT_CLASSES) {
+                String entryName = agentClass.getName().replace('.', '/') + ".class";
+                try (InputStream classBytes = agentClass.getResourceAsStream("/" + entryName)) {
+                    if (classBytes == null) {
+                        throw new IOException("Agent class not found: " + entryName);
+                    }
+                    jarOut.putNextEntry(new JarEntry(entryName));
+                    classBytes.transferTo(jarOut);
+                    jarOut.closeEntry();
+                }
+            }
+        }
+        // The target reads the jar when the agent is loaded, the agent does not need it afterwards
+        jar.toFile().setReadable(true, false);
+        jar.toFile().deleteOnExit();
+        return jar;
+    }
+}
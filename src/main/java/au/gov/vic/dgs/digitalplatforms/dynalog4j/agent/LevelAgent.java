@@ -0,0 +1,244 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.agent;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Java agent loaded into the target JVM that applies logger level changes in-process, through the same
+ * LoggerConfig API that {@code Configurator.setLevel} uses, instead of replacing the whole configuration.
+ * Appenders and the rest of the configuration are left untouched.
+ * <p>
+ * The agent is appended to the system class path, which usually cannot see the application's Log4j2 (for
+ * example in fat jars or application servers), so Log4j2 is located through the loaded classes and used
+ * reflectively. For the same reason this class depends on the JDK only and has no nested classes: it must
+ * keep working after the agent jar it was loaded from is deleted.
+ */
+public final class LevelAgent implements LevelAgentMBean {
+    public static final String OBJECT_NAME = "au.gov.vic.dgs.digitalplatforms.dynalog4j:type=LevelAgent";
+
+    private static final String LOG_MANAGER_CLASS = "org.apache.logging.log4j.LogManager";
+    private static final String ROOT_LOGGER_NAME = "";
+
+    private final Instrumentation instrumentation;
+    // LogManager classes found in the loaded classes, scanning them is by far the most expensive part of a call
+    private List<Class<?>> logManagers;
+    // Configuration each context was last changed in; a different one means the target reconfigured and
+    // the overrides went away with the old configuration
+    private final Map<String, Object> configurations = new HashMap<>();
+    // Level of each overridden logger before its first override, null when the logger had no configuration
+    private final Map<String, Map<String, String>> originalLevels = new HashMap<>();
+
+    LevelAgent(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    public static void premain(String args, Instrumentation instrumentation) throws Exception {
+        agentmain(args, instrumentation);
+    }
+
+    public static void agentmain(String args, Instrumentation instrumentation) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(new LevelAgent(instrumentation), name);
+        }
+    }
+
+    @Override
+    public synchronized int applyLevels(String contextName, String[] loggerNames, String[] levels, boolean replace) {
+        if (loggerNames.length != levels.length) {
+            throw new IllegalArgumentException("Expected one level per logger name");
+        }
+        try {
+            List<Object> contexts = findLoggerContexts(contextName);
+            if (contexts.isEmpty()) {
+                // Log4j2 may have been loaded (again) since the last scan
+                logManagers = null;
+                contexts = findLoggerContexts(contextName);
+            }
+            if (contexts.isEmpty()) {
+                throw new IllegalStateException("LoggerContext not found: " + contextName);
+            }
+            int changed = 0;
+            for (Object context : contexts) {
+                changed += applyLevels(context, loggerNames, levels, replace);
+            }
+            return changed;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to apply levels: " + e, e);
+        }
+    }
+
+    private int applyLevels(Object context, String[] loggerNames, String[] levels, boolean replace)
+            throws ReflectiveOperationException {
+        ClassLoader loader = context.getClass().getClassLoader();
+        Class<?> configurationClass = Class.forName("org.apache.logging.log4j.core.config.Configuration", false, loader);
+        Class<?> loggerConfigClass = Class.forName("org.apache.logging.log4j.core.config.LoggerConfig", false, loader);
+        Class<?> levelClass = Class.forName("org.apache.logging.log4j.Level", false, loader);
+        Class<?> contextClass = Class.forName("org.apache.logging.log4j.core.LoggerContext", false, loader);
+
+        String contextKey = (String) contextClass.getMethod("getName").invoke(context);
+        Object configuration = contextClass.getMethod("getConfiguration").invoke(context);
+        if (configurations.get(contextKey) != configuration) {
+            configurations.put(contextKey, configuration);
+            originalLevels.remove(contextKey);
+        }
+        Map<String, String> originals = originalLevels.computeIfAbsent(contextKey, key -> new HashMap<>());
+
+        Method toLevel = levelClass.getMethod("getLevel", String.class);
+        Map<String, String> batch = new HashMap<>();
+        for (int i = 0; i < loggerNames.length; i++) {
+            // Reject the whole batch before changing anything
+            if (levels[i] != null && toLevel.invoke(null, levels[i].toUpperCase(Locale.ROOT)) == null) {
+                throw new IllegalArgumentException("Unknown level '" + levels[i] + "' for logger '" + loggerNames[i] + "'");
+            }
+            batch.put("root".equalsIgnoreCase(loggerNames[i]) ? ROOT_LOGGER_NAME : loggerNames[i], levels[i]);
+        }
+        if (replace) {
+            for (String overridden : originals.keySet()) {
+                batch.putIfAbsent(overridden, null);
+            }
+        }
+
+        Method getLoggerConfig = configurationClass.getMethod("getLoggerConfig", String.class);
+        Method getName = loggerConfigClass.getMethod("getName");
+        Method getLevel = loggerConfigClass.getMethod("getLevel");
+        Method setLevel = loggerConfigClass.getMethod("setLevel", levelClass);
+
+        int changed = 0;
+        boolean structureChanged = false;
+        for (Map.Entry<String, String> entry : batch.entrySet()) {
+            String loggerName = entry.getKey();
+            Object loggerConfig = getLoggerConfig.invoke(configuration, loggerName);
+            boolean configured = loggerName.equals(getName.invoke(loggerConfig));
+            String target;
+            if (entry.getValue() != null) {
+                if (!originals.containsKey(loggerName)) {
+                    originals.put(loggerName, configured ? getLevel.invoke(loggerConfig).toString() : null);
+                }
+                target = entry.getValue();
+            } else if (originals.containsKey(loggerName)) {
+                target = originals.remove(loggerName);
+                if (target == null) {
+                    if (configured) {
+                        configurationClass.getMethod("removeLogger", String.class).invoke(configuration, loggerName);
+                        structureChanged = true;
+                        changed++;
+                    }
+                    continue;
+                }
+            } else {
+                continue;
+            }
+
+            Object level = toLevel.invoke(null, target.toUpperCase(Locale.ROOT));
+            if (!configured) {
+                Object created = loggerConfigClass.getConstructor(String.class, levelClass, boolean.class)
+                    .newInstance(loggerName, level, true);
+                configurationClass.getMethod("addLogger", String.class, loggerConfigClass)
+                    .invoke(configuration, loggerName, created);
+                structureChanged = true;
+                changed++;
+            } else if (!level.equals(getLevel.invoke(loggerConfig))) {
+                setLevel.invoke(loggerConfig, level);
+                changed++;
+            }
+        }
+
+        if (structureChanged) {
+            updateParents(configuration, configurationClass, loggerConfigClass);
+        }
+        if (changed > 0) {
+            contextClass.getMethod("updateLoggers").invoke(context);
+        }
+        if (structureChanged) {
+            // LoggerConfig MBeans are only created on reconfiguration, register the added ones
+            Class.forName("org.apache.logging.log4j.core.jmx.Server", true, loader)
+                .getMethod("reregisterMBeansAfterReconfigure").invoke(null);
+        }
+        return changed;
+    }
+
+    /**
+     * Point every LoggerConfig at its closest configured ancestor after loggers were added or removed, as
+     * Log4j2 does when a configuration is built, so events keep reaching the ancestors' appenders.
+     */
+    private static void updateParents(Object configuration, Class<?> configurationClass, Class<?> loggerConfigClass)
+            throws ReflectiveOperationException {
+        Map<?, ?> loggerConfigs = (Map<?, ?>) configurationClass.getMethod("getLoggers").invoke(configuration);
+        Object root = configurationClass.getMethod("getRootLogger").invoke(configuration);
+        Method setParent = loggerConfigClass.getMethod("setParent", loggerConfigClass);
+        for (Map.Entry<?, ?> entry : loggerConfigs.entrySet()) {
+            String name = (String) entry.getKey();
+            if (name.isEmpty()) {
+                continue;
+            }
+            Object parent = root;
+            for (int dot = name.lastIndexOf('.'); dot > 0; dot = name.lastIndexOf('.', dot - 1)) {
+                Object candidate = loggerConfigs.get(name.substring(0, dot));
+                if (candidate != null) {
+                    parent = candidate;
+                    break;
+                }
+            }
+            setParent.invoke(entry.getValue(), parent);
+        }
+    }
+
+    /**
+     * Find the Log4j2 LoggerContexts with the given name (all of them when the name is null or empty) across
+     * every copy of Log4j2 loaded in this JVM.
+     */
+    private List<Object> findLoggerContexts(String contextName) throws ReflectiveOperationException {
+        if (logManagers == null) {
+            logManagers = new ArrayList<>();
+            for (Class<?> loaded : instrumentation.getAllLoadedClasses()) {
+                if (LOG_MANAGER_CLASS.equals(loaded.getName())) {
+                    logManagers.add(loaded);
+                }
+            }
+        }
+
+        List<Object> contexts = new ArrayList<>();
+        Set<Object> factories = new HashSet<>();
+        for (Class<?> logManager : logManagers) {
+            Object factory = logManager.getMethod("getFactory").invoke(null);
+            if (!factories.add(factory)) {
+                continue;
+            }
+            ClassLoader loader = factory.getClass().getClassLoader();
+            Class<?> factoryClass;
+            Class<?> selectorClass;
+            Class<?> contextClass;
+            try {
+                factoryClass = Class.forName("org.apache.logging.log4j.core.impl.Log4jContextFactory", false, loader);
+                selectorClass = Class.forName("org.apache.logging.log4j.core.selector.ContextSelector", false, loader);
+                contextClass = Class.forName("org.apache.logging.log4j.core.LoggerContext", false, loader);
+            } catch (ClassNotFoundException e) {
+                // Log4j2 API bound to another implementation
+                continue;
+            }
+            if (!factoryClass.isInstance(factory)) {
+                continue;
+            }
+            Object selector = factoryClass.getMethod("getSelector").invoke(factory);
+            for (Object context : (List<?>) selectorClass.getMethod("getLoggerContexts").invoke(selector)) {
+                Object name = contextClass.getMethod("getName").invoke(context);
+                if (contextName == null || contextName.isEmpty() || contextName.equals(name)) {
+                    contexts.add(context);
+                }
+            }
+        }
+        return contexts;
+    }
+}
@@ -0,0 +1,17 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.agent;
+
+/**
+ * Management interface of the in-process level agent.
+ */
+public interface LevelAgentMBean {
+    /**
+     * Apply a batch of logger level changes to the named LoggerContext without reconfiguring it.
+     *
+     * @param contextName LoggerContext name as shown in its JMX ObjectName
+     * @param loggerNames logger names, "root" for the root logger
+     * @param levels level for each logger, or null to revert the logger to its level before the first override
+     * @param replace when true, also revert every override applied earlier that is not part of this batch
+     * @return number of loggers whose configuration changed
+     */
+    int applyLevels(String contextName, String[] loggerNames, String[] levels, boolean replace);
+}
@@ -0,0 +1,93 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket limiting the read capacity units a backend consumes per second, with a rate that adapts to
+ * throttling: it is halved whenever DynamoDB throttles a read and grows back by a small step with every
+ * read that succeeds, so a fleet of sidecars backs off together when the table is overloaded.
+ * <p>
+ * The cost of a read is only known from its consumed capacity once it has returned, so reads are allowed
+ * while the bucket is not in debt and their cost is charged afterwards.
+ */
+final class AdaptiveRateLimiter {
+    // Rate the allowed rate may be halved down to, as a fraction of the maximum rate
+    private static final double MIN_RATE_FRACTION = 0.001;
+    // Rate added back after each successful read, as a fraction of the maximum rate
+    private static final double INCREASE_FRACTION = 0.05;
+    // Cost charged for a throttled read before any read has succeeded
+    private static final double DEFAULT_READ_COST = 0.5;
+
+    private final double maxRate;
+    private final double minRate;
+    private final LongSupplier nanoTime;
+
+    private double rate;
+    private double tokens;
+    private double lastReadCost = DEFAULT_READ_COST;
+    private long lastRefillNanos;
+
+    /**
+     * @param maxRate read capacity units per second allowed while DynamoDB does not throttle
+     */
+    AdaptiveRateLimiter(double maxRate) {
+        this(maxRate, System::nanoTime);
+    }
+
+    // Constructor for testing
+    AdaptiveRateLimiter(double maxRate, LongSupplier nanoTime) {
+        if (maxRate <= 0) {
+            throw new IllegalArgumentException("Maximum read rate must be positive, got " + maxRate);
+        }
+        this.maxRate = maxRate;
+        this.minRate = maxRate * MIN_RATE_FRACTION;
+        this.nanoTime = nanoTime;
+        this.rate = maxRate;
+        this.tokens = maxRate;
+        this.lastRefillNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Whether a read may be sent now.
+     */
+    synchronized boolean tryAcquire() {
+        refill();
+        return tokens >= 0;
+    }
+
+    /**
+     * Charge a successful read and let the allowed rate grow back.
+     */
+    synchronized void onRead(double consumedCapacity) {
+        refill();
+        tokens -= consumedCapacity;
+        if (consumedCapacity > 0) {
+            lastReadCost = consumedCapacity;
+        }
+        rate = Math.min(maxRate, rate + maxRate * INCREASE_FRACTION);
+    }
+
+    /**
+     * Halve the allowed rate after DynamoDB throttled a read, and wait at least the time a read takes to earn
+     * at that rate before the next one.
+     */
+    synchronized void onThrottled() {
+        refill();
+        rate = Math.max(minRate, rate / 2);
+        tokens = Math.min(tokens, 0) - lastReadCost;
+    }
+
+    /**
+     * Read capacity units per second currently allowed.
+     */
+    synchronized double getRate() {
+        return rate;
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        // A burst of at most one second's worth of reads at the current rate
+        tokens = Math.min(rate, tokens + rate * (now - lastRefillNanos) / 1_000_000_000.0);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,18 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Backend that can fetch the desired levels without blocking the calling thread, so the fetch can run
+ * while the reconciliation loop connects to the target.
+ */
+public interface AsyncBackend extends Backend {
+    /**
+     * Start fetching the desired log levels.
+     * 
+     * @return future completed with a map of logger name to level, or completed exceptionally if unable to
+     *         fetch the desired levels
+     */
+    CompletableFuture<Map<String, String>> fetchDesiredLevelsAsync();
+}
@@ -1,5 +1,6 @@
 package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
 
+import java.time.Instant;
 import java.util.Map;
 
 /**
@@ -14,9 +15,66 @@ public interface Backend {
      */
     Map<String, String> fetchDesiredLevels() throws Exception;
     
+    /**
+     * Expiry times of the overrides returned by the last fetch, for overrides that revert on their own.
+     * The caller fetches again when the earliest one passes, so the override is reverted on time.
+     * 
+     * @return Map of logger name to expiry time; empty when no override expires
+     */
+    default Map<String, Instant> getExpiries() {
+        return Map.of();
+    }
+    
+    /**
+     * Where each override returned by the last fetch came from, for backends that merge several sources.
+     * 
+     * @return Map of logger name to source name; empty when the backend has a single source
+     */
+    default Map<String, String> getSources() {
+        return Map.of();
+    }
+    
+    /**
+     * Whether the desired levels can never change for the life of the process, such as levels read from
+     * environment variables. The caller then fetches them once, and afterwards only checks the target still
+     * has them in effect.
+     * 
+     * @return true if every fetch returns the levels of the first successful one
+     */
+    default boolean isImmutable() {
+        return false;
+    }
+    
+    /**
+     * Register a callback to be invoked when the desired levels may have changed, so they can be fetched
+     * and applied right away instead of on the next poll. Backends that only support polling ignore it.
+     * <p>
+     * This is the hook push-capable backends implement; callers should use {@link #subscribe} instead,
+     * which runs the callback on its own thread and coalesces bursts of changes.
+     * 
+     * @param listener callback to invoke on change
+     */
+    default void setChangeListener(Runnable listener) {
+        // Polling backends never signal changes
+    }
+    
+    /**
+     * Subscribe to changes of the desired levels. Changes are delivered to the listener on a dedicated
+     * thread, and changes signalled while a delivery is queued are coalesced into it, so a flood of changes
+     * produces a single callback. Backends that only support polling never deliver any.
+     * 
+     * @param listener callback to invoke when the desired levels may have changed
+     * @return the subscription, to be closed before the backend is
+     */
+    default BackendSubscription subscribe(Runnable listener) {
+        BackendSubscription subscription = new BackendSubscription(listener, () -> setChangeListener(() -> { }));
+        setChangeListener(subscription::signal);
+        return subscription;
+    }
+    
     /**
      * Close/cleanup any resources used by this backend.
-     * Should be called when the backend is no longer needed.
+     * Should be called when the backend is no longer needed, after closing its subscriptions.
      */
     default void close() {
         // Default implementation does nothing for backwards compatibility
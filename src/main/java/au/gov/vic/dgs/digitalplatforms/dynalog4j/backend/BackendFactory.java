@@ -5,6 +5,13 @@ import org.slf4j.LoggerFactory;
 
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.config.AppConfiguration;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Factory for creating backend instances based on configuration.
  */
@@ -12,8 +19,24 @@ public class BackendFactory {
     private static final Logger logger = LoggerFactory.getLogger(BackendFactory.class);
     
     public static Backend createBackend(AppConfiguration config) {
-        String backendType = config.getBackend();
-        
+        if (!config.getCustomLevels().isEmpty()) {
+            int registered = LogLevel.registerCustomLevels(config.getCustomLevels());
+            logger.debug("Registered {} custom log level(s): {}", registered, config.getCustomLevels());
+        }
+        Backend backend = createSourceBackend(config.getBackend(), config);
+        if (config.getCacheTtl() != null) {
+            logger.debug("Caching overrides for {} with a stale-while-revalidate window of {}",
+                       config.getCacheTtl(), config.getCacheStaleWhileRevalidate());
+            backend = new CachingBackend(backend, config.getCacheTtl(), config.getCacheStaleWhileRevalidate());
+        }
+        if (config.getSnapshotPath() != null) {
+            logger.debug("Keeping a snapshot of the overrides in: {}", config.getSnapshotPath());
+            backend = SnapshotBackend.wrap(backend, Path.of(config.getSnapshotPath()));
+        }
+        return backend;
+    }
+    
+    private static Backend createSourceBackend(String backendType, AppConfiguration config) {
         return switch (backendType) {
             case "env" -> {
                 logger.debug("Using environment variables backend");
@@ -23,10 +46,57 @@ public class BackendFactory {
                 logger.debug("Using file backend with path: {}", config.getConfigPath());
                 yield new FileBackend(config.getConfigPath());
             }
+            case "directory", "dir" -> {
+                logger.debug("Using directory backend with directory: {}", config.getConfigDir());
+                yield new DirectoryBackend(config.getConfigDir());
+            }
             case "dynamodb", "dynamo" -> {
-                logger.debug("Using DynamoDB backend with table: {}, service: {}", 
+                logger.debug("Using DynamoDB backend with table: {}, service: {}, version check: {}, packed: {}, scopes: {}, hedge percentile: {}", 
+                           config.getDynamoTableName(), config.getServiceName(), config.isDynamoVersionCheck(), config.isDynamoPacked(),
+                           config.getDynamoScopes(), config.getDynamoHedgePercentile());
+                double hedgeBudgetPercent = config.getDynamoHedgeBudgetPercent() != null ? config.getDynamoHedgeBudgetPercent() : 10;
+                double maxReadRate = config.getDynamoMaxReadRate() != null
+                    ? config.getDynamoMaxReadRate()
+                    : DynamoDBBackend.DEFAULT_MAX_READ_RATE;
+                yield new DynamoDBBackend(DynamoDBBackend.Settings.of(config.getDynamoTableName(), config.getServiceName())
+                    .withVersionCheck(config.isDynamoVersionCheck())
+                    .withPacked(config.isDynamoPacked())
+                    .withScopes(config.getDynamoScopes())
+                    .withHedging(config.getDynamoHedgePercentile(), hedgeBudgetPercent / 100, config.getDynamoHedgeRegion())
+                    .withMaxReadRate(maxReadRate));
+            }
+            case "dynamodb-async", "dynamo-async" -> {
+                logger.debug("Using async DynamoDB backend with table: {}, service: {}, version check: {}, packed: {}",
+                           config.getDynamoTableName(), config.getServiceName(), config.isDynamoVersionCheck(), config.isDynamoPacked());
+                yield new DynamoDBAsyncBackend(config.getDynamoTableName(), config.getServiceName(),
+                                               config.isDynamoVersionCheck(), config.isDynamoPacked());
+            }
+            case "dynamodb-stream", "dynamo-stream" -> {
+                logger.debug("Using DynamoDB Streams backend with table: {}, service: {}",
                            config.getDynamoTableName(), config.getServiceName());
-                yield new DynamoDBBackend(config.getDynamoTableName(), config.getServiceName());
+                yield new DynamoDBStreamBackend(config.getDynamoTableName(), config.getServiceName());
+            }
+            case "http" -> {
+                if (config.getHttpUrl() == null) {
+                    throw new IllegalArgumentException("The HTTP backend needs --http-url (HTTP_URL)");
+                }
+                logger.debug("Using HTTP backend with URL: {}, timeout: {}, long-poll wait: {}",
+                           AppConfiguration.redactUrl(config.getHttpUrl()), config.getHttpTimeout(), config.getHttpLongPollWait());
+                yield new HttpBackend(URI.create(config.getHttpUrl()), config.getHttpTimeout(), config.getHttpLongPollWait());
+            }
+            case "kubernetes", "k8s" -> {
+                logger.debug("Using Kubernetes backend watching pod: {}, namespace: {}",
+                           config.getKubernetesPodName(), config.getKubernetesNamespace());
+                try {
+                    yield KubernetesBackend.inCluster(config.getKubernetesPodName(), config.getKubernetesNamespace());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Unable to create Kubernetes backend: " + e.getMessage(), e);
+                }
+            }
+            case "composite" -> {
+                logger.debug("Using composite backend with layers: {}, timeout: {}",
+                           config.getCompositeLayers(), config.getCompositeTimeout());
+                yield new CompositeBackend(createLayers(config));
             }
             default -> {
                 logger.warn("Unknown backend type '{}', defaulting to environment variables", backendType);
@@ -34,4 +104,29 @@ public class BackendFactory {
             }
         };
     }
+    
+    /**
+     * Create the layers of the composite backend, each given as a backend type with an optional timeout in
+     * milliseconds after a colon, e.g. "dynamodb:500".
+     */
+    static List<CompositeBackend.Layer> createLayers(AppConfiguration config) {
+        List<CompositeBackend.Layer> layers = new ArrayList<>();
+        for (String entry : config.getCompositeLayers()) {
+            String[] parts = entry.split(":", 2);
+            String layerType = parts[0].trim().toLowerCase();
+            if (layerType.equals("composite")) {
+                throw new IllegalArgumentException("Composite backend layers cannot be composite");
+            }
+            Duration timeout = config.getCompositeTimeout();
+            if (parts.length == 2) {
+                try {
+                    timeout = Duration.ofMillis(Long.parseLong(parts[1].trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid timeout in composite layer '" + entry + "'", e);
+                }
+            }
+            layers.add(new CompositeBackend.Layer(layerType, createSourceBackend(layerType, config), timeout));
+        }
+        return layers;
+    }
 }
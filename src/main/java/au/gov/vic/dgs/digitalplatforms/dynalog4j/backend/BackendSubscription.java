@@ -0,0 +1,91 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Subscription to the changes of a backend, returned by {@link Backend#subscribe}.
+ * <p>
+ * Changes signalled by the backend are delivered to the listener on a dedicated thread, so the backend's
+ * own threads (a file watch, a stream consumer, a long-poll) never run the listener or block on it. At most
+ * one delivery is queued at a time: changes signalled while one is queued are coalesced into it, so a flood
+ * of changes wakes the listener once, and a change signalled while the listener runs is delivered once it
+ * returns, so none is lost.
+ */
+public final class BackendSubscription implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BackendSubscription.class);
+
+    private final Runnable listener;
+    private final Runnable onClose;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dynalog4j-backend-changes");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Set while a delivery is queued and has not started yet
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * @param listener callback to deliver changes to
+     * @param onClose run once when the subscription is closed, to detach it from the backend
+     */
+    BackendSubscription(Runnable listener, Runnable onClose) {
+        this.listener = listener;
+        this.onClose = onClose;
+    }
+
+    /**
+     * Signal that the backend's desired levels may have changed. Never blocks; safe to call from any thread.
+     */
+    public void signal() {
+        if (closed) {
+            return;
+        }
+        if (!pending.compareAndSet(false, true)) {
+            Metrics.getInstance().increment("backend_changes_coalesced");
+            return;
+        }
+        try {
+            executor.execute(this::deliver);
+        } catch (RejectedExecutionException e) {
+            // Closed concurrently
+            pending.set(false);
+        }
+    }
+
+    private void deliver() {
+        // Cleared before running the listener, so a change signalled while it runs is delivered after it
+        pending.set(false);
+        Metrics.getInstance().increment("backend_changes_delivered");
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            logger.warn("Backend change listener failed: {}", e.getMessage());
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stop delivering changes and detach from the backend. Should be called before the backend is closed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        onClose.run();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,194 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+/**
+ * Backend decorator that caches the fetched overrides with stale-while-revalidate semantics.
+ * <p>
+ * Overrides younger than the freshness TTL are returned from the cache. Within the stale-while-revalidate
+ * window after that, the cached overrides are still returned immediately while a refresh runs in the
+ * background; when it finds different overrides, the change listener is notified so they are applied
+ * without waiting for the next poll. Older overrides, or none, are fetched before returning. Concurrent
+ * fetches share a single in-flight fetch from the backend.
+ * <p>
+ * A change pushed by the backend drops the cached overrides before the change listener is notified, so
+ * the fetch it triggers reads the new overrides instead of waiting for the TTL.
+ */
+public class CachingBackend implements Backend {
+    private static final Logger logger = LoggerFactory.getLogger(CachingBackend.class);
+
+    private final Backend delegate;
+    private final long ttlNanos;
+    private final long staleWhileRevalidateNanos;
+    private final LongSupplier nanoTime;
+    // Backend fetches run here, so stale overrides can be returned while they run
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dynalog4j-backend-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Entry cached;
+    private volatile Map<String, Instant> expiries = Map.of();
+    private volatile Runnable changeListener = () -> { };
+    // Fetch from the backend currently running, guarded by this
+    private CompletableFuture<Entry> inFlight;
+    // Incremented when the backend pushes a change, so fetches started before it are not cached, guarded by this
+    private long generation;
+
+    public CachingBackend(Backend delegate, Duration ttl, Duration staleWhileRevalidate) {
+        this(delegate, ttl, staleWhileRevalidate, System::nanoTime);
+    }
+
+    // Constructor for testing
+    CachingBackend(Backend delegate, Duration ttl, Duration staleWhileRevalidate, LongSupplier nanoTime) {
+        if (ttl.isNegative() || staleWhileRevalidate.isNegative()) {
+            throw new IllegalArgumentException("Cache TTL and stale-while-revalidate window must not be negative");
+        }
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.staleWhileRevalidateNanos = staleWhileRevalidate.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public Map<String, String> fetchDesiredLevels() throws Exception {
+        Entry entry = cached;
+        if (entry != null) {
+            long age = nanoTime.getAsLong() - entry.fetchedNanos();
+            if (age < ttlNanos) {
+                Metrics.getInstance().increment("backend_cache_hits");
+                return serve(entry);
+            }
+            if (age < ttlNanos + staleWhileRevalidateNanos) {
+                Metrics.getInstance().increment("backend_cache_stale_hits");
+                refresh();
+                return serve(entry);
+            }
+        }
+
+        Metrics.getInstance().increment("backend_cache_misses");
+        try {
+            return serve(refresh().get());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                ? e.getCause().getCause()
+                : e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Start a fetch from the backend, or join the one already running.
+     */
+    private synchronized CompletableFuture<Entry> refresh() {
+        if (inFlight != null) {
+            return inFlight;
+        }
+        long fetchGeneration = generation;
+        CompletableFuture<Entry> fetch = CompletableFuture.supplyAsync(() -> load(fetchGeneration), executor);
+        inFlight = fetch;
+        fetch.whenComplete((entry, error) -> {
+            synchronized (this) {
+                if (inFlight == fetch) {
+                    inFlight = null;
+                }
+            }
+            if (error != null) {
+                Metrics.getInstance().increment("backend_cache_refresh_failures");
+                logger.debug("Backend refresh failed: {}", error.getMessage());
+            }
+        });
+        return fetch;
+    }
+
+    /**
+     * Drop the cached overrides and any fetch started before the backend pushed a change.
+     */
+    private synchronized void invalidate() {
+        generation++;
+        cached = null;
+        inFlight = null;
+    }
+
+    private Entry load(long fetchGeneration) {
+        Map<String, String> levels;
+        try {
+            levels = delegate.fetchDesiredLevels();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+        Map<String, Instant> fetchedExpiries = delegate.getExpiries() != null ? delegate.getExpiries() : Map.of();
+        Entry entry = new Entry(LevelOverrides.copyOf(levels), Map.copyOf(fetchedExpiries), nanoTime.getAsLong());
+        Entry previous;
+        synchronized (this) {
+            if (fetchGeneration != generation) {
+                // The backend pushed a change while this fetch ran; serve it once but do not cache it
+                return entry;
+            }
+            previous = cached;
+            cached = entry;
+        }
+        if (previous != null && !previous.levels().equals(entry.levels())) {
+            logger.debug("Background refresh found changed overrides");
+            changeListener.run();
+        }
+        return entry;
+    }
+
+    private Map<String, String> serve(Entry entry) {
+        Map<String, String> desiredLevels = LevelOverrides.withoutExpired(entry.levels(), entry.expiries(), Instant.now());
+        expiries = LevelOverrides.expiriesOf(desiredLevels, entry.expiries());
+        return desiredLevels;
+    }
+
+    @Override
+    public Map<String, Instant> getExpiries() {
+        return expiries;
+    }
+
+    @Override
+    public Map<String, String> getSources() {
+        return delegate.getSources();
+    }
+
+    @Override
+    public boolean isImmutable() {
+        return delegate.isImmutable();
+    }
+
+    @Override
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+        delegate.setChangeListener(() -> {
+            Metrics.getInstance().increment("backend_cache_invalidations");
+            invalidate();
+            listener.run();
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        delegate.close();
+    }
+
+    private record Entry(Map<String, String> levels, Map<String, Instant> expiries, long fetchedNanos) {
+    }
+}
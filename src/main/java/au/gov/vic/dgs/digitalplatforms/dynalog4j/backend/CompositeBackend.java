@@ -0,0 +1,270 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Backend that merges the overrides of several backends, fetched concurrently, by precedence.
+ * <p>
+ * Layers are given from lowest to highest precedence: an override from a later layer replaces the one
+ * for the same logger from an earlier layer. Each layer has its own deadline; a layer that fails or misses
+ * it does not hold up the others and contributes the overrides of its last successful fetch instead. The
+ * layer each merged override came from is kept and returned by {@link #getSources()}.
+ */
+public class CompositeBackend implements AsyncBackend {
+    private static final Logger logger = LoggerFactory.getLogger(CompositeBackend.class);
+
+    private final List<Layer> layers;
+    private final LayerState[] states;
+    // Synchronous layers block while fetching, so each runs on its own thread
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "dynalog4j-composite-fetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Map<String, Instant> expiries = Map.of();
+    private volatile Map<String, String> sources = Map.of();
+    // Last merge, returned again while the layers return the same overrides and none of them expires
+    private volatile Merge lastMerge;
+
+    /**
+     * @param layers backends to merge, from lowest to highest precedence
+     */
+    public CompositeBackend(List<Layer> layers) {
+        if (layers.isEmpty()) {
+            throw new IllegalArgumentException("Composite backend needs at least one layer");
+        }
+        this.layers = List.copyOf(layers);
+        this.states = new LayerState[layers.size()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new LayerState();
+        }
+    }
+
+    @Override
+    public Map<String, String> fetchDesiredLevels() throws Exception {
+        try {
+            return fetchDesiredLevelsAsync().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception exception) {
+                throw exception;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> fetchDesiredLevelsAsync() {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<LayerResult>[] fetches = new CompletableFuture[layers.size()];
+        for (int i = 0; i < fetches.length; i++) {
+            fetches[i] = fetchLayer(i);
+        }
+        return CompletableFuture.allOf(fetches).thenApply(ignored -> {
+            LayerResult[] results = new LayerResult[fetches.length];
+            for (int i = 0; i < fetches.length; i++) {
+                results[i] = fetches[i].join();
+            }
+            return merge(results);
+        });
+    }
+
+    /**
+     * Fetch one layer within its deadline, completing with its last good result, or null when it has none,
+     * if it fails or misses the deadline.
+     */
+    private CompletableFuture<LayerResult> fetchLayer(int index) {
+        Layer layer = layers.get(index);
+        LayerState state = states[index];
+        CompletableFuture<LayerResult> fetch;
+        synchronized (state) {
+            // A layer that cannot change keeps the result of its first successful fetch
+            if (state.lastGood != null && layer.backend().isImmutable()) {
+                return CompletableFuture.completedFuture(state.lastGood);
+            }
+            // A layer still busy with an earlier fetch is joined rather than fetched from a second time
+            if (state.inFlight == null || state.inFlight.isDone()) {
+                state.inFlight = startFetch(layer).thenApply(levels -> {
+                    Map<String, Instant> layerExpiries = layer.backend().getExpiries();
+                    LayerResult result = new LayerResult(LevelOverrides.copyOf(levels),
+                                                         layerExpiries != null ? Map.copyOf(layerExpiries) : Map.of());
+                    state.lastGood = result;
+                    return result;
+                });
+            }
+            fetch = state.inFlight;
+        }
+
+        return fetch.copy()
+            .orTimeout(layer.timeout().toNanos(), TimeUnit.NANOSECONDS)
+            .exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof TimeoutException) {
+                    Metrics.getInstance().increment("composite_layer_timeouts");
+                    logger.warn("Layer {} did not return within {}ms, using its last good overrides",
+                               layer.name(), layer.timeout().toMillis());
+                } else {
+                    Metrics.getInstance().increment("composite_layer_failures");
+                    logger.warn("Layer {} failed, using its last good overrides: {}", layer.name(), cause.getMessage());
+                }
+                return state.lastGood;
+            });
+    }
+
+    private CompletableFuture<Map<String, String>> startFetch(Layer layer) {
+        if (layer.backend() instanceof AsyncBackend asyncBackend) {
+            return asyncBackend.fetchDesiredLevelsAsync();
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return layer.backend().fetchDesiredLevels();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private Map<String, String> merge(LayerResult[] results) {
+        Instant now = Instant.now();
+        Merge previous = lastMerge;
+        if (previous != null && now.isBefore(previous.validUntil()) && previous.isOf(results)) {
+            return previous.levels();
+        }
+
+        LevelOverrides.Builder desiredLevels = LevelOverrides.builder();
+        Map<String, Instant> mergedExpiries = new HashMap<>();
+        Map<String, String> mergedSources = new HashMap<>();
+        Instant validUntil = Instant.MAX;
+        boolean anyResult = false;
+        for (int i = 0; i < results.length; i++) {
+            LayerResult result = results[i];
+            if (result == null) {
+                continue;
+            }
+            anyResult = true;
+            for (Instant expiry : result.expiries().values()) {
+                if (expiry.isAfter(now) && expiry.isBefore(validUntil)) {
+                    validUntil = expiry;
+                }
+            }
+            // Overrides that expired since a last good result was fetched let the lower layers apply again
+            Map<String, String> layerLevels = LevelOverrides.withoutExpired(result.levels(), result.expiries(), now);
+            for (Map.Entry<String, String> override : layerLevels.entrySet()) {
+                String loggerName = override.getKey();
+                desiredLevels.put(loggerName, override.getValue());
+                mergedSources.put(loggerName, layers.get(i).name());
+                Instant expiry = result.expiries().get(loggerName);
+                if (expiry != null) {
+                    mergedExpiries.put(loggerName, expiry);
+                } else {
+                    mergedExpiries.remove(loggerName);
+                }
+            }
+        }
+        if (!anyResult) {
+            throw new CompletionException(new IllegalStateException("No layer of the composite backend returned overrides"));
+        }
+
+        LevelOverrides merged = desiredLevels.build();
+        expiries = Map.copyOf(mergedExpiries);
+        sources = Map.copyOf(mergedSources);
+        lastMerge = new Merge(results, merged, validUntil);
+        logger.debug("Merged {} overrides from {} layers", merged.size(), layers.size());
+        return merged;
+    }
+
+    @Override
+    public Map<String, Instant> getExpiries() {
+        return expiries;
+    }
+
+    /**
+     * Name of the layer each override returned by the last fetch came from.
+     */
+    @Override
+    public Map<String, String> getSources() {
+        return sources;
+    }
+
+    @Override
+    public boolean isImmutable() {
+        return layers.stream().allMatch(layer -> layer.backend().isImmutable());
+    }
+
+    @Override
+    public void setChangeListener(Runnable listener) {
+        for (Layer layer : layers) {
+            layer.backend().setChangeListener(listener);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (Layer layer : layers) {
+            try {
+                layer.backend().close();
+            } catch (Exception e) {
+                logger.warn("Error closing layer {}: {}", layer.name(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A backend merged by the composite backend.
+     *
+     * @param name name reported as the source of the layer's overrides
+     * @param backend backend the overrides are fetched from
+     * @param timeout time the layer's fetch may take before its last good overrides are used
+     */
+    public record Layer(String name, Backend backend, Duration timeout) {
+    }
+
+    private record LayerResult(LevelOverrides levels, Map<String, Instant> expiries) {
+    }
+
+    /**
+     * Overrides merged from the given layer results, valid until the first of their overrides expires.
+     */
+    private record Merge(LayerResult[] results, LevelOverrides levels, Instant validUntil) {
+        /**
+         * Whether the layers returned the same overrides as the ones merged, compared by identity.
+         */
+        boolean isOf(LayerResult[] other) {
+            for (int i = 0; i < results.length; i++) {
+                LayerResult result = results[i];
+                LayerResult otherResult = other[i];
+                if (result == null || otherResult == null) {
+                    if (result != otherResult) {
+                        return false;
+                    }
+                } else if (result.levels() != otherResult.levels() || result.expiries() != otherResult.expiries()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class LayerState {
+        // Fetch of the layer currently running or last completed, guarded by this
+        private CompletableFuture<LayerResult> inFlight;
+        private volatile LayerResult lastGood;
+    }
+}
@@ -0,0 +1,30 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Default implementation of DynamoDbAsyncClientWrapper that delegates to the real AWS SDK client.
+ */
+public class DefaultDynamoDbAsyncClientWrapper implements DynamoDbAsyncClientWrapper {
+    private final DynamoDbAsyncClient client;
+    
+    public DefaultDynamoDbAsyncClientWrapper(DynamoDbAsyncClient client) {
+        this.client = client;
+    }
+    
+    @Override
+    public CompletableFuture<GetItemResponse> getItem(GetItemRequest request) {
+        return client.getItem(request);
+    }
+    
+    @Override
+    public CompletableFuture<QueryResponse> query(QueryRequest request) {
+        return client.query(request);
+    }
+}
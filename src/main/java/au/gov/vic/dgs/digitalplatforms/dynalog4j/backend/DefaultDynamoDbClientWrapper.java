@@ -1,10 +1,18 @@
 package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
 
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 
 /**
  * Default implementation of DynamoDbClientWrapper that delegates to the real AWS SDK client.
@@ -25,4 +33,24 @@ public class DefaultDynamoDbClientWrapper implements DynamoDbClientWrapper {
     public QueryResponse query(QueryRequest request) {
         return client.query(request);
     }
+    
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+        return client.batchGetItem(request);
+    }
+    
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        return client.putItem(request);
+    }
+    
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        return client.deleteItem(request);
+    }
+    
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        return client.updateItem(request);
+    }
 }
@@ -0,0 +1,42 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorResponse;
+import software.amazon.awssdk.services.dynamodb.model.ListStreamsRequest;
+import software.amazon.awssdk.services.dynamodb.model.ListStreamsResponse;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClient;
+
+/**
+ * Default implementation of DynamoDbStreamsClientWrapper that delegates to the real AWS SDK client.
+ */
+public class DefaultDynamoDbStreamsClientWrapper implements DynamoDbStreamsClientWrapper {
+    private final DynamoDbStreamsClient client;
+    
+    public DefaultDynamoDbStreamsClientWrapper(DynamoDbStreamsClient client) {
+        this.client = client;
+    }
+    
+    @Override
+    public ListStreamsResponse listStreams(ListStreamsRequest request) {
+        return client.listStreams(request);
+    }
+    
+    @Override
+    public DescribeStreamResponse describeStream(DescribeStreamRequest request) {
+        return client.describeStream(request);
+    }
+    
+    @Override
+    public GetShardIteratorResponse getShardIterator(GetShardIteratorRequest request) {
+        return client.getShardIterator(request);
+    }
+    
+    @Override
+    public GetRecordsResponse getRecords(GetRecordsRequest request) {
+        return client.getRecords(request);
+    }
+}
@@ -0,0 +1,145 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Backend that merges the log level overrides of every YAML or JSON file in a directory, each in the file
+ * backend's format, so teams can own a file each instead of editing a shared one.
+ * <p>
+ * Files are merged in order of their names, later files taking precedence, e.g. {@code 00-defaults.yaml}
+ * before {@code 50-payments.yaml}. Hidden files are ignored. The parsed overrides of each file are kept with
+ * its stat signature (modification time, size and file key), and a file is only read again when its signature
+ * changes, so an unchanged directory costs a listing and a stat per file.
+ */
+public class DirectoryBackend implements VersionedBackend {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryBackend.class);
+    private static final String FILE_PATTERN = "*.{yaml,yml,json}";
+    // A file modified this recently can change again without changing its signature on file systems with
+    // coarse timestamps, so its signature is not trusted until it is older
+    static final Duration RACY_WINDOW = Duration.ofSeconds(2);
+
+    private final Path directory;
+    private final LevelsHistory history = new LevelsHistory();
+    // Overrides of each file by file name, in merge order
+    private final Map<String, CachedFile> files = new TreeMap<>();
+
+    private record Signature(FileTime modified, long size, Object fileKey) {
+    }
+
+    private static final class CachedFile {
+        private final FileBackend backend;
+        // Signature of the file the overrides were read from, null when it has to be read again
+        private Signature signature;
+        private Map<String, String> levels = Map.of();
+
+        private CachedFile(Path path) {
+            this.backend = new FileBackend(path.toString());
+        }
+    }
+
+    public DirectoryBackend(String directory) {
+        this.directory = Path.of(directory);
+    }
+
+    @Override
+    public synchronized Map<String, String> fetchDesiredLevels() throws Exception {
+        if (!Files.isDirectory(directory)) {
+            logger.debug("Configuration directory {} does not exist, returning empty configuration", directory);
+            files.clear();
+            return history.update(Map.of()).getLevels();
+        }
+
+        Map<String, Path> listed = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PATTERN)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (!name.startsWith(".")) {
+                    listed.put(name, path);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error listing configuration directory {}: {}", directory, e.getMessage());
+            throw new Exception("Failed to list configuration directory: " + directory, e);
+        }
+
+        boolean changed = files.keySet().retainAll(listed.keySet());
+        for (Map.Entry<String, Path> entry : listed.entrySet()) {
+            changed |= refresh(entry.getKey(), entry.getValue());
+        }
+        if (!changed) {
+            logger.debug("Configuration directory {} unchanged", directory);
+            return history.getSnapshot().getLevels();
+        }
+
+        Map<String, String> desiredLevels = new HashMap<>();
+        for (CachedFile file : files.values()) {
+            desiredLevels.putAll(file.levels);
+        }
+        logger.info("Loaded {} log level overrides from {} file(s) in {}", desiredLevels.size(), files.size(), directory);
+        return history.update(desiredLevels).getLevels();
+    }
+
+    /**
+     * Read a file again when its signature changed since it was last read. A file that cannot be read keeps
+     * the overrides it was last read with, and is read again on the next fetch.
+     *
+     * @return whether the overrides of the file changed
+     */
+    private boolean refresh(String name, Path path) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // Removed since the listing
+            return files.remove(name) != null;
+        }
+        if (!attributes.isRegularFile()) {
+            return files.remove(name) != null;
+        }
+
+        Signature signature = new Signature(attributes.lastModifiedTime(), attributes.size(), attributes.fileKey());
+        CachedFile file = files.computeIfAbsent(name, key -> new CachedFile(path));
+        if (signature.equals(file.signature)) {
+            return false;
+        }
+
+        Map<String, String> previous = file.levels;
+        try {
+            file.levels = file.backend.fetchDesiredLevels();
+        } catch (Exception e) {
+            Metrics.getInstance().increment("directory_file_failures");
+            logger.warn("Keeping the last overrides of {}: {}", path, e.getMessage());
+            file.signature = null;
+            return false;
+        }
+        Metrics.getInstance().increment("directory_files_read");
+        boolean racy = Duration.between(signature.modified().toInstant(), Instant.now()).compareTo(RACY_WINDOW) < 0;
+        file.signature = racy ? null : signature;
+        return !file.levels.equals(previous);
+    }
+
+    @Override
+    public VersionedLevels getSnapshot() {
+        return history.getSnapshot();
+    }
+
+    @Override
+    public LevelsDelta changesSince(long version) {
+        return history.changesSince(version);
+    }
+}
@@ -0,0 +1,192 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.core.client.config.SdkAdvancedAsyncClientOption;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Non-blocking variant of {@link DynamoDBBackend} on the asynchronous DynamoDB client.
+ * <p>
+ * Reads the same table structure through the same {@link DynamoDBOverridesReader}, with the same pagination,
+ * projection, version check, packed layout and metrics, but returns a future instead of holding a thread
+ * while the requests are in flight. Scopes, hedging and read rate limiting are only supported by
+ * {@link DynamoDBBackend}. The client runs on a single Netty event loop thread with a small connection pool,
+ * instead of the Apache HTTP client's pool and the SDK's response thread pool, which the sidecar's one
+ * request at a time does not need.
+ */
+public class DynamoDBAsyncBackend implements AsyncBackend {
+    private static final Logger logger = LoggerFactory.getLogger(DynamoDBAsyncBackend.class);
+    // One request in flight per cycle, plus the version GetItem and a retry
+    private static final int MAX_CONNECTIONS = 4;
+    private static final int MAX_PENDING_CONNECTION_ACQUIRES = 16;
+    private static final Duration CONNECTION_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration CONNECTION_ACQUISITION_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration CONNECTION_MAX_IDLE_TIME = Duration.ofSeconds(60);
+    // Bounds every fetch, including retries, so a waiting reconciliation cycle cannot hang
+    private static final Duration API_CALL_TIMEOUT = Duration.ofSeconds(10);
+
+    private final DynamoDbAsyncClientWrapper dynamoDbClient;
+    private final DynamoDbAsyncClient awsClient; // Keep reference to close it
+    private final String tableName;
+    private final String serviceName;
+    private final boolean versionCheck;
+    private final DynamoDBOverridesReader reader;
+
+    // Expiry of the overrides returned by the last fetch
+    private volatile Map<String, Instant> expiries = Map.of();
+
+    public DynamoDBAsyncBackend(String tableName, String serviceName, boolean versionCheck, boolean packed) {
+        this.tableName = tableName;
+        this.serviceName = serviceName;
+        this.versionCheck = versionCheck;
+        this.reader = new DynamoDBOverridesReader(tableName, serviceName, packed,
+            capacity -> Metrics.getInstance().add("dynamodb_consumed_rcu_milli", Math.round(capacity * 1000)));
+        this.awsClient = DynamoDbAsyncClient.builder()
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                    .eventLoopGroupBuilder(SdkEventLoopGroup.builder().numberOfThreads(1))
+                    .maxConcurrency(MAX_CONNECTIONS)
+                    .maxPendingConnectionAcquires(MAX_PENDING_CONNECTION_ACQUIRES)
+                    .connectionTimeout(CONNECTION_TIMEOUT)
+                    .connectionAcquisitionTimeout(CONNECTION_ACQUISITION_TIMEOUT)
+                    .connectionMaxIdleTime(CONNECTION_MAX_IDLE_TIME)
+                    .tcpKeepAlive(true))
+                .overrideConfiguration(c -> c.apiCallTimeout(API_CALL_TIMEOUT))
+                // Callbacks only parse a page and send the next request, they can run on the event loop
+                .asyncConfiguration(c -> c.advancedOption(SdkAdvancedAsyncClientOption.FUTURE_COMPLETION_EXECUTOR, Runnable::run))
+                .build();
+        this.dynamoDbClient = new DefaultDynamoDbAsyncClientWrapper(awsClient);
+    }
+
+    // Constructor for testing
+    public DynamoDBAsyncBackend(String tableName, String serviceName, DynamoDbAsyncClientWrapper dynamoDbClient, boolean versionCheck) {
+        this(tableName, serviceName, dynamoDbClient, versionCheck, false);
+    }
+
+    // Constructor for testing
+    public DynamoDBAsyncBackend(String tableName, String serviceName, DynamoDbAsyncClientWrapper dynamoDbClient,
+                                boolean versionCheck, boolean packed) {
+        this.tableName = tableName;
+        this.serviceName = serviceName;
+        this.dynamoDbClient = dynamoDbClient;
+        this.versionCheck = versionCheck;
+        this.reader = new DynamoDBOverridesReader(tableName, serviceName, packed,
+            capacity -> Metrics.getInstance().add("dynamodb_consumed_rcu_milli", Math.round(capacity * 1000)));
+        this.awsClient = null; // No AWS client to close in test mode
+    }
+
+    @Override
+    public Map<String, String> fetchDesiredLevels() throws Exception {
+        try {
+            return fetchDesiredLevelsAsync().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> fetchDesiredLevelsAsync() {
+        CompletableFuture<Map<String, String>> levels;
+        try {
+            levels = versionCheck
+                ? dynamoDbClient.getItem(reader.versionRequest()).thenCompose(this::queryIfVersionChanged)
+                : readDesiredLevels(false).thenApply(this::returned);
+        } catch (Exception e) {
+            levels = CompletableFuture.failedFuture(e);
+        }
+
+        return levels.handle((result, error) -> {
+            if (error == null) {
+                return result;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            logger.error("Error querying DynamoDB table {}: {}", tableName, cause.getMessage());
+            throw new CompletionException(new Exception("Failed to query DynamoDB: " + cause.getMessage(), cause));
+        });
+    }
+
+    @Override
+    public Map<String, Instant> getExpiries() {
+        return expiries;
+    }
+
+    /**
+     * Answer from the cached overrides when the version item is unchanged, query them otherwise.
+     */
+    private CompletableFuture<Map<String, String>> queryIfVersionChanged(GetItemResponse response) {
+        String version = reader.version(response);
+        DynamoDBOverridesReader.Read cached = reader.cachedAt(version);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(returned(cached));
+        }
+        // Strongly consistent after a version change, so the overrides are not older than the version read
+        return readDesiredLevels(version != null).thenApply(read -> returned(reader.cache(version, read)));
+    }
+
+    private Map<String, String> returned(DynamoDBOverridesReader.Read read) {
+        expiries = read.expiries();
+        return read.levels();
+    }
+
+    /**
+     * Read the overrides from the packed item when the packed layout is enabled and the item exists, and
+     * from the per-logger items otherwise.
+     */
+    private CompletableFuture<DynamoDBOverridesReader.Read> readDesiredLevels(boolean consistentRead) {
+        if (!reader.isPacked()) {
+            return queryPage(reader.query(serviceName, consistentRead));
+        }
+        return dynamoDbClient.getItem(reader.packedItemRequest(consistentRead))
+            .thenCompose(response -> {
+                DynamoDBOverridesReader.Read read;
+                try {
+                    read = reader.fromPackedItem(response, consistentRead);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+                return read != null
+                    ? CompletableFuture.completedFuture(read)
+                    : queryPage(reader.query(serviceName, consistentRead));
+            });
+    }
+
+    /**
+     * Query one page, parse it and chain the query of the next page until the last one was read.
+     */
+    private CompletableFuture<DynamoDBOverridesReader.Read> queryPage(DynamoDBOverridesReader.Query query) {
+        return dynamoDbClient.query(query.request()).thenCompose(response -> query.addPage(response)
+            ? queryPage(query)
+            : CompletableFuture.completedFuture(query.finish()));
+    }
+
+    @Override
+    public void close() {
+        if (awsClient != null) {
+            try {
+                awsClient.close();
+                logger.debug("Closed DynamoDB async client");
+            } catch (Exception e) {
+                logger.warn("Error closing DynamoDB async client: {}", e.getMessage());
+            }
+        }
+    }
+}
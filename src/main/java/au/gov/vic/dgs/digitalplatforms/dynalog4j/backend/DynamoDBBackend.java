@@ -2,13 +2,27 @@ package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
-import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
-import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.RequestLimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,117 +44,446 @@ import java.util.Map;
  *   "logger": "root",
  *   "level": "WARN"
  * }
+ * 
+ * Items whose ttl has passed are skipped, as DynamoDB can take up to 48 hours to delete them, and the
+ * expiry of the remaining items is reported through {@link #getExpiries()}.
+ * 
+ * With version checking enabled, an optional item with logger "__version__" and a "version" attribute
+ * (Number or String) is read first, and the overrides are only queried again when the version changes.
+ * 
+ * With the packed layout enabled, the whole override set is read from the item with logger "__packed__"
+ * (see {@link PackedOverrides}) with a single GetItem. When that item exists it alone defines the overrides
+ * and the per-logger items are not queried; otherwise the per-logger items are queried as usual.
+ * 
+ * With scopes configured, the overrides are read from several partitions instead of the service's, for
+ * example a global, an environment, a service and an instance scope, and the scopes are merged in order so
+ * that later scopes take precedence. With the packed layout enabled, the packed items of all scopes are read
+ * together with a single BatchGetItem and only scopes without a packed item are queried for their per-logger
+ * items, so a cycle costs one request plus one Query per unpacked scope; the decoded packed overrides of
+ * each scope are cached and only decoded again when the packed item changes. Without the packed layout,
+ * every scope is queried. The version check does not apply to scopes.
+ * 
+ * With a hedge percentile configured, reads slower than that percentile of the recent reads are sent again,
+ * optionally to a replica in another region, through a {@link HedgingDynamoDbClientWrapper}. Strongly
+ * consistent reads are never hedged, and the capacity consumed by both reads of a hedged pair is charged
+ * to the rate limiter.
+ * 
+ * Reads are limited by an {@link AdaptiveRateLimiter} that backs off when DynamoDB throttles. Cycles that
+ * are throttled, by DynamoDB or by the limiter, return the last overrides read instead of failing.
+ * 
+ * The requests and the parsing of their responses are shared with {@link DynamoDBAsyncBackend} through a
+ * {@link DynamoDBOverridesReader}.
+ * 
+ * The version of the returned overrides only moves when they change. Cycles that reuse the overrides read
+ * before, because the version item is unchanged or the read was throttled, keep the version without
+ * comparing the overrides again.
  */
-public class DynamoDBBackend implements Backend {
+public class DynamoDBBackend implements VersionedBackend {
     private static final Logger logger = LoggerFactory.getLogger(DynamoDBBackend.class);
+    // Sort key of the per-service item whose "version" attribute is bumped whenever the overrides change
+    static final String VERSION_ITEM_LOGGER = "__version__";
+    // Sort key of the per-service item holding the whole override set in the packed layout
+    static final String PACKED_ITEM_LOGGER = "__packed__";
+    // Read capacity units per second allowed by default while DynamoDB does not throttle
+    static final double DEFAULT_MAX_READ_RATE = 5;
+    // BatchGetItem reads at most 100 keys per request
+    static final int MAX_SCOPES = 100;
+    // Attempts to read the packed items DynamoDB left unprocessed when throttled
+    private static final int MAX_BATCH_ATTEMPTS = 3;
     
     private final DynamoDbClientWrapper dynamoDbClient;
     private final DynamoDbClient awsClient; // Keep reference to close it
+    private final DynamoDbClient secondaryAwsClient; // Client of the hedge region, if any
     private final String tableName;
     private final String serviceName;
+    private final boolean versionCheck;
+    // Partition keys to merge in ascending precedence, empty to read the service's partition only
+    private final List<String> scopes;
+    private final AdaptiveRateLimiter rateLimiter;
+    
+    // Overrides decoded from each scope's packed item, along with the packed attribute they were decoded from
+    private final Map<String, ScopeOverrides> scopeCache = new HashMap<>();
+    private final DynamoDBOverridesReader reader;
+    // Expiry of the overrides returned by the last fetch
+    private volatile Map<String, Instant> expiries = Map.of();
+    // Capacity consumed by the current fetch, charged to the rate limiter
+    private double fetchCapacity;
+    // Overrides of the last successful fetch, returned by throttled cycles
+    private Map<String, String> lastGoodLevels;
+    private Map<String, Instant> lastGoodExpiries = Map.of();
+    // Set by readOverrides when it returned the cached overrides of an unchanged version
+    private boolean readFromCache;
+    private final LevelsHistory history = new LevelsHistory();
 
-    public DynamoDBBackend() {
-        this(
-            System.getenv().getOrDefault("DYNAMO_TABLE_NAME", "log-levels"),
-            System.getenv().getOrDefault("SERVICE_NAME", "default")
-        );
+    public DynamoDBBackend(Settings settings) {
+        this(settings, null,
+            DynamoDbClient.builder()
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .build(),
+            settings.hedgePercentile() != null && settings.hedgeRegion() != null
+                ? DynamoDbClient.builder()
+                    .credentialsProvider(DefaultCredentialsProvider.create())
+                    .region(Region.of(settings.hedgeRegion()))
+                    .build()
+                : null);
     }
 
-    public DynamoDBBackend(String tableName, String serviceName) {
-        this.tableName = tableName;
-        this.serviceName = serviceName;
-        this.awsClient = DynamoDbClient.builder()
-                .credentialsProvider(DefaultCredentialsProvider.create())
-                .build();
-        this.dynamoDbClient = new DefaultDynamoDbClientWrapper(awsClient);
+    // Constructor for testing and the packing command, reading through the given client without hedging
+    public DynamoDBBackend(Settings settings, DynamoDbClientWrapper dynamoDbClient) {
+        this(settings, dynamoDbClient, null, null);
     }
 
-    // Constructor for testing
-    public DynamoDBBackend(String tableName, String serviceName, DynamoDbClientWrapper dynamoDbClient) {
-        this.tableName = tableName;
-        this.serviceName = serviceName;
-        this.dynamoDbClient = dynamoDbClient;
-        this.awsClient = null; // No AWS client to close in test mode
+    private DynamoDBBackend(Settings settings, DynamoDbClientWrapper dynamoDbClient,
+                            DynamoDbClient awsClient, DynamoDbClient secondaryAwsClient) {
+        this.tableName = settings.tableName();
+        this.serviceName = settings.serviceName();
+        this.versionCheck = settings.versionCheck();
+        this.scopes = settings.scopes();
+        this.reader = new DynamoDBOverridesReader(tableName, serviceName, settings.packed(), this::recordConsumedCapacity);
+        this.rateLimiter = new AdaptiveRateLimiter(settings.maxReadRate());
+        this.awsClient = awsClient;
+        this.secondaryAwsClient = secondaryAwsClient;
+        if (dynamoDbClient != null) {
+            this.dynamoDbClient = dynamoDbClient;
+        } else if (settings.hedgePercentile() == null) {
+            this.dynamoDbClient = new DefaultDynamoDbClientWrapper(awsClient);
+        } else {
+            this.dynamoDbClient = new HedgingDynamoDbClientWrapper(new DefaultDynamoDbClientWrapper(awsClient),
+                secondaryAwsClient != null ? new DefaultDynamoDbClientWrapper(secondaryAwsClient) : null,
+                settings.hedgePercentile(), settings.hedgeBudget());
+        }
+        if (this.dynamoDbClient instanceof HedgingDynamoDbClientWrapper hedgingClient) {
+            hedgingClient.setLostReadCapacityListener(this::chargeLostRead);
+        }
+    }
+
+    /**
+     * Settings of a DynamoDB backend, see the class description for what each one does.
+     *
+     * @param versionCheck whether to read the version item first and only read the overrides when it changed
+     * @param packed whether to read the overrides from the packed item when it exists
+     * @param scopes partition keys to merge in ascending precedence, empty to read the service's partition only
+     * @param hedgePercentile percentile of the recent read latencies after which reads are hedged, null to not hedge
+     * @param hedgeBudget hedges allowed per read
+     * @param hedgeRegion region of the table replica hedges are sent to, null to send them to the same region
+     * @param maxReadRate read capacity units per second allowed while DynamoDB does not throttle
+     */
+    public record Settings(String tableName, String serviceName, boolean versionCheck, boolean packed,
+                           List<String> scopes, Double hedgePercentile, double hedgeBudget, String hedgeRegion,
+                           double maxReadRate) {
+        public Settings {
+            if (scopes.size() > MAX_SCOPES) {
+                throw new IllegalArgumentException("At most " + MAX_SCOPES + " scopes are supported, got " + scopes.size());
+            }
+            scopes = List.copyOf(scopes);
+        }
+
+        /**
+         * Settings reading the service's partition, without version check, packed layout, scopes or hedging.
+         */
+        public static Settings of(String tableName, String serviceName) {
+            return new Settings(tableName, serviceName, false, false, List.of(), null, 0, null, DEFAULT_MAX_READ_RATE);
+        }
+
+        public Settings withVersionCheck(boolean versionCheck) {
+            return new Settings(tableName, serviceName, versionCheck, packed, scopes, hedgePercentile, hedgeBudget,
+                                hedgeRegion, maxReadRate);
+        }
+
+        public Settings withPacked(boolean packed) {
+            return new Settings(tableName, serviceName, versionCheck, packed, scopes, hedgePercentile, hedgeBudget,
+                                hedgeRegion, maxReadRate);
+        }
+
+        public Settings withScopes(List<String> scopes) {
+            return new Settings(tableName, serviceName, versionCheck, packed, scopes, hedgePercentile, hedgeBudget,
+                                hedgeRegion, maxReadRate);
+        }
+
+        public Settings withHedging(Double hedgePercentile, double hedgeBudget, String hedgeRegion) {
+            return new Settings(tableName, serviceName, versionCheck, packed, scopes, hedgePercentile, hedgeBudget,
+                                hedgeRegion, maxReadRate);
+        }
+
+        public Settings withMaxReadRate(double maxReadRate) {
+            return new Settings(tableName, serviceName, versionCheck, packed, scopes, hedgePercentile, hedgeBudget,
+                                hedgeRegion, maxReadRate);
+        }
     }
 
     @Override
     public Map<String, String> fetchDesiredLevels() throws Exception {
+        if (lastGoodLevels != null && !rateLimiter.tryAcquire()) {
+            Metrics.getInstance().increment("dynamodb_rate_limited_cycles");
+            logger.debug("DynamoDB read rate limit of {} RCU/s reached, using the last overrides read", rateLimiter.getRate());
+            return history.update(lastGoodLevels(), true).getLevels();
+        }
+        
+        fetchCapacity = 0;
+        readFromCache = false;
         try {
-            QueryRequest request = QueryRequest.builder()
-                    .tableName(tableName)
-                    .keyConditionExpression("service = :service")
-                    .expressionAttributeValues(Map.of(
-                        ":service", AttributeValue.builder().s(serviceName).build()
-                    ))
-                    .build();
+            Map<String, String> desiredLevels = readOverrides();
+            rateLimiter.onRead(fetchCapacity);
+            VersionedLevels versioned = history.update(desiredLevels, readFromCache);
+            lastGoodLevels = versioned.getLevels();
+            lastGoodExpiries = expiries;
+            return versioned.getLevels();
+        } catch (Exception e) {
+            if (isThrottling(e)) {
+                rateLimiter.onThrottled();
+                Metrics.getInstance().increment("dynamodb_throttles");
+                if (lastGoodLevels != null) {
+                    logger.warn("DynamoDB throttled reads of table {}, using the last overrides read and lowering the read rate to {} RCU/s",
+                               tableName, rateLimiter.getRate());
+                    return history.update(lastGoodLevels(), true).getLevels();
+                }
+            }
+            logger.error("Error querying DynamoDB table {}: {}", tableName, e.getMessage());
+            throw new Exception("Failed to query DynamoDB: " + e.getMessage(), e);
+        } finally {
+            Metrics.getInstance().set("dynamodb_allowed_rcu_milli_per_second", Math.round(rateLimiter.getRate() * 1000));
+        }
+    }
 
-            QueryResponse response = dynamoDbClient.query(request);
-            
-            if (!response.hasItems() || response.items().isEmpty()) {
-                logger.debug("No configuration found in DynamoDB for service: {}", serviceName);
-                return new HashMap<>();
+    /**
+     * The overrides of the last successful fetch, without those that expired since.
+     */
+    private Map<String, String> lastGoodLevels() {
+        Map<String, String> desiredLevels = LevelOverrides.withoutExpired(lastGoodLevels, lastGoodExpiries, Instant.now());
+        expiries = LevelOverrides.expiriesOf(desiredLevels, lastGoodExpiries);
+        return desiredLevels;
+    }
+
+    /**
+     * Whether DynamoDB rejected a request because the table or account throughput was exceeded. The SDK
+     * already retried it with backoff.
+     */
+    static boolean isThrottling(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ProvisionedThroughputExceededException
+                    || cause instanceof RequestLimitExceededException
+                    || (cause instanceof DynamoDbException dynamoDbException && dynamoDbException.isThrottlingException())) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            Map<String, String> desiredLevels = new HashMap<>();
-            
-            for (Map<String, AttributeValue> item : response.items()) {
-                AttributeValue loggerAttribute = item.get("logger");
-                AttributeValue levelAttribute = item.get("level");
-                
-                if (loggerAttribute == null || loggerAttribute.s() == null || 
-                    levelAttribute == null || levelAttribute.s() == null) {
-                    logger.warn("Invalid item structure in DynamoDB - missing logger or level attribute");
+    private Map<String, String> readOverrides() throws IOException {
+        if (!scopes.isEmpty()) {
+            return fetchScopedLevels();
+        }
+        if (!versionCheck) {
+            return returned(readDesiredLevels(false));
+        }
+        
+        // A single GetItem on the version item decides whether the overrides need to be queried again
+        String version = reader.version(dynamoDbClient.getItem(reader.versionRequest()));
+        DynamoDBOverridesReader.Read cached = reader.cachedAt(version);
+        if (cached != null) {
+            readFromCache = true;
+            return returned(cached);
+        }
+        // Strongly consistent after a version change, so the overrides are not older than the version read
+        return returned(reader.cache(version, readDesiredLevels(version != null)));
+    }
+
+    private LevelOverrides returned(DynamoDBOverridesReader.Read read) {
+        expiries = read.expiries();
+        return read.levels();
+    }
+
+    @Override
+    public Map<String, Instant> getExpiries() {
+        return expiries;
+    }
+
+    @Override
+    public VersionedLevels getSnapshot() {
+        return history.getSnapshot();
+    }
+
+    @Override
+    public LevelsDelta changesSince(long version) {
+        return history.changesSince(version);
+    }
+
+    /**
+     * Read the overrides from the packed item when the packed layout is enabled and the item exists, and
+     * from the per-logger items otherwise.
+     */
+    private DynamoDBOverridesReader.Read readDesiredLevels(boolean consistentRead) throws IOException {
+        if (reader.isPacked()) {
+            DynamoDBOverridesReader.Read read = reader.fromPackedItem(
+                dynamoDbClient.getItem(reader.packedItemRequest(consistentRead)), consistentRead);
+            if (read != null) {
+                return read;
+            }
+        }
+        return queryOverrides(serviceName, consistentRead);
+    }
+
+    /**
+     * Read the overrides of every scope and merge them, later scopes taking precedence over earlier ones.
+     */
+    private Map<String, String> fetchScopedLevels() throws IOException {
+        // Without the packed layout no scope has a packed item to read, each one is queried
+        Map<String, AttributeValue> packedOverrides = reader.isPacked() ? batchGetPackedOverrides() : Map.of();
+        
+        Instant now = Instant.now();
+        LevelOverrides.Builder desiredLevels = LevelOverrides.builder();
+        Map<String, Instant> mergedExpiries = new HashMap<>();
+        for (String scope : scopes) {
+            ScopeOverrides overrides = scopeOverrides(scope, packedOverrides.get(scope));
+            for (Map.Entry<String, String> override : overrides.levels().entrySet()) {
+                Instant expiry = overrides.expiries().get(override.getKey());
+                if (expiry != null && !expiry.isAfter(now)) {
+                    // Cached override expired, the earlier scopes' override applies again
                     continue;
                 }
-                
-                String loggerName = loggerAttribute.s();
-                String level = levelAttribute.s();
-                
-                if (isValidLogLevel(level)) {
-                    desiredLevels.put(loggerName, level.toUpperCase());
-                    logger.debug("Found log level override: {} = {}", loggerName, level);
+                desiredLevels.put(override.getKey(), override.getValue());
+                if (expiry != null) {
+                    mergedExpiries.put(override.getKey(), expiry);
                 } else {
-                    logger.warn("Invalid log level '{}' for logger '{}', skipping", level, loggerName);
+                    mergedExpiries.remove(override.getKey());
                 }
             }
-            
-            if (desiredLevels.isEmpty()) {
-                logger.debug("No valid log level overrides found in DynamoDB for service {}", serviceName);
-            } else {
-                logger.info("Loaded {} log level overrides from DynamoDB for service {}", 
-                           desiredLevels.size(), serviceName);
-            }
-            return desiredLevels;
-            
-        } catch (Exception e) {
-            logger.error("Error querying DynamoDB table {}: {}", tableName, e.getMessage());
-            throw new Exception("Failed to query DynamoDB: " + e.getMessage(), e);
         }
+        expiries = Map.copyOf(mergedExpiries);
+        logger.debug("Merged {} log level overrides from {} scopes", desiredLevels.size(), scopes.size());
+        return desiredLevels.build();
     }
-    
-    private boolean isValidLogLevel(String level) {
-        if (level == null || level.trim().isEmpty()) {
-            return false;
+
+    /**
+     * The overrides of a scope: decoded from its packed attribute, or from the cache when the attribute is
+     * unchanged, and queried from its per-logger items when the scope has no packed item.
+     */
+    private ScopeOverrides scopeOverrides(String scope, AttributeValue packedAttribute) throws IOException {
+        if (packedAttribute == null) {
+            scopeCache.remove(scope);
+            DynamoDBOverridesReader.Read read = queryOverrides(scope, false);
+            return new ScopeOverrides(null, read.levels(), read.expiries());
+        }
+        
+        ScopeOverrides cached = scopeCache.get(scope);
+        if (cached != null && packedAttribute.equals(cached.source())) {
+            Metrics.getInstance().increment("dynamodb_scope_cache_hits");
+            return cached;
+        }
+        DynamoDBOverridesReader.Read read = DynamoDBOverridesReader.decode(packedAttribute);
+        ScopeOverrides decoded = new ScopeOverrides(packedAttribute, read.levels(), read.expiries());
+        scopeCache.put(scope, decoded);
+        logger.debug("Decoded {} log level overrides from the packed item of scope {}", read.levels().size(), scope);
+        return decoded;
+    }
+
+    /**
+     * Read the packed attribute of every scope's packed item with a single BatchGetItem, retrying the keys
+     * DynamoDB left unprocessed.
+     * 
+     * @return the packed attribute of each scope that has a packed item
+     */
+    private Map<String, AttributeValue> batchGetPackedOverrides() {
+        BatchGetItemRequest request = packedItemsRequest(tableName, scopes);
+        Map<String, AttributeValue> packedOverrides = new HashMap<>();
+        double consumedCapacity = 0;
+        for (int attempt = 1; ; attempt++) {
+            BatchGetItemResponse response = dynamoDbClient.batchGetItem(request);
+            if (response.hasConsumedCapacity()) {
+                for (ConsumedCapacity capacity : response.consumedCapacity()) {
+                    consumedCapacity += DynamoDBOverridesReader.capacityUnits(capacity);
+                }
+            }
+            if (response.hasResponses() && response.responses().get(tableName) != null) {
+                for (Map<String, AttributeValue> item : response.responses().get(tableName)) {
+                    AttributeValue scopeAttribute = item.get("service");
+                    AttributeValue packedAttribute = item.get(PackedOverrides.ATTRIBUTE);
+                    if (scopeAttribute != null && scopeAttribute.s() != null && packedAttribute != null) {
+                        packedOverrides.put(scopeAttribute.s(), packedAttribute);
+                    }
+                }
+            }
+            if (!response.hasUnprocessedKeys() || response.unprocessedKeys().isEmpty()) {
+                break;
+            }
+            if (attempt == MAX_BATCH_ATTEMPTS) {
+                throw new IllegalStateException("DynamoDB left packed items unprocessed after " + attempt + " attempts");
+            }
+            request = request.toBuilder().requestItems(response.unprocessedKeys()).build();
         }
         
-        String upperLevel = level.toUpperCase();
-        return upperLevel.equals("TRACE") || 
-               upperLevel.equals("DEBUG") || 
-               upperLevel.equals("INFO") || 
-               upperLevel.equals("WARN") || 
-               upperLevel.equals("ERROR") || 
-               upperLevel.equals("FATAL") ||
-               upperLevel.equals("OFF");
+        Metrics.getInstance().increment("dynamodb_batch_reads");
+        recordConsumedCapacity(consumedCapacity);
+        logger.debug("Read {} packed items of {} scopes using {} RCU", packedOverrides.size(), scopes.size(), consumedCapacity);
+        return packedOverrides;
+    }
+
+    /**
+     * Build the BatchGetItem request reading the packed item of every scope.
+     */
+    static BatchGetItemRequest packedItemsRequest(String tableName, List<String> scopes) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        for (String scope : scopes) {
+            keys.add(Map.of(
+                "service", AttributeValue.builder().s(scope).build(),
+                "logger", AttributeValue.builder().s(PACKED_ITEM_LOGGER).build()
+            ));
+        }
+        return BatchGetItemRequest.builder()
+                .requestItems(Map.of(tableName, KeysAndAttributes.builder()
+                    .keys(keys)
+                    // The partition key maps the unordered responses back to their scopes
+                    .projectionExpression("#service, #overrides")
+                    .expressionAttributeNames(Map.of(
+                        "#service", "service",
+                        "#overrides", PackedOverrides.ATTRIBUTE
+                    ))
+                    .consistentRead(false)
+                    .build()))
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * Query the per-logger items of the given partition, page by page.
+     */
+    DynamoDBOverridesReader.Read queryOverrides(String partitionKey, boolean consistentRead) {
+        DynamoDBOverridesReader.Query query = reader.query(partitionKey, consistentRead);
+        while (query.addPage(dynamoDbClient.query(query.request()))) {
+            // Each page is parsed as it arrives rather than collecting all items first
+        }
+        return query.finish();
+    }
+
+    private void recordConsumedCapacity(double capacity) {
+        fetchCapacity += capacity;
+        Metrics.getInstance().add("dynamodb_consumed_rcu_milli", Math.round(capacity * 1000));
+    }
+
+    /**
+     * Charge the read of a hedged pair that did not answer, which may return on a hedge thread after its fetch ended.
+     */
+    private void chargeLostRead(double capacity) {
+        rateLimiter.onRead(capacity);
+        Metrics.getInstance().add("dynamodb_consumed_rcu_milli", Math.round(capacity * 1000));
+    }
+
+    private record ScopeOverrides(AttributeValue source, Map<String, String> levels, Map<String, Instant> expiries) {
     }
     
     @Override
     public void close() {
-        if (awsClient != null) {
-            try {
-                awsClient.close();
-                logger.debug("Closed DynamoDB client");
-            } catch (Exception e) {
-                logger.warn("Error closing DynamoDB client: {}", e.getMessage());
+        if (dynamoDbClient instanceof HedgingDynamoDbClientWrapper hedgingClient) {
+            hedgingClient.close();
+        }
+        for (DynamoDbClient client : new DynamoDbClient[]{awsClient, secondaryAwsClient}) {
+            if (client != null) {
+                try {
+                    client.close();
+                    logger.debug("Closed DynamoDB client");
+                } catch (Exception e) {
+                    logger.warn("Error closing DynamoDB client: {}", e.getMessage());
+                }
             }
         }
     }
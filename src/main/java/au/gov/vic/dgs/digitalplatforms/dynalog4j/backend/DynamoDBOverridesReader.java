@@ -0,0 +1,356 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Reads of a service's overrides shared by {@link DynamoDBBackend} and {@link DynamoDBAsyncBackend}, which
+ * only differ in how they send the requests: the requests to send, the parsing of their responses, whether
+ * the packed item or the per-logger items define the overrides, and the overrides cached at the version last
+ * read for the version check.
+ * <p>
+ * The capacity consumed by each response is passed to the given listener. A reader is shared by the fetches
+ * of one backend, which may run on different threads, but not concurrently.
+ */
+final class DynamoDBOverridesReader {
+    private static final Logger logger = LoggerFactory.getLogger(DynamoDBOverridesReader.class);
+
+    private final String tableName;
+    private final String serviceName;
+    private final boolean packed;
+    private final DoubleConsumer capacityListener;
+
+    // Overrides from the last query and the version they were read at, used when the version is unchanged
+    private volatile String cachedVersion;
+    private volatile Read cached;
+    private volatile double lastQueryCapacity;
+    private volatile double lastVersionCapacity;
+
+    DynamoDBOverridesReader(String tableName, String serviceName, boolean packed, DoubleConsumer capacityListener) {
+        this.tableName = tableName;
+        this.serviceName = serviceName;
+        this.packed = packed;
+        this.capacityListener = capacityListener;
+    }
+
+    /**
+     * Overrides read, with the expiry of those that have one.
+     */
+    record Read(LevelOverrides levels, Map<String, Instant> expiries) {
+    }
+
+    boolean isPacked() {
+        return packed;
+    }
+
+    GetItemRequest versionRequest() {
+        return versionRequest(tableName, serviceName);
+    }
+
+    /**
+     * The version in the response to the {@link #versionRequest()}, or null if there is no version item.
+     */
+    String version(GetItemResponse response) {
+        lastVersionCapacity = capacityUnits(response.consumedCapacity());
+        capacityListener.accept(lastVersionCapacity);
+        return versionOf(response);
+    }
+
+    /**
+     * The overrides cached at the given version, without those that expired since, or null when the version
+     * is unknown or changed and the overrides must be read again.
+     */
+    Read cachedAt(String version) {
+        Read current = cached;
+        if (version == null) {
+            logger.debug("No version item found for service {}, querying overrides", serviceName);
+            return null;
+        }
+        if (!version.equals(cachedVersion) || current == null) {
+            return null;
+        }
+        Metrics.getInstance().increment("dynamodb_version_check_hits");
+        Metrics.getInstance().add("dynamodb_saved_rcu_milli",
+            Math.max(0, Math.round((lastQueryCapacity - lastVersionCapacity) * 1000)));
+        logger.debug("Override version {} unchanged for service {}, using cached overrides", version, serviceName);
+        LevelOverrides levels = LevelOverrides.withoutExpired(current.levels(), current.expiries(), Instant.now());
+        return new Read(levels, LevelOverrides.expiriesOf(levels, current.expiries()));
+    }
+
+    /**
+     * Cache the overrides read at the given version, for {@link #cachedAt}.
+     */
+    Read cache(String version, Read read) {
+        cached = read;
+        cachedVersion = version;
+        return read;
+    }
+
+    GetItemRequest packedItemRequest(boolean consistentRead) {
+        return packedItemRequest(tableName, serviceName, consistentRead);
+    }
+
+    /**
+     * The overrides in the response to the {@link #packedItemRequest}, or null when the service has no packed
+     * item and its per-logger items must be queried.
+     *
+     * @throws IOException if the packed item is not a valid packed override set
+     */
+    Read fromPackedItem(GetItemResponse response, boolean consistentRead) throws IOException {
+        double capacity = capacityUnits(response.consumedCapacity());
+        capacityListener.accept(capacity);
+        if (!response.hasItem() || response.item().get(PackedOverrides.ATTRIBUTE) == null) {
+            logger.debug("No packed item found for service {}, querying per-logger items", serviceName);
+            return null;
+        }
+        Read read = decode(response.item().get(PackedOverrides.ATTRIBUTE));
+        lastQueryCapacity = consistentRead ? capacity / 2 : capacity;
+        Metrics.getInstance().increment("dynamodb_packed_reads");
+        logger.debug("Read {} log level overrides from the packed item of service {} using {} RCU",
+                    read.levels().size(), serviceName, capacity);
+        return read;
+    }
+
+    /**
+     * Decode a packed attribute into overrides.
+     *
+     * @throws IOException if the value is not a valid packed override set
+     */
+    static Read decode(AttributeValue packedAttribute) throws IOException {
+        Map<String, String> levels = new HashMap<>();
+        Map<String, Instant> expiries = new HashMap<>();
+        PackedOverrides.decode(packedAttribute, levels, expiries);
+        return new Read(LevelOverrides.copyOf(levels), Map.copyOf(expiries));
+    }
+
+    /**
+     * Start the query of the per-logger items of the given partition.
+     */
+    Query query(String partitionKey, boolean consistentRead) {
+        return new Query(partitionKey, consistentRead);
+    }
+
+    /**
+     * Query of the per-logger items of a partition, parsed page by page as the responses arrive.
+     */
+    final class Query {
+        private final String partitionKey;
+        private final boolean consistentRead;
+        private final Map<String, String> levels = new HashMap<>();
+        private final Map<String, Instant> expiries = new HashMap<>();
+        private QueryRequest request;
+        private int pages;
+        private double consumedCapacity;
+
+        private Query(String partitionKey, boolean consistentRead) {
+            this.partitionKey = partitionKey;
+            this.consistentRead = consistentRead;
+            this.request = overridesQuery(tableName, partitionKey, consistentRead);
+        }
+
+        /**
+         * The request of the next page.
+         */
+        QueryRequest request() {
+            return request;
+        }
+
+        /**
+         * Parse a page of the query.
+         *
+         * @return whether there is a next page to request
+         */
+        boolean addPage(QueryResponse response) {
+            pages++;
+            consumedCapacity += capacityUnits(response.consumedCapacity());
+            if (response.hasItems()) {
+                for (Map<String, AttributeValue> item : response.items()) {
+                    parseItem(item, levels, expiries);
+                }
+            }
+            if (response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()) {
+                request = request.toBuilder().exclusiveStartKey(response.lastEvaluatedKey()).build();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * The overrides of all pages read.
+         */
+        Read finish() {
+            // Savings are measured against the eventually consistent query a poll without version checking would run
+            lastQueryCapacity = consistentRead ? consumedCapacity / 2 : consumedCapacity;
+            Metrics.getInstance().add("dynamodb_query_pages", pages);
+            capacityListener.accept(consumedCapacity);
+            logger.debug("DynamoDB query for service {} read {} page(s) using {} RCU", partitionKey, pages, consumedCapacity);
+
+            if (levels.isEmpty()) {
+                logger.debug("No valid log level overrides found in DynamoDB for service {}", partitionKey);
+            } else {
+                logger.info("Loaded {} log level overrides from DynamoDB for service {}",
+                           levels.size(), partitionKey);
+            }
+            return new Read(LevelOverrides.copyOf(levels), Map.copyOf(expiries));
+        }
+    }
+
+    /**
+     * Build the GetItem request reading the version attribute of the service's version item.
+     */
+    static GetItemRequest versionRequest(String tableName, String serviceName) {
+        return GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of(
+                    "service", AttributeValue.builder().s(serviceName).build(),
+                    "logger", AttributeValue.builder().s(DynamoDBBackend.VERSION_ITEM_LOGGER).build()
+                ))
+                .projectionExpression("#version")
+                .expressionAttributeNames(Map.of("#version", "version"))
+                .consistentRead(false)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * Extract the version from the response to a {@link #versionRequest}.
+     *
+     * @return the version, or null if there is no version item
+     */
+    static String versionOf(GetItemResponse response) {
+        if (!response.hasItem() || response.item().isEmpty()) {
+            return null;
+        }
+        AttributeValue versionAttribute = response.item().get("version");
+        if (versionAttribute == null) {
+            return null;
+        }
+        return versionAttribute.n() != null ? versionAttribute.n() : versionAttribute.s();
+    }
+
+    /**
+     * Build the first page request of the query for the service's overrides.
+     */
+    static QueryRequest overridesQuery(String tableName, String serviceName, boolean consistentRead) {
+        return QueryRequest.builder()
+                .tableName(tableName)
+                .keyConditionExpression("service = :service")
+                .expressionAttributeValues(Map.of(
+                    ":service", AttributeValue.builder().s(serviceName).build()
+                ))
+                // Only the attributes we use; "level" and "ttl" are reserved words
+                .projectionExpression("#logger, #level, #ttl")
+                .expressionAttributeNames(Map.of(
+                    "#logger", "logger",
+                    "#level", "level",
+                    "#ttl", "ttl"
+                ))
+                // Overrides are polled, an eventually consistent read costs half the capacity
+                .consistentRead(consistentRead)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    /**
+     * Build the GetItem request reading the service's packed item.
+     */
+    static GetItemRequest packedItemRequest(String tableName, String serviceName, boolean consistentRead) {
+        return GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of(
+                    "service", AttributeValue.builder().s(serviceName).build(),
+                    "logger", AttributeValue.builder().s(DynamoDBBackend.PACKED_ITEM_LOGGER).build()
+                ))
+                .projectionExpression("#overrides")
+                .expressionAttributeNames(Map.of("#overrides", PackedOverrides.ATTRIBUTE))
+                .consistentRead(consistentRead)
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build();
+    }
+
+    static double capacityUnits(ConsumedCapacity consumedCapacity) {
+        if (consumedCapacity == null || consumedCapacity.capacityUnits() == null) {
+            return 0;
+        }
+        return consumedCapacity.capacityUnits();
+    }
+
+    /**
+     * Validate an override item and add it to the given map, skipping the reserved items, invalid items and
+     * items whose ttl has passed. The expiry of an item with a ttl is added to the expiries map.
+     */
+    static void parseItem(Map<String, AttributeValue> item, Map<String, String> desiredLevels, Map<String, Instant> expiries) {
+        AttributeValue loggerAttribute = item.get("logger");
+        AttributeValue levelAttribute = item.get("level");
+        AttributeValue ttlAttribute = item.get("ttl");
+        
+        if (loggerAttribute != null && isReservedLogger(loggerAttribute.s())) {
+            return;
+        }
+        
+        if (loggerAttribute == null || loggerAttribute.s() == null || 
+            levelAttribute == null || levelAttribute.s() == null) {
+            logger.warn("Invalid item structure in DynamoDB - missing logger or level attribute");
+            return;
+        }
+        
+        parseOverride(loggerAttribute.s(), levelAttribute.s(), ttlAttribute != null ? ttlAttribute.n() : null,
+            desiredLevels, expiries);
+    }
+
+    /**
+     * Validate an override and add it to the given map, skipping it when the level is invalid or the ttl
+     * (Unix timestamp in seconds, may be null) has passed. The expiry is added to the expiries map.
+     */
+    static void parseOverride(String loggerName, String level, String ttl,
+                              Map<String, String> desiredLevels, Map<String, Instant> expiries) {
+        Instant expiry = null;
+        if (ttl != null) {
+            try {
+                expiry = Instant.ofEpochSecond(Long.parseLong(ttl));
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid ttl '{}' for logger '{}', treating the override as permanent", ttl, loggerName);
+            }
+        }
+        if (expiry != null && !expiry.isAfter(Instant.now())) {
+            // DynamoDB has not deleted the item yet
+            Metrics.getInstance().increment("dynamodb_expired_items_skipped");
+            logger.debug("Skipping expired log level override: {} = {} (expired {})", loggerName, level, expiry);
+            return;
+        }
+        
+        String resolved = LogLevel.resolve(level);
+        if (resolved != null) {
+            desiredLevels.put(loggerName, resolved);
+            if (expiry != null) {
+                expiries.put(loggerName, expiry);
+            }
+            logger.debug("Found log level override: {} = {}", loggerName, level);
+        } else {
+            logger.warn("Invalid log level '{}' for logger '{}', skipping", level, loggerName);
+        }
+    }
+
+    /**
+     * Whether the sort key belongs to one of the per-service items that are not overrides.
+     */
+    static boolean isReservedLogger(String loggerName) {
+        return DynamoDBBackend.VERSION_ITEM_LOGGER.equals(loggerName) || DynamoDBBackend.PACKED_ITEM_LOGGER.equals(loggerName);
+    }
+}
@@ -0,0 +1,393 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamResponse;
+import software.amazon.awssdk.services.dynamodb.model.ExpiredIteratorException;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.dynamodb.model.ListStreamsRequest;
+import software.amazon.awssdk.services.dynamodb.model.OperationType;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.Shard;
+import software.amazon.awssdk.services.dynamodb.model.ShardIteratorType;
+import software.amazon.awssdk.services.dynamodb.model.Stream;
+import software.amazon.awssdk.services.dynamodb.model.StreamRecord;
+import software.amazon.awssdk.services.dynamodb.model.StreamStatus;
+import software.amazon.awssdk.services.dynamodb.model.TrimmedDataAccessException;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Backend that keeps the DynamoDB overrides of a service up to date from the table's DynamoDB Stream.
+ * <p>
+ * The overrides are loaded with a full query on startup, after positioning at the end of every open shard,
+ * and then updated incrementally from the stream records of the service. Every change signals the change
+ * listener so it is applied within about a second. When the stream position is lost (expired iterator or
+ * trimmed data) the overrides are reloaded with a full query. If the table has no enabled stream, the
+ * backend falls back to querying on every fetch like {@link DynamoDBBackend}.
+ * <p>
+ * The stream must include new images (NEW_IMAGE or NEW_AND_OLD_IMAGES); with KEYS_ONLY every change
+ * of the service triggers a full query.
+ */
+public class DynamoDBStreamBackend implements Backend {
+    private static final Logger logger = LoggerFactory.getLogger(DynamoDBStreamBackend.class);
+    private static final Duration DEFAULT_POLL_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration SHARD_REFRESH_INTERVAL = Duration.ofSeconds(60);
+    private static final Duration ERROR_BACKOFF = Duration.ofSeconds(5);
+    private static final int RECORDS_PER_REQUEST = 1000;
+
+    private final String tableName;
+    private final String serviceName;
+    private final DynamoDBBackend queryBackend;
+    private final DynamoDbStreamsClientWrapper streamsClient;
+    private final DynamoDbStreamsClient awsStreamsClient; // Keep reference to close it
+    private final Duration pollInterval;
+
+    // Current overrides, null until the initial query completed
+    private volatile LevelOverrides desiredLevels;
+    // Expiry of the overrides with a ttl, expired ones are dropped when the overrides are fetched
+    private volatile Map<String, Instant> expiries = Map.of();
+    private volatile Runnable changeListener;
+    private volatile boolean closed;
+    private volatile boolean streamUnavailable;
+    private Thread consumer;
+
+    // Stream position, only used by the consumer thread once it is started
+    private String streamArn;
+    private final Map<String, String> shardIterators = new LinkedHashMap<>();
+    private final Set<String> finishedShards = new HashSet<>();
+    private long lastShardRefresh;
+    private boolean resyncNeeded;
+
+    public DynamoDBStreamBackend(String tableName, String serviceName) {
+        this.tableName = tableName;
+        this.serviceName = serviceName;
+        this.queryBackend = new DynamoDBBackend(DynamoDBBackend.Settings.of(tableName, serviceName));
+        this.awsStreamsClient = DynamoDbStreamsClient.builder()
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .build();
+        this.streamsClient = new DefaultDynamoDbStreamsClientWrapper(awsStreamsClient);
+        this.pollInterval = DEFAULT_POLL_INTERVAL;
+    }
+
+    // Constructor for testing
+    public DynamoDBStreamBackend(String tableName, String serviceName, DynamoDbClientWrapper dynamoDbClient,
+                                 DynamoDbStreamsClientWrapper streamsClient, Duration pollInterval) {
+        this.tableName = tableName;
+        this.serviceName = serviceName;
+        this.queryBackend = new DynamoDBBackend(DynamoDBBackend.Settings.of(tableName, serviceName), dynamoDbClient);
+        this.streamsClient = streamsClient;
+        this.awsStreamsClient = null; // No AWS client to close in test mode
+        this.pollInterval = pollInterval;
+    }
+
+    @Override
+    public Map<String, String> fetchDesiredLevels() throws Exception {
+        synchronized (this) {
+            if (desiredLevels == null && !streamUnavailable) {
+                start();
+            }
+        }
+        if (streamUnavailable) {
+            return queryBackend.fetchDesiredLevels();
+        }
+        return LevelOverrides.withoutExpired(desiredLevels, expiries, Instant.now());
+    }
+
+    @Override
+    public Map<String, Instant> getExpiries() {
+        if (streamUnavailable) {
+            return queryBackend.getExpiries();
+        }
+        LevelOverrides levels = desiredLevels;
+        return levels == null ? Map.of() : LevelOverrides.expiriesOf(levels, expiries);
+    }
+
+    @Override
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    /**
+     * Position at the end of the stream, load the overrides with a full query and start consuming the stream.
+     * Positioning first means no change made while the query runs is missed.
+     */
+    private void start() throws Exception {
+        try {
+            streamArn = findStreamArn();
+            if (streamArn == null) {
+                logger.warn("No enabled DynamoDB stream on table {}, falling back to polling", tableName);
+                streamUnavailable = true;
+                return;
+            }
+            positionAtLatest();
+        } catch (Exception e) {
+            logger.warn("Unable to read the DynamoDB stream of table {}, falling back to polling: {}", tableName, e.getMessage());
+            streamUnavailable = true;
+            return;
+        }
+
+        Map<String, String> queried = queryBackend.fetchDesiredLevels();
+        expiries = queryBackend.getExpiries();
+        desiredLevels = LevelOverrides.copyOf(queried);
+        logger.info("Following DynamoDB stream {} for changes to service {}", streamArn, serviceName);
+
+        consumer = new Thread(this::consume, "dynalog4j-dynamodb-stream");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    private String findStreamArn() {
+        List<Stream> streams = streamsClient.listStreams(ListStreamsRequest.builder().tableName(tableName).build()).streams();
+        if (streams == null) {
+            return null;
+        }
+        // Disabled streams are listed for 24 hours after they are replaced
+        for (Stream stream : streams) {
+            DescribeStreamResponse response = streamsClient.describeStream(
+                DescribeStreamRequest.builder().streamArn(stream.streamArn()).build());
+            if (response.streamDescription().streamStatus() == StreamStatus.ENABLED) {
+                return stream.streamArn();
+            }
+        }
+        return null;
+    }
+
+    private List<Shard> describeShards() {
+        List<Shard> shards = new ArrayList<>();
+        String startShardId = null;
+        do {
+            DescribeStreamResponse response = streamsClient.describeStream(DescribeStreamRequest.builder()
+                .streamArn(streamArn)
+                .exclusiveStartShardId(startShardId)
+                .build());
+            if (response.streamDescription().hasShards()) {
+                shards.addAll(response.streamDescription().shards());
+            }
+            startShardId = response.streamDescription().lastEvaluatedShardId();
+        } while (startShardId != null);
+        return shards;
+    }
+
+    /**
+     * Start reading every open shard from its end. Closed shards only hold changes made before this point.
+     */
+    private void positionAtLatest() {
+        shardIterators.clear();
+        finishedShards.clear();
+        for (Shard shard : describeShards()) {
+            if (shard.sequenceNumberRange() != null && shard.sequenceNumberRange().endingSequenceNumber() != null) {
+                finishedShards.add(shard.shardId());
+            } else {
+                shardIterators.put(shard.shardId(), shardIterator(shard.shardId(), ShardIteratorType.LATEST));
+            }
+        }
+        lastShardRefresh = System.currentTimeMillis();
+        logger.debug("Positioned at the end of {} open shard(s) of stream {}", shardIterators.size(), streamArn);
+    }
+
+    /**
+     * Pick up shards created since the last refresh (when shards split or roll over), reading them from the
+     * start once their parent shard has been read to the end.
+     */
+    private void refreshShards() {
+        for (Shard shard : describeShards()) {
+            String shardId = shard.shardId();
+            if (shardIterators.containsKey(shardId) || finishedShards.contains(shardId)) {
+                continue;
+            }
+            if (shard.parentShardId() != null && shardIterators.containsKey(shard.parentShardId())) {
+                continue;
+            }
+            logger.debug("Reading new shard {} of stream {}", shardId, streamArn);
+            shardIterators.put(shardId, shardIterator(shardId, ShardIteratorType.TRIM_HORIZON));
+        }
+        lastShardRefresh = System.currentTimeMillis();
+    }
+
+    private String shardIterator(String shardId, ShardIteratorType type) {
+        return streamsClient.getShardIterator(GetShardIteratorRequest.builder()
+            .streamArn(streamArn)
+            .shardId(shardId)
+            .shardIteratorType(type)
+            .build()).shardIterator();
+    }
+
+    private void consume() {
+        while (!closed) {
+            try {
+                if (resyncNeeded) {
+                    resync();
+                } else {
+                    if (System.currentTimeMillis() - lastShardRefresh > SHARD_REFRESH_INTERVAL.toMillis()) {
+                        refreshShards();
+                    }
+                    pollShards();
+                }
+                Thread.sleep(pollInterval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExpiredIteratorException | TrimmedDataAccessException e) {
+                logger.warn("Lost position in DynamoDB stream, reloading overrides with a full query: {}", e.getMessage());
+                resyncNeeded = true;
+            } catch (Exception e) {
+                if (closed) {
+                    break;
+                }
+                logger.warn("Error reading DynamoDB stream {}: {}", streamArn, e.getMessage());
+                try {
+                    Thread.sleep(ERROR_BACKOFF.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        logger.debug("Stopped following DynamoDB stream {}", streamArn);
+    }
+
+    /**
+     * Reposition at the end of the stream and reload the overrides with a full query.
+     */
+    private void resync() throws Exception {
+        positionAtLatest();
+        Map<String, String> reloaded = queryBackend.fetchDesiredLevels();
+        resyncNeeded = false;
+        Metrics.getInstance().increment("dynamodb_stream_resyncs");
+        update(LevelOverrides.copyOf(reloaded), queryBackend.getExpiries());
+    }
+
+    /**
+     * Read the new records of every shard. The positions after the records are only kept once the records of
+     * all shards are published, so a pass failing part way is read again from where it started.
+     */
+    private void pollShards() {
+        // Only copied once a shard returns records, a pass without changes allocates no overrides
+        LevelOverrides.Builder updated = null;
+        Map<String, Instant> updatedExpiries = null;
+        Map<String, String> nextIterators = new HashMap<>();
+        List<String> closedShards = new ArrayList<>();
+
+        for (Map.Entry<String, String> shard : shardIterators.entrySet()) {
+            GetRecordsResponse response = streamsClient.getRecords(GetRecordsRequest.builder()
+                .shardIterator(shard.getValue())
+                .limit(RECORDS_PER_REQUEST)
+                .build());
+            if (response.hasRecords() && !response.records().isEmpty()) {
+                if (updated == null) {
+                    updated = desiredLevels.toBuilder();
+                    updatedExpiries = new HashMap<>(expiries);
+                }
+                for (Record record : response.records()) {
+                    applyRecord(record, updated, updatedExpiries);
+                }
+            }
+            if (response.nextShardIterator() == null) {
+                // The shard was closed and has been read to the end
+                closedShards.add(shard.getKey());
+            } else {
+                nextIterators.put(shard.getKey(), response.nextShardIterator());
+            }
+        }
+
+        if (resyncNeeded) {
+            return;
+        }
+        if (updated != null) {
+            update(updated.build(), updatedExpiries);
+        }
+        shardIterators.putAll(nextIterators);
+        for (String shardId : closedShards) {
+            shardIterators.remove(shardId);
+            finishedShards.add(shardId);
+        }
+        if (!closedShards.isEmpty()) {
+            refreshShards();
+        }
+    }
+
+    private void applyRecord(Record record, LevelOverrides.Builder levels, Map<String, Instant> levelExpiries) {
+        StreamRecord data = record.dynamodb();
+        if (data == null || data.keys() == null) {
+            return;
+        }
+        AttributeValue service = data.keys().get("service");
+        AttributeValue loggerKey = data.keys().get("logger");
+        if (service == null || !serviceName.equals(service.s()) || loggerKey == null
+                || DynamoDBOverridesReader.isReservedLogger(loggerKey.s())) {
+            return;
+        }
+        Metrics.getInstance().increment("dynamodb_stream_records");
+
+        String loggerName = loggerKey.s();
+        if (record.eventName() == OperationType.REMOVE) {
+            levels.remove(loggerName);
+            levelExpiries.remove(loggerName);
+        } else if (!data.hasNewImage()) {
+            // The stream does not carry item images, the change can only be read with a query
+            resyncNeeded = true;
+        } else {
+            Map<String, String> parsed = new HashMap<>();
+            Map<String, Instant> parsedExpiry = new HashMap<>();
+            DynamoDBOverridesReader.parseItem(data.newImage(), parsed, parsedExpiry);
+            if (parsed.containsKey(loggerName)) {
+                levels.put(loggerName, parsed.get(loggerName));
+            } else {
+                levels.remove(loggerName);
+            }
+            if (parsedExpiry.containsKey(loggerName)) {
+                levelExpiries.put(loggerName, parsedExpiry.get(loggerName));
+            } else {
+                levelExpiries.remove(loggerName);
+            }
+        }
+    }
+
+    private void update(LevelOverrides levels, Map<String, Instant> levelExpiries) {
+        if (levels.equals(desiredLevels) && levelExpiries.equals(expiries)) {
+            return;
+        }
+        expiries = Map.copyOf(levelExpiries);
+        desiredLevels = levels;
+        logger.info("DynamoDB stream updated overrides for service {}: {} override(s)", serviceName, levels.size());
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (consumer != null) {
+            consumer.interrupt();
+        }
+        queryBackend.close();
+        if (awsStreamsClient != null) {
+            try {
+                awsStreamsClient.close();
+                logger.debug("Closed DynamoDB Streams client");
+            } catch (Exception e) {
+                logger.warn("Error closing DynamoDB Streams client: {}", e.getMessage());
+            }
+        }
+    }
+}
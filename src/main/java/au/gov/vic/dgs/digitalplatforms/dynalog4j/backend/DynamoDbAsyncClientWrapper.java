@@ -0,0 +1,16 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wrapper interface for asynchronous DynamoDB operations to enable easier testing.
+ */
+public interface DynamoDbAsyncClientWrapper {
+    CompletableFuture<GetItemResponse> getItem(GetItemRequest request);
+    CompletableFuture<QueryResponse> query(QueryRequest request);
+}
@@ -1,9 +1,17 @@
 package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
 
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
 
 /**
  * Wrapper interface for DynamoDB operations to enable easier testing.
@@ -11,4 +19,8 @@ import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 public interface DynamoDbClientWrapper {
     GetItemResponse getItem(GetItemRequest request);
     QueryResponse query(QueryRequest request);
+    BatchGetItemResponse batchGetItem(BatchGetItemRequest request);
+    PutItemResponse putItem(PutItemRequest request);
+    DeleteItemResponse deleteItem(DeleteItemRequest request);
+    UpdateItemResponse updateItem(UpdateItemRequest request);
 }
@@ -0,0 +1,20 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorResponse;
+import software.amazon.awssdk.services.dynamodb.model.ListStreamsRequest;
+import software.amazon.awssdk.services.dynamodb.model.ListStreamsResponse;
+
+/**
+ * Wrapper interface for DynamoDB Streams operations to enable easier testing.
+ */
+public interface DynamoDbStreamsClientWrapper {
+    ListStreamsResponse listStreams(ListStreamsRequest request);
+    DescribeStreamResponse describeStream(DescribeStreamRequest request);
+    GetShardIteratorResponse getShardIterator(GetShardIteratorRequest request);
+    GetRecordsResponse getRecords(GetRecordsRequest request);
+}
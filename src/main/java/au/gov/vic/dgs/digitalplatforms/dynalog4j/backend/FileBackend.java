@@ -10,7 +10,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -21,12 +20,17 @@ import java.util.Map;
  *   com.example.Class1: DEBUG
  *   com.example.Class2: INFO
  *   root: WARN
+ * <p>
+ * The version of the levels only moves when the file content changes; unchanged content is not parsed again.
  */
-public class FileBackend implements Backend {
+public class FileBackend implements VersionedBackend {
     private static final Logger logger = LoggerFactory.getLogger(FileBackend.class);
     private final String configPath;
     private final ObjectMapper yamlMapper;
     private final ObjectMapper jsonMapper;
+    private final LevelsHistory history = new LevelsHistory();
+    // Content the current levels were parsed from, null when the file did not exist
+    private String lastContent;
 
     public FileBackend() {
         this(System.getenv().getOrDefault("LOG_CONFIG_PATH", "/config/log-levels.yaml"));
@@ -44,11 +48,16 @@ public class FileBackend implements Backend {
         
         if (!Files.exists(path)) {
             logger.debug("Configuration file {} does not exist, returning empty configuration", configPath);
-            return new HashMap<>();
+            lastContent = null;
+            return history.update(Map.of()).getLevels();
         }
 
         try {
             String content = Files.readString(path);
+            if (content.equals(lastContent)) {
+                logger.debug("Configuration file {} unchanged", configPath);
+                return history.getSnapshot().getLevels();
+            }
             ObjectMapper mapper = configPath.toLowerCase().endsWith(".json") ? jsonMapper : yamlMapper;
             
             JsonNode root = mapper.readTree(content);
@@ -56,10 +65,11 @@ public class FileBackend implements Backend {
             
             if (loggersNode == null || !loggersNode.isObject()) {
                 logger.debug("Configuration file {} does not contain a 'loggers' object", configPath);
-                return new HashMap<>();
+                lastContent = content;
+                return history.update(Map.of()).getLevels();
             }
 
-            Map<String, String> desiredLevels = new HashMap<>();
+            LevelOverrides.Builder desiredLevels = LevelOverrides.builder();
             Iterator<Map.Entry<String, JsonNode>> fields = loggersNode.fields();
             
             while (fields.hasNext()) {
@@ -67,20 +77,22 @@ public class FileBackend implements Backend {
                 String loggerName = field.getKey();
                 String level = field.getValue().asText();
                 
-                if (isValidLogLevel(level)) {
-                    desiredLevels.put(loggerName, level.toUpperCase());
+                String resolved = LogLevel.resolve(level);
+                if (resolved != null) {
+                    desiredLevels.put(loggerName, resolved);
                     logger.debug("Found log level override: {} = {}", loggerName, level);
                 } else {
                     logger.warn("Invalid log level '{}' for logger '{}', skipping", level, loggerName);
                 }
             }
             
-            if (desiredLevels.isEmpty()) {
+            if (desiredLevels.size() == 0) {
                 logger.debug("No valid log level overrides found in file {}", configPath);
             } else {
                 logger.info("Loaded {} log level overrides from file {}", desiredLevels.size(), configPath);
             }
-            return desiredLevels;
+            lastContent = content;
+            return history.update(desiredLevels.build()).getLevels();
             
         } catch (IOException e) {
             logger.error("Error reading configuration file {}: {}", configPath, e.getMessage());
@@ -88,18 +100,13 @@ public class FileBackend implements Backend {
         }
     }
     
-    private boolean isValidLogLevel(String level) {
-        if (level == null || level.trim().isEmpty()) {
-            return false;
-        }
-        
-        String upperLevel = level.toUpperCase();
-        return upperLevel.equals("TRACE") || 
-               upperLevel.equals("DEBUG") || 
-               upperLevel.equals("INFO") || 
-               upperLevel.equals("WARN") || 
-               upperLevel.equals("ERROR") || 
-               upperLevel.equals("FATAL") ||
-               upperLevel.equals("OFF");
+    @Override
+    public VersionedLevels getSnapshot() {
+        return history.getSnapshot();
+    }
+
+    @Override
+    public LevelsDelta changesSince(long version) {
+        return history.changesSince(version);
     }
 }
@@ -0,0 +1,254 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * DynamoDbClientWrapper that hedges reads: when a read has not returned within a percentile of the recent
+ * read latencies, the same read is sent again, to a secondary client when one is given, and whichever
+ * succeeds first is used.
+ * <p>
+ * Hedges are limited by a budget: every read earns a fraction of a hedge, up to a small burst, and a hedge
+ * is only sent when a whole one has been earned, so hedges stay below that fraction of the reads even when
+ * DynamoDB itself is slow. Writes are never hedged, as they are not all idempotent, and neither are strongly
+ * consistent reads, which would have to be sent to the same region and cost twice the capacity of an
+ * eventually consistent read.
+ * <p>
+ * The caller only sees the capacity consumed by the read that answered. The capacity consumed by the other
+ * read of a hedged pair, which may only return after the caller moved on, is reported to the listener set
+ * with {@link #setLostReadCapacityListener} so that it can be charged to the same read budget.
+ */
+public class HedgingDynamoDbClientWrapper implements DynamoDbClientWrapper, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(HedgingDynamoDbClientWrapper.class);
+    // Latencies of the most recent primary reads the hedge delay is learned from
+    static final int LATENCY_SAMPLES = 100;
+    // Reads to observe before the first hedge, fewer do not give a meaningful percentile
+    static final int MIN_LATENCY_SAMPLES = 20;
+    // Hedges that can be saved up while reads are fast; none are available until earned
+    private static final double MAX_HEDGE_TOKENS = 10;
+
+    private final DynamoDbClientWrapper primary;
+    private final DynamoDbClientWrapper secondary;
+    private final double percentile;
+    private final double budget;
+    // Reads block on the synchronous client, so each runs on its own thread while the caller waits
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "dynalog4j-dynamodb-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyCount;
+    private int nextLatency;
+    private double hedgeTokens;
+    private volatile DoubleConsumer lostReadCapacityListener = capacity -> { };
+
+    /**
+     * @param primary client every read is sent to first
+     * @param secondary client hedges are sent to, for example in another region; the primary when null
+     * @param percentile percentile of the recent read latencies after which a read is hedged, e.g. 95
+     * @param budget hedges allowed per read, e.g. 0.1 for at most one hedge per ten reads
+     */
+    public HedgingDynamoDbClientWrapper(DynamoDbClientWrapper primary, DynamoDbClientWrapper secondary,
+                                        double percentile, double budget) {
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Hedge percentile must be between 0 and 100, got " + percentile);
+        }
+        if (budget < 0) {
+            throw new IllegalArgumentException("Hedge budget must not be negative, got " + budget);
+        }
+        this.primary = primary;
+        this.secondary = secondary != null ? secondary : primary;
+        this.percentile = percentile;
+        this.budget = budget;
+    }
+
+    /**
+     * Set the listener told the read capacity units consumed by the read of a hedged pair that did not answer.
+     */
+    public void setLostReadCapacityListener(DoubleConsumer listener) {
+        this.lostReadCapacityListener = listener;
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        if (Boolean.TRUE.equals(request.consistentRead())) {
+            return primary.getItem(request);
+        }
+        return hedged("GetItem", client -> client.getItem(request),
+            response -> DynamoDBOverridesReader.capacityUnits(response.consumedCapacity()));
+    }
+
+    @Override
+    public QueryResponse query(QueryRequest request) {
+        if (Boolean.TRUE.equals(request.consistentRead())) {
+            return primary.query(request);
+        }
+        return hedged("Query", client -> client.query(request),
+            response -> DynamoDBOverridesReader.capacityUnits(response.consumedCapacity()));
+    }
+
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+        if (request.requestItems().values().stream()
+                .anyMatch(keys -> Boolean.TRUE.equals(keys.consistentRead()))) {
+            return primary.batchGetItem(request);
+        }
+        return hedged("BatchGetItem", client -> client.batchGetItem(request), response -> {
+            double capacity = 0;
+            if (response.hasConsumedCapacity()) {
+                for (ConsumedCapacity consumedCapacity : response.consumedCapacity()) {
+                    capacity += DynamoDBOverridesReader.capacityUnits(consumedCapacity);
+                }
+            }
+            return capacity;
+        });
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        return primary.putItem(request);
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        return primary.deleteItem(request);
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        return primary.updateItem(request);
+    }
+
+    private <T> T hedged(String operation, Function<DynamoDbClientWrapper, T> read, ToDoubleFunction<T> capacity) {
+        long hedgeDelayNanos = hedgeDelayNanos();
+        long start = System.nanoTime();
+        CompletableFuture<T> first = CompletableFuture.supplyAsync(() -> {
+            T response = read.apply(primary);
+            // Every primary read is sampled, including those that lose to a hedge, to learn the real distribution
+            recordLatency(System.nanoTime() - start);
+            return response;
+        }, executor);
+
+        try {
+            if (hedgeDelayNanos < 0) {
+                return first.get();
+            }
+            try {
+                return first.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (!takeHedgeToken()) {
+                    Metrics.getInstance().increment("dynamodb_hedges_over_budget");
+                    return first.get();
+                }
+            }
+
+            Metrics.getInstance().increment("dynamodb_hedged_requests");
+            logger.debug("DynamoDB {} took longer than {}ms, sending a hedged request", operation,
+                        TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos));
+            CompletableFuture<T> hedge = CompletableFuture.supplyAsync(() -> read.apply(secondary), executor);
+            return firstSuccessful(first, hedge, capacity).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("DynamoDB " + operation + " failed: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            first.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during DynamoDB " + operation, e);
+        }
+    }
+
+    /**
+     * Complete with the first of the two reads that succeeds, or with the error of the first read when both fail.
+     * The capacity consumed by a read that succeeds after the other one answered goes to the lost read listener.
+     */
+    private <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> first, CompletableFuture<T> hedge,
+                                                     ToDoubleFunction<T> capacity) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> read : Arrays.asList(first, hedge)) {
+            read.whenComplete((response, error) -> {
+                if (error == null) {
+                    if (result.complete(response)) {
+                        if (read == hedge) {
+                            Metrics.getInstance().increment("dynamodb_hedge_wins");
+                        }
+                    } else {
+                        lostReadCapacityListener.accept(capacity.applyAsDouble(response));
+                    }
+                } else if (failures.incrementAndGet() == 2) {
+                    Throwable firstError = first.handle((ignored, e) -> e).join();
+                    result.completeExceptionally(firstError instanceof CompletionException ? firstError.getCause() : firstError);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * The time after which a read is hedged: the configured percentile of the recent primary read latencies,
+     * or -1 while too few reads have been observed.
+     */
+    synchronized long hedgeDelayNanos() {
+        // Every read earns its share of a hedge, whether or not it is hedged
+        hedgeTokens = Math.min(MAX_HEDGE_TOKENS, hedgeTokens + budget);
+        if (latencyCount < MIN_LATENCY_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * latencyCount) - 1;
+        return sorted[Math.max(0, Math.min(index, latencyCount - 1))];
+    }
+
+    private synchronized void recordLatency(long latencyNanos) {
+        latencies[nextLatency] = latencyNanos;
+        nextLatency = (nextLatency + 1) % LATENCY_SAMPLES;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+    }
+
+    private synchronized boolean takeHedgeToken() {
+        if (hedgeTokens < 1) {
+            return false;
+        }
+        hedgeTokens--;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
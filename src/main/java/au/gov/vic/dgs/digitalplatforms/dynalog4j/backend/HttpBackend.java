@@ -0,0 +1,272 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Backend that reads log level overrides from an HTTP endpoint returning JSON in the file backend's format:
+ * <pre>
+ * {"loggers": {"com.example.Class1": "DEBUG", "root": "WARN"}}
+ * </pre>
+ * A 404 means there are no overrides. Requests are conditional: the ETag of the last response is sent in
+ * {@code If-None-Match}, so unchanged overrides cost a 304 without a body and are not parsed again. Responses
+ * may be gzip-compressed, and the client prefers HTTP/2, reusing its connection across requests.
+ * <p>
+ * With long-polling enabled, a background thread keeps a request open with a {@code wait} query parameter
+ * giving the number of seconds the server may hold it until the overrides no longer match the ETag sent.
+ * When the server answers with new overrides, the change listener is notified so they are applied within
+ * milliseconds; fetches then return them without a request of their own while the long-poll is healthy.
+ */
+public class HttpBackend implements VersionedBackend {
+    private static final Logger logger = LoggerFactory.getLogger(HttpBackend.class);
+    // Time a long-poll request may take beyond the wait the server was given
+    private static final Duration LONG_POLL_GRACE = Duration.ofSeconds(10);
+    // Pause after a failed long-poll before the next one, and after one the server could not or did not hold
+    static final Duration LONG_POLL_RETRY_DELAY = Duration.ofSeconds(5);
+    // Long-polls returning sooner than this without a change were not held by the server
+    private static final Duration LONG_POLL_MIN_DURATION = Duration.ofSeconds(1);
+
+    private final URI uri;
+    private final Duration timeout;
+    private final Duration longPollWait;
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LevelsHistory history = new LevelsHistory();
+
+    // ETag of the response the current overrides were parsed from, guarded by this
+    private String etag;
+    private boolean hasOverrides;
+    private volatile Runnable changeListener;
+    private volatile boolean longPollHealthy;
+    private volatile boolean closed;
+    private Thread longPoller;
+
+    /**
+     * @param uri endpoint returning the overrides
+     * @param timeout time a request may take
+     * @param longPollWait time the server may hold a long-poll request, or null or zero to only poll
+     */
+    public HttpBackend(URI uri, Duration timeout, Duration longPollWait) {
+        this.uri = uri;
+        this.timeout = timeout;
+        this.longPollWait = longPollWait != null && !longPollWait.isZero() && !longPollWait.isNegative()
+            ? longPollWait
+            : null;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public Map<String, String> fetchDesiredLevels() throws Exception {
+        synchronized (this) {
+            if (longPollHealthy && hasOverrides) {
+                logger.debug("Using overrides from long-poll of {}", uri);
+                return history.getSnapshot().getLevels();
+            }
+        }
+        try {
+            Map<String, String> desiredLevels = request(uri, timeout);
+            startLongPoll();
+            return desiredLevels;
+        } catch (IOException e) {
+            logger.error("Error fetching overrides from {}: {}", uri, e.getMessage());
+            throw new Exception("Failed to fetch overrides from " + uri + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Send a conditional GET and record the overrides it returned.
+     *
+     * @return the current overrides
+     */
+    private Map<String, String> request(URI target, Duration requestTimeout) throws IOException, InterruptedException {
+        String sentEtag;
+        synchronized (this) {
+            sentEtag = hasOverrides ? etag : null;
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target)
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET();
+        if (sentEtag != null) {
+            builder.header("If-None-Match", sentEtag);
+        }
+        HttpResponse<byte[]> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        if (response.statusCode() == 304) {
+            Metrics.getInstance().increment("http_not_modified");
+            return history.getSnapshot().getLevels();
+        }
+        if (response.statusCode() == 404) {
+            logger.debug("No overrides at {}", uri);
+            return record(Map.of(), null);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Unexpected HTTP status " + response.statusCode() + " from " + target);
+        }
+
+        Metrics.getInstance().increment("http_fetches");
+        Map<String, String> desiredLevels = parse(body(response));
+        return record(desiredLevels, response.headers().firstValue("ETag").orElse(null));
+    }
+
+    private synchronized Map<String, String> record(Map<String, String> desiredLevels, String responseEtag) {
+        etag = responseEtag;
+        hasOverrides = true;
+        return history.update(desiredLevels).getLevels();
+    }
+
+    private static byte[] body(HttpResponse<byte[]> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+            .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+            .orElse(false);
+        if (!gzip) {
+            return response.body();
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private Map<String, String> parse(byte[] body) throws IOException {
+        JsonNode root = mapper.readTree(body);
+        JsonNode loggersNode = root != null ? root.get("loggers") : null;
+        if (loggersNode == null || !loggersNode.isObject()) {
+            logger.debug("Response from {} does not contain a 'loggers' object", uri);
+            return LevelOverrides.EMPTY;
+        }
+
+        LevelOverrides.Builder desiredLevels = LevelOverrides.builder();
+        Iterator<Map.Entry<String, JsonNode>> fields = loggersNode.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String loggerName = field.getKey();
+            String level = field.getValue().asText();
+            String resolved = LogLevel.resolve(level);
+            if (resolved != null) {
+                desiredLevels.put(loggerName, resolved);
+            } else {
+                logger.warn("Invalid log level '{}' for logger '{}', skipping", level, loggerName);
+            }
+        }
+        logger.info("Loaded {} log level overrides from {}", desiredLevels.size(), uri);
+        return desiredLevels.build();
+    }
+
+    private synchronized void startLongPoll() {
+        if (longPollWait == null || longPoller != null || closed) {
+            return;
+        }
+        longPoller = new Thread(this::longPoll, "dynalog4j-http-long-poll");
+        longPoller.setDaemon(true);
+        longPoller.start();
+        logger.info("Long-polling {} with a wait of {}s", uri, longPollWait.toSeconds());
+    }
+
+    private void longPoll() {
+        URI longPollUri = withWait(uri, longPollWait);
+        while (!closed) {
+            try {
+                long before = history.getSnapshot().getVersion();
+                long started = System.nanoTime();
+                request(longPollUri, longPollWait.plus(LONG_POLL_GRACE));
+                longPollHealthy = true;
+                if (history.getSnapshot().getVersion() != before) {
+                    Metrics.getInstance().increment("http_long_poll_changes");
+                    Runnable listener = changeListener;
+                    if (listener != null) {
+                        listener.run();
+                    }
+                } else if (!hasEtag() || System.nanoTime() - started < LONG_POLL_MIN_DURATION.toNanos()) {
+                    // Without an ETag there is nothing to hold the request on, and a server ignoring the wait
+                    // answers right away; either way asking again at once would only hammer it
+                    Metrics.getInstance().increment("http_long_poll_early_returns");
+                    logger.debug("Long-poll of {} returned without being held, polling again in {}s",
+                               uri, LONG_POLL_RETRY_DELAY.toSeconds());
+                    Thread.sleep(LONG_POLL_RETRY_DELAY.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (HttpTimeoutException e) {
+                // The server held the request longer than it was asked to, fetches request the overrides
+                // themselves until a long-poll returns again
+                longPollHealthy = false;
+                logger.debug("Long-poll of {} timed out", uri);
+            } catch (Exception e) {
+                if (closed) {
+                    return;
+                }
+                longPollHealthy = false;
+                Metrics.getInstance().increment("http_long_poll_failures");
+                logger.warn("Long-poll of {} failed, retrying in {}s: {}", uri, LONG_POLL_RETRY_DELAY.toSeconds(), e.getMessage());
+                try {
+                    Thread.sleep(LONG_POLL_RETRY_DELAY.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized boolean hasEtag() {
+        return etag != null;
+    }
+
+    /**
+     * Add the wait query parameter to the endpoint, keeping its existing parameters.
+     */
+    static URI withWait(URI uri, Duration wait) {
+        String base = uri.toString().split("#", 2)[0];
+        return URI.create(base + (uri.getRawQuery() == null ? "?" : "&") + "wait=" + wait.toSeconds());
+    }
+
+    @Override
+    public VersionedLevels getSnapshot() {
+        return history.getSnapshot();
+    }
+
+    @Override
+    public LevelsDelta changesSince(long version) {
+        return history.changesSince(version);
+    }
+
+    @Override
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (longPoller != null) {
+                longPoller.interrupt();
+            }
+        }
+        // Aborts a long-poll held by the server instead of waiting for it
+        client.shutdownNow();
+    }
+}
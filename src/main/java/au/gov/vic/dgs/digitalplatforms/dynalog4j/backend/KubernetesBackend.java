@@ -0,0 +1,367 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Backend that reads log level overrides from an annotation on its own pod, so operators can change levels
+ * with {@code kubectl annotate pod <pod> dynalog4j/levels="com.example=DEBUG,root=WARN" --overwrite}.
+ * <p>
+ * The pod is read once through the Kubernetes API, then watched: every change to the annotation is pushed
+ * to the change listener as it happens, without polling and without the delay of a mounted ConfigMap. When
+ * the watch disconnects it resumes from the last resourceVersion seen, and the pod is read again when that
+ * version is too old for the API server to resume from.
+ * <p>
+ * The annotation holds {@code logger=LEVEL} pairs separated by commas or newlines. The service account of
+ * the pod needs permission to get and watch pods in its namespace.
+ */
+public class KubernetesBackend implements VersionedBackend {
+    private static final Logger logger = LoggerFactory.getLogger(KubernetesBackend.class);
+    static final String ANNOTATION = "dynalog4j/levels";
+    private static final Path SERVICE_ACCOUNT = Path.of("/var/run/secrets/kubernetes.io/serviceaccount");
+    // Watches are closed by the API server after this long and resumed, so a silently dead connection is replaced
+    private static final int WATCH_TIMEOUT_SECONDS = 300;
+    // Pause after a failed watch before it is resumed
+    static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final URI apiServer;
+    private final String namespace;
+    private final String podName;
+    // Token file re-read for every request, as projected service account tokens are rotated by the kubelet;
+    // null when the token is fixed
+    private final Path tokenFile;
+    private volatile String token;
+    private final HttpClient client;
+    private final Duration retryDelay;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LevelsHistory history = new LevelsHistory();
+
+    private volatile Runnable changeListener;
+    private volatile boolean closed;
+    private volatile boolean started;
+    private Thread watcher;
+    // Version of the pod the current levels were read from; only used by the watcher once it is started
+    private String resourceVersion;
+
+    /**
+     * Backend for the pod it runs in, using the pod's service account to reach the API server.
+     *
+     * @param podName name of the pod, e.g. from the downward API
+     * @param namespace namespace of the pod, or null to read it from the service account
+     */
+    public static KubernetesBackend inCluster(String podName, String namespace) throws IOException {
+        String host = System.getenv("KUBERNETES_SERVICE_HOST");
+        String port = System.getenv().getOrDefault("KUBERNETES_SERVICE_PORT", "443");
+        if (host == null) {
+            throw new IOException("KUBERNETES_SERVICE_HOST is not set, not running in a Kubernetes pod");
+        }
+        if (namespace == null) {
+            namespace = Files.readString(SERVICE_ACCOUNT.resolve("namespace")).trim();
+        }
+        String token = Files.readString(SERVICE_ACCOUNT.resolve("token")).trim();
+        SSLContext sslContext;
+        try {
+            sslContext = trusting(SERVICE_ACCOUNT.resolve("ca.crt"));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Unable to load the API server CA certificate: " + e.getMessage(), e);
+        }
+        String hostPort = host.contains(":") ? "[" + host + "]:" + port : host + ":" + port;
+        HttpClient client = HttpClient.newBuilder()
+                .sslContext(sslContext)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        return new KubernetesBackend(URI.create("https://" + hostPort), namespace, podName, token,
+                                     SERVICE_ACCOUNT.resolve("token"), client, RETRY_DELAY);
+    }
+
+    // Constructors for testing
+    KubernetesBackend(URI apiServer, String namespace, String podName, String token, HttpClient client, Duration retryDelay) {
+        this(apiServer, namespace, podName, token, null, client, retryDelay);
+    }
+
+    KubernetesBackend(URI apiServer, String namespace, String podName, Path tokenFile, HttpClient client, Duration retryDelay) {
+        this(apiServer, namespace, podName, null, tokenFile, client, retryDelay);
+    }
+
+    private KubernetesBackend(URI apiServer, String namespace, String podName, String token, Path tokenFile,
+                              HttpClient client, Duration retryDelay) {
+        if (podName == null || podName.isBlank()) {
+            throw new IllegalArgumentException("The Kubernetes backend needs the name of its pod");
+        }
+        this.apiServer = apiServer;
+        this.namespace = namespace;
+        this.podName = podName;
+        this.token = token;
+        this.tokenFile = tokenFile;
+        this.client = client;
+        this.retryDelay = retryDelay;
+    }
+
+    @Override
+    public Map<String, String> fetchDesiredLevels() throws Exception {
+        synchronized (this) {
+            if (!started) {
+                start();
+            }
+        }
+        return history.getSnapshot().getLevels();
+    }
+
+    /**
+     * Read the pod and start watching it from the version read.
+     */
+    private void start() throws Exception {
+        try {
+            readPod();
+        } catch (IOException e) {
+            logger.error("Error reading pod {}/{}: {}", namespace, podName, e.getMessage());
+            throw new Exception("Failed to read pod " + namespace + "/" + podName + ": " + e.getMessage(), e);
+        }
+        started = true;
+        logger.info("Watching annotation {} of pod {}/{}", ANNOTATION, namespace, podName);
+
+        watcher = new Thread(this::watch, "dynalog4j-kubernetes-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void readPod() throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(
+            request(apiServer.resolve(podPath())).timeout(Duration.ofSeconds(30)).build(),
+            HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Unexpected HTTP status " + response.statusCode() + " reading the pod");
+            }
+            apply(mapper.readTree(body));
+        }
+    }
+
+    private void watch() {
+        while (!closed) {
+            try {
+                if (resourceVersion == null) {
+                    Metrics.getInstance().increment("kubernetes_relists");
+                    readPod();
+                }
+                watchFrom(resourceVersion);
+                // The API server closed the watch after its timeout, resume from the last version
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (closed) {
+                    return;
+                }
+                Metrics.getInstance().increment("kubernetes_watch_failures");
+                logger.warn("Watch of pod {}/{} failed, resuming in {}s: {}", namespace, podName,
+                           retryDelay.toSeconds(), e.getMessage());
+                try {
+                    Thread.sleep(retryDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream the watch events of the pod from the given version until the API server closes the watch.
+     */
+    private void watchFrom(String version) throws IOException, InterruptedException {
+        String query = "fieldSelector=" + URLEncoder.encode("metadata.name=" + podName, StandardCharsets.UTF_8)
+            + "&watch=true&allowWatchBookmarks=true&timeoutSeconds=" + WATCH_TIMEOUT_SECONDS
+            + "&resourceVersion=" + URLEncoder.encode(version, StandardCharsets.UTF_8);
+        URI uri = apiServer.resolve("/api/v1/namespaces/" + namespace + "/pods?" + query);
+        HttpResponse<Stream<String>> response = client.send(request(uri).build(), HttpResponse.BodyHandlers.ofLines());
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() == 410) {
+                resourceVersion = null;
+                return;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("Unexpected HTTP status " + response.statusCode() + " watching the pod");
+            }
+            Metrics.getInstance().increment("kubernetes_watches");
+            Iterator<String> events = lines.iterator();
+            while (events.hasNext() && !closed) {
+                String line = events.next();
+                if (!line.isBlank() && !onEvent(mapper.readTree(line))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Handle a watch event.
+     *
+     * @return false when the watch has to be started again
+     * @throws IOException when the API server reported an error, so the watch is resumed after the retry delay
+     */
+    private boolean onEvent(JsonNode event) throws IOException {
+        String type = event.path("type").asText();
+        JsonNode object = event.path("object");
+        Metrics.getInstance().increment("kubernetes_watch_events");
+        switch (type) {
+            case "ADDED", "MODIFIED" -> apply(object);
+            case "BOOKMARK" -> resourceVersion = object.path("metadata").path("resourceVersion").asText(resourceVersion);
+            case "DELETED" -> {
+                logger.warn("Pod {}/{} was deleted, keeping its last overrides", namespace, podName);
+                resourceVersion = object.path("metadata").path("resourceVersion").asText(resourceVersion);
+            }
+            case "ERROR" -> {
+                // 410 Gone: the version is too old to resume from, the pod has to be read again
+                if (object.path("code").asInt() == 410) {
+                    logger.debug("Watch of pod {}/{} expired, reading the pod again", namespace, podName);
+                    resourceVersion = null;
+                    return false;
+                }
+                throw new IOException("Watch returned error " + object.path("code").asInt() + ": " + object.path("message").asText());
+            }
+            default -> logger.debug("Ignoring watch event of type {}", type);
+        }
+        return true;
+    }
+
+    /**
+     * Record the resourceVersion and the overrides of the annotation of a pod object, notifying the change
+     * listener when they changed.
+     */
+    private void apply(JsonNode pod) {
+        JsonNode metadata = pod.path("metadata");
+        resourceVersion = metadata.path("resourceVersion").asText(null);
+        JsonNode annotation = metadata.path("annotations").path(ANNOTATION);
+        Map<String, String> desiredLevels = parseLevels(annotation.isTextual() ? annotation.asText() : "");
+        long before = history.getSnapshot().getVersion();
+        VersionedLevels updated = history.update(desiredLevels);
+        if (updated.getVersion() != before && started) {
+            logger.info("Annotation {} of pod {}/{} changed: {} override(s)", ANNOTATION, namespace, podName, desiredLevels.size());
+            Runnable listener = changeListener;
+            if (listener != null) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * Parse {@code logger=LEVEL} pairs separated by commas or newlines, skipping invalid ones.
+     */
+    static Map<String, String> parseLevels(String annotation) {
+        LevelOverrides.Builder desiredLevels = LevelOverrides.builder();
+        for (String pair : annotation.split("[,\\n]")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            int separator = pair.indexOf('=');
+            String loggerName = separator > 0 ? pair.substring(0, separator).trim() : "";
+            String level = separator > 0 ? pair.substring(separator + 1).trim() : "";
+            String resolved = LogLevel.resolve(level);
+            if (!loggerName.isEmpty() && resolved != null) {
+                desiredLevels.put(loggerName, resolved);
+            } else {
+                logger.warn("Invalid override '{}' in annotation {}, skipping", pair.trim(), ANNOTATION);
+            }
+        }
+        return desiredLevels.build();
+    }
+
+    private HttpRequest.Builder request(URI uri) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .header("Accept", "application/json")
+                .GET();
+        String bearer = token();
+        if (bearer != null) {
+            builder.header("Authorization", "Bearer " + bearer);
+        }
+        return builder;
+    }
+
+    /**
+     * The service account token, read again from its file. Requests are few, a pod read on start and a watch
+     * every few minutes, so the file is read for each rather than on a schedule.
+     */
+    private String token() {
+        if (tokenFile != null) {
+            try {
+                token = Files.readString(tokenFile).trim();
+            } catch (IOException e) {
+                logger.warn("Unable to read service account token {}, using the last one read: {}", tokenFile, e.getMessage());
+            }
+        }
+        return token;
+    }
+
+    private String podPath() {
+        return "/api/v1/namespaces/" + namespace + "/pods/" + podName;
+    }
+
+    private static SSLContext trusting(Path caCertificate) throws IOException, GeneralSecurityException {
+        KeyStore trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        trustStore.load(null, null);
+        try (InputStream in = Files.newInputStream(caCertificate)) {
+            int index = 0;
+            for (Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(in)) {
+                trustStore.setCertificateEntry("ca-" + index++, certificate);
+            }
+        }
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(trustStore);
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, trustManagers.getTrustManagers(), null);
+        return sslContext;
+    }
+
+    @Override
+    public VersionedLevels getSnapshot() {
+        return history.getSnapshot();
+    }
+
+    @Override
+    public LevelsDelta changesSince(long version) {
+        return history.changesSince(version);
+    }
+
+    @Override
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (watcher != null) {
+                watcher.interrupt();
+            }
+        }
+        // Aborts the watch held open by the API server
+        client.shutdownNow();
+    }
+}
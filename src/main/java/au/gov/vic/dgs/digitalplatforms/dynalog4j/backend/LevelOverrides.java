@@ -0,0 +1,199 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable log level overrides, logger name to level, as returned by the backends.
+ * <p>
+ * Logger names are interned, so the overrides of successive fetches share their name strings, levels are the
+ * names resolved by {@link LogLevel}, and the hash code is computed once. Comparing two instances is only
+ * cheap when it can be decided without the entries: the same instance is equal, and overrides with different
+ * hash codes are not. Otherwise, in particular for equal overrides in separate instances, every entry is
+ * compared, although the shared strings make each comparison a reference check. Backends that return the
+ * same instance for as long as their overrides do not change therefore avoid that walk.
+ */
+public final class LevelOverrides extends AbstractMap<String, String> {
+    public static final LevelOverrides EMPTY = new LevelOverrides(Map.of());
+
+    // Bound on the interned names, should a backend return ever-changing logger names
+    static final int MAX_INTERNED_NAMES = 10_000;
+    private static final Map<String, String> NAMES = new ConcurrentHashMap<>();
+
+    private final Map<String, String> levels;
+    private final int hash;
+
+    private LevelOverrides(Map<String, String> levels) {
+        this.levels = levels;
+        this.hash = levels.hashCode();
+    }
+
+    /**
+     * The given overrides as level overrides, returning them as they are when they already are.
+     */
+    public static LevelOverrides copyOf(Map<String, String> levels) {
+        if (levels instanceof LevelOverrides overrides) {
+            return overrides;
+        }
+        if (levels.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, String> copy = new HashMap<>(levels.size() * 2);
+        for (Map.Entry<String, String> entry : levels.entrySet()) {
+            String level = entry.getValue();
+            String resolved = LogLevel.resolve(level);
+            copy.put(intern(entry.getKey()), resolved != null && resolved.equals(level) ? resolved : level);
+        }
+        return new LevelOverrides(Map.copyOf(copy));
+    }
+
+    public static Builder builder() {
+        return new Builder(Map.of());
+    }
+
+    /**
+     * A builder starting from these overrides.
+     */
+    public Builder toBuilder() {
+        return new Builder(levels);
+    }
+
+    /**
+     * The given overrides without the ones that expired at the given time, the same instance when none did.
+     */
+    static LevelOverrides withoutExpired(Map<String, String> levels, Map<String, Instant> expiries, Instant now) {
+        Builder unexpired = null;
+        for (Map.Entry<String, Instant> expiry : expiries.entrySet()) {
+            if (!expiry.getValue().isAfter(now) && levels.containsKey(expiry.getKey())) {
+                if (unexpired == null) {
+                    unexpired = copyOf(levels).toBuilder();
+                }
+                unexpired.remove(expiry.getKey());
+            }
+        }
+        return unexpired != null ? unexpired.build() : copyOf(levels);
+    }
+
+    /**
+     * The expiries of the given overrides, the same instance when they all still have their override.
+     */
+    static Map<String, Instant> expiriesOf(Map<String, String> levels, Map<String, Instant> expiries) {
+        if (levels.keySet().containsAll(expiries.keySet())) {
+            return Map.copyOf(expiries);
+        }
+        Map<String, Instant> result = new HashMap<>(expiries);
+        result.keySet().retainAll(levels.keySet());
+        return Map.copyOf(result);
+    }
+
+    /**
+     * The shared instance of a logger name.
+     */
+    static String intern(String loggerName) {
+        String interned = NAMES.get(loggerName);
+        if (interned != null) {
+            return interned;
+        }
+        if (NAMES.size() >= MAX_INTERNED_NAMES) {
+            return loggerName;
+        }
+        interned = NAMES.putIfAbsent(loggerName, loggerName);
+        return interned != null ? interned : loggerName;
+    }
+
+    @Override
+    public String get(Object key) {
+        return levels.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return levels.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return levels.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return levels.isEmpty();
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return levels.entrySet();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return levels.keySet();
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Map equality, short-cut by identity and by the cached hash codes; equal overrides in separate instances
+     * still compare every entry.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof LevelOverrides other) {
+            return hash == other.hash && levels.equals(other.levels);
+        }
+        return levels.equals(o);
+    }
+
+    @Override
+    public String toString() {
+        return levels.toString();
+    }
+
+    /**
+     * Collects the valid overrides a backend reads.
+     */
+    public static final class Builder {
+        private final Map<String, String> levels;
+
+        private Builder(Map<String, String> initial) {
+            this.levels = new HashMap<>(initial);
+        }
+
+        public Builder put(String loggerName, LogLevel level) {
+            levels.put(intern(loggerName), level.name());
+            return this;
+        }
+
+        /**
+         * Add an override with a level resolved by {@link LogLevel#resolve}.
+         */
+        public Builder put(String loggerName, String level) {
+            levels.put(intern(loggerName), level);
+            return this;
+        }
+
+        public Builder remove(String loggerName) {
+            levels.remove(loggerName);
+            return this;
+        }
+
+        public int size() {
+            return levels.size();
+        }
+
+        public LevelOverrides build() {
+            return levels.isEmpty() ? EMPTY : new LevelOverrides(Map.copyOf(levels));
+        }
+    }
+}
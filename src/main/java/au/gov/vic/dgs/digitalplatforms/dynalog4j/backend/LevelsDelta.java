@@ -0,0 +1,69 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes to the desired levels between two versions.
+ * <p>
+ * A full delta lists every desired level as changed and replaces whatever the consumer had; it is returned
+ * when the changes since the requested version are no longer known.
+ */
+public final class LevelsDelta {
+    private final long fromVersion;
+    private final long toVersion;
+    private final Map<String, String> changed;
+    private final Set<String> removed;
+    private final boolean full;
+
+    LevelsDelta(long fromVersion, long toVersion, Map<String, String> changed, Set<String> removed, boolean full) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.changed = Map.copyOf(changed);
+        this.removed = Set.copyOf(removed);
+        this.full = full;
+    }
+
+    /**
+     * Delta replacing everything with the given levels.
+     */
+    static LevelsDelta full(long fromVersion, VersionedLevels levels) {
+        return new LevelsDelta(fromVersion, levels.getVersion(), levels.getLevels(), Set.of(), true);
+    }
+
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    public long getToVersion() {
+        return toVersion;
+    }
+
+    /**
+     * Loggers added or given another level, with their new level.
+     */
+    public Map<String, String> getChanged() {
+        return changed;
+    }
+
+    /**
+     * Loggers whose override was removed.
+     */
+    public Set<String> getRemoved() {
+        return removed;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public boolean isEmpty() {
+        return !full && changed.isEmpty() && removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "LevelsDelta{" + fromVersion + "->" + toVersion + ", changed=" + changed.size()
+            + ", removed=" + removed.size() + (full ? ", full" : "") + "}";
+    }
+}
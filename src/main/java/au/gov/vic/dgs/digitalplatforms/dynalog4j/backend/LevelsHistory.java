@@ -0,0 +1,111 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Versions successive desired levels and keeps the recent changes between them, so deltas can be returned
+ * for versions a consumer last saw.
+ * <p>
+ * The version moves only when the levels change. The deltas of the last few versions are kept; changes
+ * since an older version are returned as a full delta.
+ */
+public final class LevelsHistory {
+    // Deltas kept for consumers that fall behind; the reconciler is normally a single version behind
+    static final int MAX_DELTAS = 32;
+
+    private VersionedLevels current = new VersionedLevels(0, Map.of());
+    // Delta from each version to the next, oldest first
+    private final Deque<LevelsDelta> deltas = new ArrayDeque<>();
+
+    /**
+     * Record the levels of a fetch, moving the version if they differ from the current ones.
+     *
+     * @return the current levels
+     */
+    public VersionedLevels update(Map<String, String> levels) {
+        return update(levels, false);
+    }
+
+    /**
+     * Record the levels of a fetch, using the backend's knowledge that its source did not change to avoid
+     * comparing the levels entry by entry. Levels from an unchanged source can only lose overrides that
+     * expired, so they are unchanged when they have as many entries as the current ones.
+     *
+     * @param sourceUnchanged whether the backend read the levels from the same source as the current ones
+     * @return the current levels
+     */
+    public synchronized VersionedLevels update(Map<String, String> levels, boolean sourceUnchanged) {
+        Map<String, String> previous = current.getLevels();
+        // The levels returned by the last update, passed back by a backend whose overrides did not change
+        if (levels == previous || (sourceUnchanged && levels.size() == previous.size())) {
+            return current;
+        }
+        // Both sides have their hash precomputed, so differing levels are told apart without comparing entries
+        LevelOverrides overrides = LevelOverrides.copyOf(levels);
+        if (overrides.equals(previous)) {
+            return current;
+        }
+
+        Map<String, String> changed = new HashMap<>();
+        for (Map.Entry<String, String> entry : overrides.entrySet()) {
+            if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Set<String> removed = new HashSet<>();
+        if (overrides.size() - changed.size() < previous.size()) {
+            for (String loggerName : previous.keySet()) {
+                if (!overrides.containsKey(loggerName)) {
+                    removed.add(loggerName);
+                }
+            }
+        }
+
+        long version = current.getVersion() + 1;
+        deltas.addLast(new LevelsDelta(current.getVersion(), version, changed, removed, false));
+        if (deltas.size() > MAX_DELTAS) {
+            deltas.removeFirst();
+        }
+        current = new VersionedLevels(version, overrides);
+        return current;
+    }
+
+    public synchronized VersionedLevels getSnapshot() {
+        return current;
+    }
+
+    /**
+     * What changed between the given version and the current levels.
+     *
+     * @return the changes, full if the version is unknown or older than the deltas kept
+     */
+    public synchronized LevelsDelta changesSince(long version) {
+        if (version == current.getVersion()) {
+            return new LevelsDelta(version, version, Map.of(), Set.of(), false);
+        }
+        if (version < 0 || version > current.getVersion() || deltas.isEmpty()
+                || deltas.peekFirst().getFromVersion() > version) {
+            return LevelsDelta.full(version, current);
+        }
+
+        Map<String, String> changed = new HashMap<>();
+        Set<String> removed = new HashSet<>();
+        for (LevelsDelta delta : deltas) {
+            if (delta.getFromVersion() < version) {
+                continue;
+            }
+            changed.putAll(delta.getChanged());
+            removed.removeAll(delta.getChanged().keySet());
+            changed.keySet().removeAll(delta.getRemoved());
+            removed.addAll(delta.getRemoved());
+        }
+        // A logger set back to the level it had at the given version still shows as changed; applying it
+        // again is harmless and keeps this proportional to the deltas rather than to the levels
+        return new LevelsDelta(version, current.getVersion(), changed, removed, false);
+    }
+}
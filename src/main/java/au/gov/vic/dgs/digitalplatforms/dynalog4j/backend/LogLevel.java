@@ -0,0 +1,94 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Levels an override can set. Backends parse the levels they read into these constants, so validating and
+ * normalising a level does not allocate, and the overrides they return share the constant level names.
+ * <p>
+ * Custom Log4j2 levels the target declares are registered once with {@link #registerCustomLevels}, and are
+ * then resolved by {@link #resolve} like the standard levels, to a single shared name each.
+ */
+public enum LogLevel {
+    OFF, FATAL, ERROR, WARN, INFO, DEBUG, TRACE;
+
+    // Longest level name; longer strings cannot be a level in any case
+    private static final int MAX_NAME_LENGTH = 5;
+    // Upper and lower case spellings, the ones backends normally read, looked up without converting case
+    private static final Map<String, LogLevel> BY_NAME;
+    // Log4j2 accepts level names of letters, digits and underscores
+    private static final Pattern CUSTOM_LEVEL_NAME = Pattern.compile("[A-Za-z][A-Za-z0-9_]*");
+
+    // Upper case name of each registered custom level, keyed by its upper and lower case spellings
+    private static volatile Map<String, String> customLevels = Map.of();
+
+    static {
+        Map<String, LogLevel> byName = new HashMap<>();
+        for (LogLevel level : values()) {
+            byName.put(level.name(), level);
+            byName.put(level.name().toLowerCase(Locale.ROOT), level);
+        }
+        BY_NAME = Map.copyOf(byName);
+    }
+
+    /**
+     * Parse a standard level name in any case.
+     *
+     * @return the level, or null when the name is not a standard level
+     */
+    public static LogLevel parse(String name) {
+        if (name == null) {
+            return null;
+        }
+        LogLevel level = BY_NAME.get(name);
+        if (level == null && name.length() <= MAX_NAME_LENGTH) {
+            level = BY_NAME.get(name.toUpperCase(Locale.ROOT));
+        }
+        return level;
+    }
+
+    /**
+     * Resolve a level name in any case, standard or registered custom level, to its shared upper case name.
+     *
+     * @return the level name, or null when the name is not a known level
+     */
+    public static String resolve(String name) {
+        LogLevel level = parse(name);
+        if (level != null) {
+            return level.name();
+        }
+        if (name == null) {
+            return null;
+        }
+        Map<String, String> custom = customLevels;
+        if (custom.isEmpty()) {
+            return null;
+        }
+        String resolved = custom.get(name);
+        return resolved != null ? resolved : custom.get(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Register the custom levels declared by the target, replacing those registered before. Names that are
+     * standard levels or not valid level names are ignored.
+     *
+     * @return the number of custom levels registered
+     */
+    public static int registerCustomLevels(Collection<String> names) {
+        Map<String, String> custom = new HashMap<>();
+        for (String name : names) {
+            if (name == null || parse(name) != null || !CUSTOM_LEVEL_NAME.matcher(name).matches()) {
+                continue;
+            }
+            String upperCase = name.toUpperCase(Locale.ROOT);
+            custom.put(upperCase, upperCase);
+            custom.put(name.toLowerCase(Locale.ROOT), upperCase);
+        }
+        customLevels = Map.copyOf(custom);
+        return custom.size() / 2;
+    }
+}
@@ -0,0 +1,141 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Overrides fetched from a backend, stored in a local file so they can be applied without the backend.
+ * <p>
+ * The file holds a magic number, the format version, the time the overrides were fetched, the overrides
+ * with their expiry, and a CRC32 of everything before it. It is written to a temporary file that is synced
+ * and then atomically moved into place, so a crash leaves either the previous or the new snapshot.
+ */
+public final class OverrideSnapshot {
+    private static final int MAGIC = 0x444c3453; // "DL4S"
+    static final int FORMAT_VERSION = 1;
+    // Expiry written for overrides that do not expire
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+
+    private final Map<String, String> levels;
+    private final Map<String, Instant> expiries;
+    private final Instant fetchedAt;
+
+    public OverrideSnapshot(Map<String, String> levels, Map<String, Instant> expiries, Instant fetchedAt) {
+        this.levels = LevelOverrides.copyOf(levels);
+        this.expiries = Map.copyOf(expiries);
+        this.fetchedAt = fetchedAt;
+    }
+
+    public Map<String, String> getLevels() {
+        return levels;
+    }
+
+    public Map<String, Instant> getExpiries() {
+        return expiries;
+    }
+
+    public Instant getFetchedAt() {
+        return fetchedAt;
+    }
+
+    /**
+     * Whether the snapshot holds the same overrides as the given ones.
+     */
+    boolean hasOverrides(Map<String, String> levels, Map<String, Instant> expiries) {
+        return this.levels.equals(levels) && this.expiries.equals(expiries);
+    }
+
+    /**
+     * Atomically replace the file with this snapshot.
+     */
+    public void writeTo(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(fetchedAt.toEpochMilli());
+            out.writeInt(levels.size());
+            for (Map.Entry<String, String> override : levels.entrySet()) {
+                out.writeUTF(override.getKey());
+                out.writeUTF(override.getValue());
+                Instant expiry = expiries.get(override.getKey());
+                out.writeLong(expiry != null ? expiry.getEpochSecond() : NO_EXPIRY);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read a snapshot written by {@link #writeTo}.
+     *
+     * @throws IOException if the file cannot be read, has another format version or fails its checksum
+     */
+    public static OverrideSnapshot readFrom(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < Long.BYTES) {
+            throw new IOException("Snapshot " + file + " is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Long.BYTES);
+        long checksum = ByteBuffer.wrap(bytes, bytes.length - Long.BYTES, Long.BYTES).getLong();
+        if (crc.getValue() != checksum) {
+            throw new IOException("Snapshot " + file + " fails its checksum");
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - Long.BYTES)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("File " + file + " is not an override snapshot");
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Snapshot " + file + " has unsupported format version " + version);
+            }
+            Instant fetchedAt = Instant.ofEpochMilli(in.readLong());
+            int count = in.readInt();
+            Map<String, String> levels = new HashMap<>();
+            Map<String, Instant> expiries = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String loggerName = in.readUTF();
+                levels.put(loggerName, in.readUTF());
+                long expiry = in.readLong();
+                if (expiry != NO_EXPIRY) {
+                    expiries.put(loggerName, Instant.ofEpochSecond(expiry));
+                }
+            }
+            return new OverrideSnapshot(levels, expiries, fetchedAt);
+        }
+    }
+}
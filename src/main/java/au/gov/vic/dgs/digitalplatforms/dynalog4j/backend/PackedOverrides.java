@@ -0,0 +1,110 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding of a service's whole override set in the "overrides" attribute of its packed item.
+ * <p>
+ * The attribute holds the same "loggers" object as the file backend, as a JSON string or, when compressed,
+ * as gzip-compressed JSON in a binary attribute. An override is either a level, or an object with a level
+ * and a ttl (Unix timestamp in seconds):
+ * <pre>
+ * {"loggers": {"root": "WARN", "com.example.Debug": {"level": "DEBUG", "ttl": 1767225600}}}
+ * </pre>
+ */
+public final class PackedOverrides {
+    static final String ATTRIBUTE = "overrides";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private PackedOverrides() {
+    }
+
+    /**
+     * Encode the overrides as the value of the "overrides" attribute.
+     *
+     * @param expiries expiry of the overrides that have one
+     * @param compress whether to store gzip-compressed JSON in a binary attribute instead of a JSON string
+     */
+    public static AttributeValue encode(Map<String, String> levels, Map<String, Instant> expiries, boolean compress)
+            throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode loggers = root.putObject("loggers");
+        // Sorted so that the same overrides always encode to the same item
+        for (Map.Entry<String, String> override : new TreeMap<>(levels).entrySet()) {
+            Instant expiry = expiries.get(override.getKey());
+            if (expiry == null) {
+                loggers.put(override.getKey(), override.getValue());
+            } else {
+                loggers.putObject(override.getKey())
+                    .put("level", override.getValue())
+                    .put("ttl", expiry.getEpochSecond());
+            }
+        }
+
+        byte[] json = mapper.writeValueAsBytes(root);
+        if (!compress) {
+            return AttributeValue.builder().s(new String(json, StandardCharsets.UTF_8)).build();
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        }
+        return AttributeValue.builder().b(SdkBytes.fromByteArray(compressed.toByteArray())).build();
+    }
+
+    /**
+     * Decode the value of the "overrides" attribute into the given maps, with the same validation and ttl
+     * handling as per-logger items.
+     *
+     * @throws IOException if the value is not a valid packed override set
+     */
+    public static void decode(AttributeValue value, Map<String, String> desiredLevels, Map<String, Instant> expiries)
+            throws IOException {
+        JsonNode root;
+        if (value.b() != null) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(value.b().asByteArray()))) {
+                root = mapper.readTree(in);
+            }
+        } else if (value.s() != null) {
+            root = mapper.readTree(value.s());
+        } else {
+            throw new IOException("Packed overrides must be a string or binary attribute");
+        }
+
+        JsonNode loggers = root.get("loggers");
+        if (loggers == null || !loggers.isObject()) {
+            throw new IOException("Packed overrides do not contain a 'loggers' object");
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = loggers.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode override = field.getValue();
+            if (override.isObject()) {
+                JsonNode ttl = override.get("ttl");
+                DynamoDBOverridesReader.parseOverride(field.getKey(), override.path("level").asText(null),
+                    ttl != null && !ttl.isNull() ? ttl.asText() : null, desiredLevels, expiries);
+            } else {
+                DynamoDBOverridesReader.parseOverride(field.getKey(), override.asText(null), null, desiredLevels, expiries);
+            }
+        }
+    }
+}
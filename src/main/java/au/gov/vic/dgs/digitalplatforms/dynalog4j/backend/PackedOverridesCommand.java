@@ -0,0 +1,257 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Operator command that converts a service's overrides between per-logger items and the packed item.
+ * <p>
+ * While the packed item exists, backends with the packed layout enabled read it alone and ignore the
+ * per-logger items. The conversions keep the overrides in effect unchanged:
+ * <ul>
+ *   <li>pack writes the valid, unexpired per-logger items into the packed item, which takes effect at once,
+ *       and then optionally deletes the per-logger items. An existing packed item is only replaced with
+ *       --force, as its overrides are the ones in effect.</li>
+ *   <li>unpack makes the per-logger items match the packed item, writing its overrides and deleting the
+ *       other per-logger items, and then deletes the packed item.</li>
+ * </ul>
+ * Both bump the service's version item so that backends with the version check read the new overrides.
+ */
+@Command(name = "dynalog4j-packed-overrides",
+         description = "Convert a service's DynamoDB log level overrides between per-logger items and the packed item",
+         mixinStandardHelpOptions = true)
+public class PackedOverridesCommand implements Callable<Integer> {
+    // DynamoDB's item size limit
+    private static final int MAX_ITEM_BYTES = 400 * 1024;
+
+    enum Action { pack, unpack }
+
+    @Parameters(index = "0", description = "pack: per-logger items to the packed item, unpack: packed item to per-logger items")
+    private Action action;
+
+    @Option(names = {"--table-name"},
+            description = "DynamoDB table name (default: ${DEFAULT-VALUE})")
+    private String tableName = getEnvOrDefault("DYNAMO_TABLE_NAME", "log-levels");
+
+    @Option(names = {"--service-name"},
+            description = "Service name (default: ${DEFAULT-VALUE})")
+    private String serviceName = getEnvOrDefault("SERVICE_NAME", "default");
+
+    @Option(names = {"--compress"},
+            description = "pack: store the overrides as gzip-compressed JSON")
+    private boolean compress;
+
+    @Option(names = {"--delete-items"},
+            description = "pack: delete the per-logger items once the packed item is written")
+    private boolean deleteItems;
+
+    @Option(names = {"--force"},
+            description = "pack: replace an existing packed item")
+    private boolean force;
+
+    private final DynamoDbClientWrapper dynamoDbClient;
+
+    public PackedOverridesCommand() {
+        this(null);
+    }
+
+    // Constructor for testing
+    PackedOverridesCommand(DynamoDbClientWrapper dynamoDbClient) {
+        this.dynamoDbClient = dynamoDbClient;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new PackedOverridesCommand()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        if (dynamoDbClient != null) {
+            return run(dynamoDbClient);
+        }
+        try (DynamoDbClient awsClient = DynamoDbClient.builder()
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .build()) {
+            return run(new DefaultDynamoDbClientWrapper(awsClient));
+        }
+    }
+
+    private int run(DynamoDbClientWrapper client) throws IOException {
+        return action == Action.pack ? pack(client) : unpack(client);
+    }
+
+    private int pack(DynamoDbClientWrapper client) throws IOException {
+        Map<String, AttributeValue> existing = readPackedItem(client);
+        if (existing != null && !force) {
+            System.err.printf("Service %s already has a packed item, which defines its overrides; use --force to replace it%n",
+                              serviceName);
+            return 1;
+        }
+
+        DynamoDBOverridesReader.Read read = new DynamoDBBackend(DynamoDBBackend.Settings.of(tableName, serviceName), client)
+            .queryOverrides(serviceName, true);
+        Map<String, String> levels = read.levels();
+        Map<String, Instant> expiries = read.expiries();
+        AttributeValue overrides = PackedOverrides.encode(levels, expiries, compress);
+        int size = overrides.b() != null
+            ? overrides.b().asByteArray().length
+            : overrides.s().getBytes(StandardCharsets.UTF_8).length;
+        if (size > MAX_ITEM_BYTES) {
+            System.err.printf("Packed overrides of service %s take %d bytes, more than the %d bytes a DynamoDB item can hold%s%n",
+                              serviceName, size, MAX_ITEM_BYTES, compress ? "" : "; try --compress");
+            return 1;
+        }
+
+        long version = 1;
+        if (existing != null && existing.get("version") != null && existing.get("version").n() != null) {
+            version = Long.parseLong(existing.get("version").n()) + 1;
+        }
+        client.putItem(PutItemRequest.builder()
+            .tableName(tableName)
+            .item(Map.of(
+                "service", AttributeValue.builder().s(serviceName).build(),
+                "logger", AttributeValue.builder().s(DynamoDBBackend.PACKED_ITEM_LOGGER).build(),
+                PackedOverrides.ATTRIBUTE, overrides,
+                "version", AttributeValue.builder().n(Long.toString(version)).build()
+            ))
+            .build());
+        System.out.printf("Packed %d overrides of service %s into the packed item (%d bytes, version %d)%n",
+                          levels.size(), serviceName, size, version);
+
+        if (deleteItems) {
+            Set<String> loggerNames = queryLoggerNames(client);
+            for (String loggerName : loggerNames) {
+                deleteItem(client, loggerName);
+            }
+            System.out.printf("Deleted %d per-logger items%n", loggerNames.size());
+        }
+        bumpVersion(client);
+        return 0;
+    }
+
+    private int unpack(DynamoDbClientWrapper client) throws IOException {
+        Map<String, AttributeValue> existing = readPackedItem(client);
+        if (existing == null || existing.get(PackedOverrides.ATTRIBUTE) == null) {
+            System.err.printf("Service %s has no packed item%n", serviceName);
+            return 1;
+        }
+
+        Map<String, String> levels = new HashMap<>();
+        Map<String, Instant> expiries = new HashMap<>();
+        PackedOverrides.decode(existing.get(PackedOverrides.ATTRIBUTE), levels, expiries);
+
+        // Per-logger items are ignored while the packed item exists, so none of this takes effect before it is deleted
+        Set<String> staleLoggerNames = queryLoggerNames(client);
+        staleLoggerNames.removeAll(levels.keySet());
+        for (Map.Entry<String, String> override : levels.entrySet()) {
+            Map<String, AttributeValue> item = new HashMap<>();
+            item.put("service", AttributeValue.builder().s(serviceName).build());
+            item.put("logger", AttributeValue.builder().s(override.getKey()).build());
+            item.put("level", AttributeValue.builder().s(override.getValue()).build());
+            Instant expiry = expiries.get(override.getKey());
+            if (expiry != null) {
+                item.put("ttl", AttributeValue.builder().n(Long.toString(expiry.getEpochSecond())).build());
+            }
+            client.putItem(PutItemRequest.builder().tableName(tableName).item(item).build());
+        }
+        for (String loggerName : staleLoggerNames) {
+            deleteItem(client, loggerName);
+        }
+        deleteItem(client, DynamoDBBackend.PACKED_ITEM_LOGGER);
+        bumpVersion(client);
+
+        System.out.printf("Unpacked %d overrides of service %s into per-logger items, deleted %d per-logger items not in the packed item%n",
+                          levels.size(), serviceName, staleLoggerNames.size());
+        return 0;
+    }
+
+    private Map<String, AttributeValue> readPackedItem(DynamoDbClientWrapper client) {
+        GetItemResponse response = client.getItem(GetItemRequest.builder()
+            .tableName(tableName)
+            .key(key(DynamoDBBackend.PACKED_ITEM_LOGGER))
+            .consistentRead(true)
+            .build());
+        return response.hasItem() && !response.item().isEmpty() ? response.item() : null;
+    }
+
+    /**
+     * Names of all per-logger items of the service, valid or not.
+     */
+    private Set<String> queryLoggerNames(DynamoDbClientWrapper client) {
+        QueryRequest request = QueryRequest.builder()
+            .tableName(tableName)
+            .keyConditionExpression("service = :service")
+            .expressionAttributeValues(Map.of(":service", AttributeValue.builder().s(serviceName).build()))
+            .projectionExpression("#logger")
+            .expressionAttributeNames(Map.of("#logger", "logger"))
+            .consistentRead(true)
+            .build();
+
+        Set<String> loggerNames = new LinkedHashSet<>();
+        QueryResponse response;
+        do {
+            response = client.query(request);
+            if (response.hasItems()) {
+                for (Map<String, AttributeValue> item : response.items()) {
+                    AttributeValue loggerAttribute = item.get("logger");
+                    if (loggerAttribute != null && loggerAttribute.s() != null
+                            && !DynamoDBOverridesReader.isReservedLogger(loggerAttribute.s())) {
+                        loggerNames.add(loggerAttribute.s());
+                    }
+                }
+            }
+            if (response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()) {
+                request = request.toBuilder().exclusiveStartKey(response.lastEvaluatedKey()).build();
+            }
+        } while (response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty());
+        return loggerNames;
+    }
+
+    private void deleteItem(DynamoDbClientWrapper client, String loggerName) {
+        client.deleteItem(DeleteItemRequest.builder().tableName(tableName).key(key(loggerName)).build());
+    }
+
+    private void bumpVersion(DynamoDbClientWrapper client) {
+        client.updateItem(UpdateItemRequest.builder()
+            .tableName(tableName)
+            .key(key(DynamoDBBackend.VERSION_ITEM_LOGGER))
+            .updateExpression("ADD #version :one")
+            .expressionAttributeNames(Map.of("#version", "version"))
+            .expressionAttributeValues(Map.of(":one", AttributeValue.builder().n("1").build()))
+            .build());
+    }
+
+    private Map<String, AttributeValue> key(String loggerName) {
+        return Map.of(
+            "service", AttributeValue.builder().s(serviceName).build(),
+            "logger", AttributeValue.builder().s(loggerName).build()
+        );
+    }
+
+    private static String getEnvOrDefault(String envVar, String defaultValue) {
+        String value = System.getenv(envVar);
+        return value != null ? value : defaultValue;
+    }
+}
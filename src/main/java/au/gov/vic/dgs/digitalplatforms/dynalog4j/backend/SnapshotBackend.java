@@ -0,0 +1,236 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Backend decorator that keeps the last overrides fetched from the backend in a local
+ * {@link OverrideSnapshot} file.
+ * <p>
+ * The snapshot is loaded on startup and returned by the first fetch, so the overrides are applied without
+ * waiting on the backend, and an immediate fetch from the backend is requested right after. While the
+ * backend fails, the snapshot is returned instead, without the overrides that expired since. The file is
+ * rewritten after a successful fetch when the overrides changed, or at least every few minutes so its age
+ * reflects the last time the backend confirmed them.
+ */
+public class SnapshotBackend implements Backend {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotBackend.class);
+    // Unchanged overrides are written again after this long, to keep the fetch time in the file current
+    static final Duration REFRESH_INTERVAL = Duration.ofMinutes(5);
+
+    private final Backend delegate;
+    private final Path file;
+    // Last snapshot written or loaded, null when there is none
+    private volatile OverrideSnapshot snapshot;
+    // Set until the loaded snapshot has been returned by the first fetch
+    private volatile boolean serveLoadedSnapshot;
+    // Whether the last overrides returned were fetched from the backend rather than read from the snapshot
+    private volatile boolean lastFetched;
+    private volatile Map<String, Instant> expiries = Map.of();
+    private volatile Runnable changeListener = () -> { };
+
+    SnapshotBackend(Backend delegate, Path file) {
+        this.delegate = delegate;
+        this.file = file;
+        this.snapshot = load(file);
+        this.serveLoadedSnapshot = snapshot != null;
+        Metrics.getInstance().gauge("snapshot_age_seconds", () -> {
+            OverrideSnapshot current = snapshot;
+            return current != null ? Duration.between(current.getFetchedAt(), Instant.now()).toSeconds() : -1;
+        });
+    }
+
+    /**
+     * Wrap a backend with a snapshot stored in the given file, keeping it asynchronous if it is.
+     */
+    public static Backend wrap(Backend delegate, Path file) {
+        if (delegate instanceof AsyncBackend asyncDelegate) {
+            return new Async(asyncDelegate, file);
+        }
+        return new SnapshotBackend(delegate, file);
+    }
+
+    @Override
+    public Map<String, String> fetchDesiredLevels() throws Exception {
+        Map<String, String> loaded = takeLoadedSnapshot();
+        if (loaded != null) {
+            return loaded;
+        }
+        Map<String, String> desiredLevels;
+        try {
+            desiredLevels = delegate.fetchDesiredLevels();
+        } catch (Exception e) {
+            return fallback(e);
+        }
+        return fetched(desiredLevels);
+    }
+
+    /**
+     * The overrides of the snapshot loaded on startup, the first time this is called, or null.
+     */
+    Map<String, String> takeLoadedSnapshot() {
+        if (!serveLoadedSnapshot) {
+            return null;
+        }
+        serveLoadedSnapshot = false;
+        lastFetched = false;
+        Map<String, String> desiredLevels = fromSnapshot(snapshot);
+        logger.info("Applying {} log level overrides from snapshot {} fetched at {}, then fetching from the backend",
+                   desiredLevels.size(), file, snapshot.getFetchedAt());
+        // Run the next cycle right away so the backend's current overrides replace the snapshot
+        changeListener.run();
+        return desiredLevels;
+    }
+
+    /**
+     * Record overrides fetched from the backend, writing them to the snapshot file if needed.
+     */
+    synchronized Map<String, String> fetched(Map<String, String> desiredLevels) {
+        // A successful fetch supersedes the loaded snapshot even if it was not served yet
+        serveLoadedSnapshot = false;
+        lastFetched = true;
+        Map<String, Instant> fetchedExpiries = delegate.getExpiries() != null ? delegate.getExpiries() : Map.of();
+        expiries = fetchedExpiries;
+
+        Instant now = Instant.now();
+        OverrideSnapshot current = snapshot;
+        if (current == null || !current.hasOverrides(desiredLevels, fetchedExpiries)
+                || current.getFetchedAt().plus(REFRESH_INTERVAL).isBefore(now)) {
+            OverrideSnapshot updated = new OverrideSnapshot(desiredLevels, fetchedExpiries, now);
+            try {
+                updated.writeTo(file);
+                snapshot = updated;
+                Metrics.getInstance().increment("snapshot_writes");
+            } catch (IOException e) {
+                logger.warn("Unable to write override snapshot {}: {}", file, e.getMessage());
+            }
+        }
+        return desiredLevels;
+    }
+
+    /**
+     * Return the snapshot's overrides in place of a failed fetch, or rethrow the failure without a snapshot.
+     */
+    Map<String, String> fallback(Exception failure) throws Exception {
+        OverrideSnapshot current = snapshot;
+        if (current == null) {
+            throw failure;
+        }
+        lastFetched = false;
+        Metrics.getInstance().increment("snapshot_fallbacks");
+        logger.warn("Backend fetch failed, using {} log level overrides from snapshot fetched at {}: {}",
+                   current.getLevels().size(), current.getFetchedAt(), failure.getMessage());
+        return fromSnapshot(current);
+    }
+
+    private Map<String, String> fromSnapshot(OverrideSnapshot source) {
+        Map<String, String> desiredLevels = LevelOverrides.withoutExpired(source.getLevels(), source.getExpiries(), Instant.now());
+        expiries = LevelOverrides.expiriesOf(desiredLevels, source.getExpiries());
+        return desiredLevels;
+    }
+
+    private static OverrideSnapshot load(Path file) {
+        if (!Files.exists(file)) {
+            logger.debug("No override snapshot at {}", file);
+            return null;
+        }
+        try {
+            OverrideSnapshot loaded = OverrideSnapshot.readFrom(file);
+            logger.debug("Loaded override snapshot {} fetched at {}", file, loaded.getFetchedAt());
+            return loaded;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable override snapshot: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public Map<String, Instant> getExpiries() {
+        return expiries;
+    }
+
+    @Override
+    public Map<String, String> getSources() {
+        return delegate.getSources();
+    }
+
+    /**
+     * Immutable only once the overrides come from the backend, so that a snapshot written by an earlier run
+     * with other settings is not kept as if it were the backend's overrides.
+     */
+    @Override
+    public boolean isImmutable() {
+        return lastFetched && delegate.isImmutable();
+    }
+
+    @Override
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+        delegate.setChangeListener(listener);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    /**
+     * Snapshot decorator of an asynchronous backend. The fetched overrides are recorded, and the snapshot
+     * written, on a thread of its own rather than on the thread completing the backend's future, which is
+     * the I/O thread of the asynchronous client that must not block on the disk.
+     */
+    static class Async extends SnapshotBackend implements AsyncBackend {
+        private final AsyncBackend asyncDelegate;
+        private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dynalog4j-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Async(AsyncBackend delegate, Path file) {
+            super(delegate, file);
+            this.asyncDelegate = delegate;
+        }
+
+        @Override
+        public CompletableFuture<Map<String, String>> fetchDesiredLevelsAsync() {
+            Map<String, String> loaded = takeLoadedSnapshot();
+            if (loaded != null) {
+                return CompletableFuture.completedFuture(loaded);
+            }
+            return asyncDelegate.fetchDesiredLevelsAsync().handleAsync((desiredLevels, error) -> {
+                if (error == null) {
+                    return fetched(desiredLevels);
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                try {
+                    return fallback(cause instanceof Exception exception ? exception : new Exception(cause));
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+/**
+ * Backend that versions the desired levels it fetches, so consumers can skip work while the version stays
+ * the same and apply only what changed when it moves.
+ * <p>
+ * Like {@link #getExpiries()}, both methods describe the levels returned by the last fetch; they do not
+ * fetch themselves. Backends that do not implement this interface can be versioned by feeding each fetch
+ * into a {@link LevelsHistory}, which diffs the full maps.
+ */
+public interface VersionedBackend extends Backend {
+    /**
+     * The levels returned by the last fetch, with their version.
+     */
+    VersionedLevels getSnapshot();
+
+    /**
+     * What changed between the given version and the levels returned by the last fetch.
+     *
+     * @param version version the caller last consumed, or {@link VersionedLevels#NO_VERSION}
+     * @return the changes, full if those since the given version are no longer known
+     */
+    LevelsDelta changesSince(long version);
+}
@@ -0,0 +1,34 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import java.util.Map;
+
+/**
+ * Immutable desired levels with a version that only moves when they change.
+ */
+public final class VersionedLevels {
+    /**
+     * Version of a consumer that has not seen any levels yet; changes since it are always a full delta.
+     */
+    public static final long NO_VERSION = -1;
+
+    private final long version;
+    private final Map<String, String> levels;
+
+    public VersionedLevels(long version, Map<String, String> levels) {
+        this.version = version;
+        this.levels = LevelOverrides.copyOf(levels);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Map<String, String> getLevels() {
+        return levels;
+    }
+
+    @Override
+    public String toString() {
+        return "VersionedLevels{version=" + version + ", levels=" + levels.size() + "}";
+    }
+}
@@ -4,7 +4,11 @@ import picocli.CommandLine;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Command;
 
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Application configuration that supports CLI arguments and environment variables.
@@ -18,7 +22,7 @@ public class AppConfiguration {
 
     // Backend Configuration
     @Option(names = {"-b", "--backend"}, 
-            description = "Backend type: env, file, or dynamo (default: ${DEFAULT-VALUE})")
+            description = "Backend type: env, file, directory, dynamo, dynamo-async, dynamo-stream, http, kubernetes, or composite (default: ${DEFAULT-VALUE})")
     private String backend = getEnvOrDefault("BACKEND", "env");
 
     @Option(names = {"--table-name"}, 
@@ -29,10 +33,86 @@ public class AppConfiguration {
             description = "Service name for DynamoDB backend (default: ${DEFAULT-VALUE})")
     private String serviceName = getEnvOrDefault("SERVICE_NAME", "default");
 
+    @Option(names = {"--dynamo-version-check"}, 
+            description = "Read the service's version item first and only query DynamoDB overrides when it changes")
+    private boolean dynamoVersionCheck = Boolean.parseBoolean(getEnvOrDefault("DYNAMO_VERSION_CHECK", "false"));
+
+    @Option(names = {"--dynamo-packed"},
+            description = "Read a service's overrides from its packed item with a single GetItem when it exists")
+    private boolean dynamoPacked = Boolean.parseBoolean(getEnvOrDefault("DYNAMO_PACKED", "false"));
+
+    @Option(names = {"--dynamo-scopes"},
+            description = "Comma-separated DynamoDB partition keys to merge overrides from, in ascending precedence, instead of the service name")
+    private String dynamoScopes = getEnvOrDefault("DYNAMO_SCOPES", null);
+
+    @Option(names = {"--dynamo-hedge-percentile"},
+            description = "Send a DynamoDB read again when it takes longer than this percentile of recent reads, e.g. 95 (default: no hedging)")
+    private Double dynamoHedgePercentile = parseDouble(getEnvOrDefault("DYNAMO_HEDGE_PERCENTILE", null));
+
+    @Option(names = {"--dynamo-hedge-budget"},
+            description = "Maximum hedged DynamoDB reads as a percentage of all reads (default: ${DEFAULT-VALUE})")
+    private Double dynamoHedgeBudgetPercent = parseDouble(getEnvOrDefault("DYNAMO_HEDGE_BUDGET_PERCENT", "10"));
+
+    @Option(names = {"--dynamo-hedge-region"},
+            description = "Region of the DynamoDB table replica hedged reads are sent to (default: the primary region)")
+    private String dynamoHedgeRegion = getEnvOrDefault("DYNAMO_HEDGE_REGION", null);
+
+    @Option(names = {"--dynamo-max-read-rate"},
+            description = "DynamoDB read capacity units per second allowed before throttling lowers the rate (default: ${DEFAULT-VALUE})")
+    private Double dynamoMaxReadRate = parseDouble(getEnvOrDefault("DYNAMO_MAX_READ_RATE", "5"));
+
+    @Option(names = {"--http-url"},
+            description = "URL the HTTP backend fetches the overrides from")
+    private String httpUrl = getEnvOrDefault("HTTP_URL", null);
+
+    @Option(names = {"--http-timeout"},
+            description = "Timeout in seconds for each HTTP backend request (default: ${DEFAULT-VALUE})")
+    private Long httpTimeoutSeconds = parseLong(getEnvOrDefault("HTTP_TIMEOUT_SECONDS", "10"));
+
+    @Option(names = {"--http-long-poll-wait"},
+            description = "Seconds the server may hold an HTTP backend long-poll until the overrides change, 0 to only poll (default: ${DEFAULT-VALUE})")
+    private Long httpLongPollWaitSeconds = parseLong(getEnvOrDefault("HTTP_LONG_POLL_WAIT_SECONDS", "0"));
+
+    @Option(names = {"--kubernetes-pod-name"},
+            description = "Pod whose dynalog4j/levels annotation the Kubernetes backend watches (default: the HOSTNAME)")
+    private String kubernetesPodName = getEnvOrDefault("POD_NAME", System.getenv("HOSTNAME"));
+
+    @Option(names = {"--kubernetes-namespace"},
+            description = "Namespace of the pod watched by the Kubernetes backend (default: the service account's namespace)")
+    private String kubernetesNamespace = getEnvOrDefault("POD_NAMESPACE", null);
+
+    @Option(names = {"--composite-layers"},
+            description = "Comma-separated backend types merged by the composite backend, lowest precedence first, each optionally with a timeout in milliseconds after a colon (default: ${DEFAULT-VALUE})")
+    private String compositeLayers = getEnvOrDefault("COMPOSITE_LAYERS", "env,file,dynamodb");
+
+    @Option(names = {"--composite-timeout"},
+            description = "Milliseconds each composite backend layer may take before its last good overrides are used (default: ${DEFAULT-VALUE})")
+    private Long compositeTimeoutMillis = parseLong(getEnvOrDefault("COMPOSITE_TIMEOUT_MS", "2000"));
+
+    @Option(names = {"--snapshot-path"},
+            description = "File the last fetched overrides are kept in, applied on startup and while the backend fails (default: no snapshot)")
+    private String snapshotPath = getEnvOrDefault("SNAPSHOT_PATH", null);
+
+    @Option(names = {"--custom-levels"},
+            description = "Comma-separated custom Log4j2 levels declared by the target that overrides may set, not discovered from the target (default: none)")
+    private String customLevels = getEnvOrDefault("CUSTOM_LOG_LEVELS", null);
+
+    @Option(names = {"--cache-ttl"},
+            description = "Seconds fetched overrides are served from cache before the backend is asked again (default: no cache)")
+    private Long cacheTtlSeconds = parseLong(getEnvOrDefault("CACHE_TTL_SECONDS", null));
+
+    @Option(names = {"--cache-stale-while-revalidate"},
+            description = "Seconds after the cache TTL during which cached overrides are served while they are refreshed in the background (default: ${DEFAULT-VALUE})")
+    private Long cacheStaleWhileRevalidateSeconds = parseLong(getEnvOrDefault("CACHE_STALE_WHILE_REVALIDATE_SECONDS", "0"));
+
     @Option(names = {"--config-path"}, 
             description = "File path for file backend (default: ${DEFAULT-VALUE})")
     private String configPath = getEnvOrDefault("LOG_CONFIG_PATH", "/config/log-levels.yaml");
 
+    @Option(names = {"--config-dir"},
+            description = "Directory whose YAML and JSON files the directory backend merges in name order (default: ${DEFAULT-VALUE})")
+    private String configDir = getEnvOrDefault("LOG_CONFIG_DIR", "/config/log-levels.d");
+
     // JMX Configuration
     @Option(names = {"--jmx-host"}, 
             description = "JMX host (default: ${DEFAULT-VALUE})")
@@ -50,6 +130,10 @@ public class AppConfiguration {
             description = "Process command pattern to filter discoverable PIDs (regex supported)")
     private String jmxPidFilter = getEnvOrDefault("JMX_PID_FILTER", null);
 
+    @Option(names = {"--jmx-timeout"}, 
+            description = "Timeout in seconds for each JMX call and connection attempt (default: ${DEFAULT-VALUE})")
+    private Long jmxTimeoutSeconds = parseLong(getEnvOrDefault("JMX_TIMEOUT_SECONDS", "10"));
+
     @Option(names = {"--target-context"}, 
             description = "Target LoggerContext name (default: auto-select)")
     private String targetLoggerContext = getEnvOrDefault("TARGET_LOGGER_CONTEXT", null);
@@ -63,6 +147,22 @@ public class AppConfiguration {
             description = "Run in dry-run mode (no actual configuration changes)")
     private boolean dryRun = Boolean.parseBoolean(getEnvOrDefault("DRY_RUN", "false"));
 
+    @Option(names = {"--boot-race"}, 
+            description = "Preload overrides and apply them as soon as a starting target JVM registers its LoggerContext")
+    private boolean bootRace = Boolean.parseBoolean(getEnvOrDefault("BOOT_RACE", "false"));
+
+    @Option(names = {"--agent-mode"}, 
+            description = "Load a small agent into the target JVM and apply level changes in-process instead of replacing the configuration")
+    private boolean agentMode = Boolean.parseBoolean(getEnvOrDefault("AGENT_MODE", "false"));
+
+    @Option(names = {"--agent-dir"}, 
+            description = "Directory the agent jar is written to, must be readable by the target JVM under the same path (default: ${DEFAULT-VALUE})")
+    private String agentDir = getEnvOrDefault("AGENT_DIR", System.getProperty("java.io.tmpdir"));
+
+    @Option(names = {"--status"}, 
+            description = "Print the effective and desired level of each logger in the target, then exit")
+    private boolean status;
+
     @Option(names = {"-l", "--log-level"}, 
             description = "Log level: TRACE, DEBUG, INFO, WARN, ERROR (default: ${DEFAULT-VALUE})")
     private String logLevel = getEnvOrDefault("LOG_LEVEL", "INFO");
@@ -121,10 +221,125 @@ public class AppConfiguration {
         return serviceName;
     }
 
+    public boolean isDynamoVersionCheck() {
+        return dynamoVersionCheck;
+    }
+
+    public boolean isDynamoPacked() {
+        return dynamoPacked;
+    }
+
+    public List<String> getDynamoScopes() {
+        if (dynamoScopes == null) {
+            return List.of();
+        }
+        return Arrays.stream(dynamoScopes.split(","))
+                .map(String::trim)
+                .filter(scope -> !scope.isEmpty())
+                .toList();
+    }
+
+    public Double getDynamoHedgePercentile() {
+        return dynamoHedgePercentile;
+    }
+
+    public Double getDynamoHedgeBudgetPercent() {
+        return dynamoHedgeBudgetPercent;
+    }
+
+    public String getDynamoHedgeRegion() {
+        return dynamoHedgeRegion;
+    }
+
+    public Double getDynamoMaxReadRate() {
+        return dynamoMaxReadRate;
+    }
+
+    public String getHttpUrl() {
+        return httpUrl;
+    }
+
+    public Duration getHttpTimeout() {
+        if (httpTimeoutSeconds == null || httpTimeoutSeconds < 1) {
+            return Duration.ofSeconds(10);
+        }
+        return Duration.ofSeconds(httpTimeoutSeconds);
+    }
+
+    /**
+     * @return how long the server may hold a long-poll, or null when the HTTP backend only polls
+     */
+    public Duration getHttpLongPollWait() {
+        if (httpLongPollWaitSeconds == null || httpLongPollWaitSeconds < 1) {
+            return null;
+        }
+        return Duration.ofSeconds(httpLongPollWaitSeconds);
+    }
+
+    public String getKubernetesPodName() {
+        return kubernetesPodName;
+    }
+
+    public String getKubernetesNamespace() {
+        return kubernetesNamespace;
+    }
+
+    public List<String> getCompositeLayers() {
+        if (compositeLayers == null) {
+            return List.of();
+        }
+        return Arrays.stream(compositeLayers.split(","))
+                .map(String::trim)
+                .filter(layer -> !layer.isEmpty())
+                .toList();
+    }
+
+    public Duration getCompositeTimeout() {
+        if (compositeTimeoutMillis == null || compositeTimeoutMillis < 1) {
+            return Duration.ofSeconds(2);
+        }
+        return Duration.ofMillis(compositeTimeoutMillis);
+    }
+
+    public String getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    public List<String> getCustomLevels() {
+        if (customLevels == null) {
+            return List.of();
+        }
+        return Arrays.stream(customLevels.split(","))
+                .map(String::trim)
+                .filter(level -> !level.isEmpty())
+                .toList();
+    }
+
+    /**
+     * @return how long fetched overrides are served from cache, or null when they are not cached
+     */
+    public Duration getCacheTtl() {
+        if (cacheTtlSeconds == null || cacheTtlSeconds < 1) {
+            return null;
+        }
+        return Duration.ofSeconds(cacheTtlSeconds);
+    }
+
+    public Duration getCacheStaleWhileRevalidate() {
+        if (cacheStaleWhileRevalidateSeconds == null || cacheStaleWhileRevalidateSeconds < 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofSeconds(cacheStaleWhileRevalidateSeconds);
+    }
+
     public String getConfigPath() {
         return configPath;
     }
 
+    public String getConfigDir() {
+        return configDir;
+    }
+
     public String getJmxHost() {
         return jmxHost;
     }
@@ -145,6 +360,13 @@ public class AppConfiguration {
         return "service:jmx:rmi:///jndi/rmi://" + jmxHost + ":" + jmxPort + "/jmxrmi";
     }
 
+    public Duration getJmxTimeout() {
+        if (jmxTimeoutSeconds == null || jmxTimeoutSeconds < 1) {
+            return Duration.ofSeconds(10);
+        }
+        return Duration.ofSeconds(jmxTimeoutSeconds);
+    }
+
     public String getTargetLoggerContext() {
         return targetLoggerContext;
     }
@@ -160,6 +382,22 @@ public class AppConfiguration {
         return dryRun;
     }
 
+    public boolean isBootRace() {
+        return bootRace;
+    }
+
+    public boolean isAgentMode() {
+        return agentMode;
+    }
+
+    public String getAgentDir() {
+        return agentDir;
+    }
+
+    public boolean isStatus() {
+        return status;
+    }
+
     public String getLogLevel() {
         return logLevel != null ? logLevel.toUpperCase() : "INFO";
     }
@@ -188,10 +426,86 @@ public class AppConfiguration {
         this.serviceName = serviceName;
     }
 
+    public void setDynamoVersionCheck(boolean dynamoVersionCheck) {
+        this.dynamoVersionCheck = dynamoVersionCheck;
+    }
+
+    public void setDynamoPacked(boolean dynamoPacked) {
+        this.dynamoPacked = dynamoPacked;
+    }
+
+    public void setDynamoScopes(String dynamoScopes) {
+        this.dynamoScopes = dynamoScopes;
+    }
+
+    public void setDynamoHedgePercentile(Double dynamoHedgePercentile) {
+        this.dynamoHedgePercentile = dynamoHedgePercentile;
+    }
+
+    public void setDynamoHedgeBudgetPercent(Double dynamoHedgeBudgetPercent) {
+        this.dynamoHedgeBudgetPercent = dynamoHedgeBudgetPercent;
+    }
+
+    public void setDynamoHedgeRegion(String dynamoHedgeRegion) {
+        this.dynamoHedgeRegion = dynamoHedgeRegion;
+    }
+
+    public void setDynamoMaxReadRate(Double dynamoMaxReadRate) {
+        this.dynamoMaxReadRate = dynamoMaxReadRate;
+    }
+
+    public void setHttpUrl(String httpUrl) {
+        this.httpUrl = httpUrl;
+    }
+
+    public void setHttpTimeoutSeconds(Long httpTimeoutSeconds) {
+        this.httpTimeoutSeconds = httpTimeoutSeconds;
+    }
+
+    public void setHttpLongPollWaitSeconds(Long httpLongPollWaitSeconds) {
+        this.httpLongPollWaitSeconds = httpLongPollWaitSeconds;
+    }
+
+    public void setKubernetesPodName(String kubernetesPodName) {
+        this.kubernetesPodName = kubernetesPodName;
+    }
+
+    public void setKubernetesNamespace(String kubernetesNamespace) {
+        this.kubernetesNamespace = kubernetesNamespace;
+    }
+
+    public void setCompositeLayers(String compositeLayers) {
+        this.compositeLayers = compositeLayers;
+    }
+
+    public void setCompositeTimeoutMillis(Long compositeTimeoutMillis) {
+        this.compositeTimeoutMillis = compositeTimeoutMillis;
+    }
+
+    public void setSnapshotPath(String snapshotPath) {
+        this.snapshotPath = snapshotPath;
+    }
+
+    public void setCustomLevels(String customLevels) {
+        this.customLevels = customLevels;
+    }
+
+    public void setCacheTtlSeconds(Long cacheTtlSeconds) {
+        this.cacheTtlSeconds = cacheTtlSeconds;
+    }
+
+    public void setCacheStaleWhileRevalidateSeconds(Long cacheStaleWhileRevalidateSeconds) {
+        this.cacheStaleWhileRevalidateSeconds = cacheStaleWhileRevalidateSeconds;
+    }
+
     public void setConfigPath(String configPath) {
         this.configPath = configPath;
     }
 
+    public void setConfigDir(String configDir) {
+        this.configDir = configDir;
+    }
+
     public void setJmxHost(String jmxHost) {
         this.jmxHost = jmxHost;
     }
@@ -208,6 +522,10 @@ public class AppConfiguration {
         this.jmxPidFilter = jmxPidFilter;
     }
 
+    public void setJmxTimeoutSeconds(Long jmxTimeoutSeconds) {
+        this.jmxTimeoutSeconds = jmxTimeoutSeconds;
+    }
+
     public void setTargetLoggerContext(String targetLoggerContext) {
         this.targetLoggerContext = targetLoggerContext;
     }
@@ -220,6 +538,22 @@ public class AppConfiguration {
         this.dryRun = dryRun;
     }
 
+    public void setBootRace(boolean bootRace) {
+        this.bootRace = bootRace;
+    }
+
+    public void setAgentMode(boolean agentMode) {
+        this.agentMode = agentMode;
+    }
+
+    public void setAgentDir(String agentDir) {
+        this.agentDir = agentDir;
+    }
+
+    public void setStatus(boolean status) {
+        this.status = status;
+    }
+
     public void setLogLevel(String logLevel) {
         this.logLevel = logLevel;
     }
@@ -246,6 +580,17 @@ public class AppConfiguration {
         }
     }
 
+    private static Double parseDouble(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     private static Integer parseInt(String value) {
         try {
             return Integer.parseInt(value);
@@ -254,18 +599,61 @@ public class AppConfiguration {
         }
     }
 
+    /**
+     * The URL with its user info and query string masked, as either may carry credentials, for logging.
+     */
+    public static String redactUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            URI uri = new URI(url);
+            if (uri.getRawUserInfo() == null && uri.getRawQuery() == null) {
+                return url;
+            }
+            return new URI(uri.getScheme(), uri.getRawUserInfo() != null ? "***" : null, uri.getHost(), uri.getPort(),
+                uri.getPath(), uri.getRawQuery() != null ? "***" : null, uri.getFragment()).toString();
+        } catch (URISyntaxException e) {
+            // Nothing can be told apart in a URL that does not parse, so none of it is shown
+            return "***";
+        }
+    }
+
     @Override
     public String toString() {
         return "AppConfiguration{" +
                 "backend='" + backend + '\'' +
                 ", dynamoTableName='" + dynamoTableName + '\'' +
                 ", serviceName='" + serviceName + '\'' +
+                ", dynamoVersionCheck=" + dynamoVersionCheck +
+                ", dynamoPacked=" + dynamoPacked +
+                ", dynamoScopes='" + dynamoScopes + '\'' +
+                ", dynamoHedgePercentile=" + dynamoHedgePercentile +
+                ", dynamoHedgeBudgetPercent=" + dynamoHedgeBudgetPercent +
+                ", dynamoHedgeRegion='" + dynamoHedgeRegion + '\'' +
+                ", dynamoMaxReadRate=" + dynamoMaxReadRate +
+                ", httpUrl='" + redactUrl(httpUrl) + '\'' +
+                ", httpTimeoutSeconds=" + httpTimeoutSeconds +
+                ", httpLongPollWaitSeconds=" + httpLongPollWaitSeconds +
+                ", kubernetesPodName='" + kubernetesPodName + '\'' +
+                ", kubernetesNamespace='" + kubernetesNamespace + '\'' +
+                ", compositeLayers='" + compositeLayers + '\'' +
+                ", compositeTimeoutMillis=" + compositeTimeoutMillis +
+                ", snapshotPath='" + snapshotPath + '\'' +
+                ", customLevels='" + customLevels + '\'' +
+                ", cacheTtlSeconds=" + cacheTtlSeconds +
+                ", cacheStaleWhileRevalidateSeconds=" + cacheStaleWhileRevalidateSeconds +
                 ", configPath='" + configPath + '\'' +
+                ", configDir='" + configDir + '\'' +
                 ", jmxHost='" + jmxHost + '\'' +
                 ", jmxPort='" + jmxPort + '\'' +
+                ", jmxTimeoutSeconds=" + jmxTimeoutSeconds +
                 ", targetLoggerContext='" + targetLoggerContext + '\'' +
                 ", reconcileIntervalSeconds=" + reconcileIntervalSeconds +
                 ", dryRun=" + dryRun +
+                ", bootRace=" + bootRace +
+                ", agentMode=" + agentMode +
+                ", agentDir='" + agentDir + '\'' +
                 ", logLevel='" + logLevel + '\'' +
                 ", maxAttempts=" + maxAttempts +
                 ", retryIntervalSeconds=" + retryIntervalSeconds +
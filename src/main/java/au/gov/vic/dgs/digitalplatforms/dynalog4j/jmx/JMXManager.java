@@ -3,19 +3,51 @@ package au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.agent.AgentJar;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.agent.LevelAgent;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.config.AppConfiguration;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
 
+import javax.management.AttributeValueExp;
 import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotificationListener;
+import javax.management.relation.MBeanServerNotificationFilter;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
+import javax.management.Query;
+import javax.management.QueryExp;
+import javax.management.remote.JMXConnectionNotification;
 import javax.management.remote.JMXConnector;
 import javax.management.remote.JMXConnectorFactory;
 import javax.management.remote.JMXServiceURL;
 import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.rmi.server.RMIClientSocketFactory;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import com.sun.tools.attach.VirtualMachine;
 import com.sun.tools.attach.VirtualMachineDescriptor;
 import com.sun.tools.attach.AttachNotSupportedException;
@@ -26,14 +58,48 @@ import java.util.Properties;
  */
 public class JMXManager {
     private static final Logger logger = LoggerFactory.getLogger(JMXManager.class);
+    private static final String LOG4J2_DOMAIN = "org.apache.logging.log4j2";
+    private static final String[] STANDARD_LEVELS = {"OFF", "FATAL", "ERROR", "WARN", "INFO", "DEBUG", "TRACE", "ALL"};
+    private static final String LOCAL_CONNECTOR_ADDRESS = "com.sun.management.jmxremote.localConnectorAddress";
+    private static final String CONNECTION_CHECK_PERIOD = "jmx.remote.x.client.connection.check.period";
+    private static final long CONNECTION_CHECK_PERIOD_MS = 1000L;
+    private static final String NOTIFICATION_FETCH_TIMEOUT = "jmx.remote.x.notification.fetch.timeout";
+    private static final String JNDI_SOCKET_FACTORY = "com.sun.jndi.rmi.factory.socket";
+    private static final String RMI_RESPONSE_TIMEOUT = "sun.rmi.transport.tcp.responseTimeout";
+    private static final Duration DEFAULT_CALL_TIMEOUT = Duration.ofSeconds(10);
+    // Added to the call timeout for the RMI read timeout, so a read is only cut off after its call gave up on it
+    private static final Duration RMI_READ_TIMEOUT_MARGIN = Duration.ofSeconds(5);
+    
+    // Local connector addresses keyed by "pid@startTimeMillis", reused across reconnects
+    private final Map<String, String> connectorAddressCache = new ConcurrentHashMap<>();
     
     private final String jmxUrl;
     private final String jmxPid;
     private final String jmxPidFilter;
     private final String targetLoggerContext;
-    private JMXConnector connector;
-    private MBeanServerConnection connection;
-    private VirtualMachine attachedVM;
+    private final Duration callTimeout;
+    private final Path agentDir;
+    private Path agentJar;
+    // Connection generation in which the level agent was last seen registered
+    private volatile long agentGeneration = -1;
+    // JMX calls run here so a hung target cannot block the reconcile thread beyond the call timeout. A call
+    // abandoned on a dead connection keeps its thread until the RMI read timeout frees it
+    private final ExecutorService ioExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "dynalog4j-jmx-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile JMXConnector connector;
+    private volatile MBeanServerConnection connection;
+    private String lastConnectedPid;
+    private volatile Instant targetStartTime;
+    
+    // Incremented on every connect/disconnect so that exit and connection notifications
+    // from a previous connection are ignored
+    private final AtomicLong connectionGeneration = new AtomicLong();
+    private volatile boolean targetLost;
+    private volatile boolean suspect;
+    private volatile Runnable targetLostListener;
 
     public JMXManager(AppConfiguration config) {
         this.jmxPid = config.getJmxPid();
@@ -51,6 +117,8 @@ public class JMXManager {
             }
         }
         this.targetLoggerContext = config.getTargetLoggerContext();
+        this.callTimeout = config.getJmxTimeout();
+        this.agentDir = Path.of(config.getAgentDir() != null ? config.getAgentDir() : System.getProperty("java.io.tmpdir"));
     }
 
     public JMXManager() {
@@ -62,6 +130,30 @@ public class JMXManager {
         this.jmxPid = null;
         this.jmxPidFilter = null;
         this.targetLoggerContext = System.getenv("TARGET_LOGGER_CONTEXT");
+        this.callTimeout = DEFAULT_CALL_TIMEOUT;
+        this.agentDir = Path.of(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Apply a read timeout to the RMI calls of the JMX RMI connector, so that a call abandoned after the
+     * call timeout on a dead connection releases its I/O thread. The read timeout is the call timeout plus
+     * a margin, so it never cuts off a call the call timeout still waits for. Must be called before the
+     * first RMI connection is made, and does not override a value set explicitly on the command line.
+     * <p>
+     * The RMI socket factories are left alone, they are only set per connection, see
+     * {@link #connectorEnvironment()}.
+     */
+    public static void configureRmiTimeouts(Duration callTimeout) {
+        if (System.getProperty(RMI_RESPONSE_TIMEOUT) == null) {
+            System.setProperty(RMI_RESPONSE_TIMEOUT, String.valueOf(rmiReadTimeout(callTimeout).toMillis()));
+        }
+    }
+
+    /**
+     * The read timeout of RMI sockets for the given call timeout.
+     */
+    static Duration rmiReadTimeout(Duration callTimeout) {
+        return callTimeout.plus(RMI_READ_TIMEOUT_MARGIN);
     }
 
     private static String buildJMXUrl() {
@@ -74,12 +166,23 @@ public class JMXManager {
      * Connect to the target JVM's JMX endpoint.
      */
     public void connect() throws Exception {
+        if (ioExecutor.isShutdown()) {
+            throw new IllegalStateException("JMX manager is closed");
+        }
+        if (connector != null) {
+            // Release any previous (possibly dead) connection before reconnecting
+            disconnect();
+        }
+        targetLost = false;
+        suspect = false;
+        targetStartTime = null;
+        
         if (jmxPid != null && !jmxPid.trim().isEmpty()) {
             connectViaPid(jmxPid.trim());
         } else if (jmxUrl != null) {
             connectViaUrl(jmxUrl);
-        } else {
-            // No PID or URL specified, try to discover available Java processes
+        } else if (!reconnectToLastDiscoveredPid()) {
+            // No PID or URL specified (and no previously discovered process to reuse), try to discover available Java processes
             List<String> availablePids = discoverAttachableJavaProcesses(jmxPidFilter);
             if (availablePids.isEmpty()) {
                 String filterMsg = (jmxPidFilter != null && !jmxPidFilter.trim().isEmpty()) 
@@ -102,30 +205,93 @@ public class JMXManager {
         }
     }
 
+    /**
+     * Reconnect to the previously discovered process without re-running discovery, provided it is
+     * still the same process (same PID and start time) and its connector address is cached.
+     * 
+     * @return true if the reconnect succeeded
+     */
+    private boolean reconnectToLastDiscoveredPid() {
+        if (lastConnectedPid == null) {
+            return false;
+        }
+        String cacheKey = connectorCacheKey(lastConnectedPid);
+        if (cacheKey == null || !connectorAddressCache.containsKey(cacheKey)) {
+            lastConnectedPid = null;
+            return false;
+        }
+        try {
+            connectViaPid(lastConnectedPid);
+            return true;
+        } catch (Exception e) {
+            logger.debug("Reconnect to previously discovered PID {} failed, rediscovering: {}", lastConnectedPid, e.getMessage());
+            lastConnectedPid = null;
+            return false;
+        }
+    }
+
     /**
      * Connect to JMX via process ID attachment.
+     * Uses the cached local connector address for the process when available and only
+     * falls back to the (slow) attach path when there is no cached address or it no longer works.
      */
     private void connectViaPid(String pid) throws Exception {
+        String cacheKey = connectorCacheKey(pid);
+        String cachedAddress = cacheKey != null ? connectorAddressCache.get(cacheKey) : null;
+        
+        if (cachedAddress != null) {
+            try {
+                logger.debug("Using cached JMX connector address for PID {}", pid);
+                connectViaUrl(cachedAddress);
+                watchProcessExit(pid);
+                lastConnectedPid = pid;
+                logger.info("Successfully connected to JMX endpoint via PID {} (cached address)", pid);
+                return;
+            } catch (Exception e) {
+                logger.debug("Cached JMX connector address for PID {} failed, re-attaching: {}", pid, e.getMessage());
+                connectorAddressCache.remove(cacheKey);
+            }
+        }
+        
+        String jmxAddress = resolveConnectorAddress(pid);
+        
+        // Connect to the JMX endpoint using the connector address
+        connectViaUrl(jmxAddress);
+        
+        if (cacheKey != null) {
+            connectorAddressCache.put(cacheKey, jmxAddress);
+        }
+        watchProcessExit(pid);
+        lastConnectedPid = pid;
+        logger.info("Successfully connected to JMX endpoint via PID {}", pid);
+    }
+
+    /**
+     * Attach to the target process and resolve its local JMX connector address, starting the
+     * local management agent if required. The attach handle is released before returning.
+     */
+    private String resolveConnectorAddress(String pid) throws Exception {
+        VirtualMachine vm = null;
         try {
             logger.info("Attaching to Java process with PID: {}", pid);
             
             // Attach to the target JVM
-            attachedVM = VirtualMachine.attach(pid);
+            vm = VirtualMachine.attach(pid);
             
             // Check if JMX agent is already loaded
-            Properties agentProperties = attachedVM.getAgentProperties();
-            String jmxAddress = agentProperties.getProperty("com.sun.management.jmxremote.localConnectorAddress");
+            Properties agentProperties = vm.getAgentProperties();
+            String jmxAddress = agentProperties.getProperty(LOCAL_CONNECTOR_ADDRESS);
             
             if (jmxAddress == null) {
                 // No JMX agent loaded, start the local management agent
                 logger.debug("JMX agent not loaded, starting local management agent");
                 
                 try {
-                    attachedVM.startLocalManagementAgent();
+                    vm.startLocalManagementAgent();
                     
                     // Refresh agent properties to get the connector address
-                    agentProperties = attachedVM.getAgentProperties();
-                    jmxAddress = agentProperties.getProperty("com.sun.management.jmxremote.localConnectorAddress");
+                    agentProperties = vm.getAgentProperties();
+                    jmxAddress = agentProperties.getProperty(LOCAL_CONNECTOR_ADDRESS);
                     
                     if (jmxAddress != null) {
                         logger.debug("Successfully started local management agent");
@@ -141,16 +307,38 @@ public class JMXManager {
             }
             
             logger.debug("Found JMX connector address: {}", jmxAddress);
-            
-            // Connect to the JMX endpoint using the connector address
-            connectViaUrl(jmxAddress);
-            
-            logger.info("Successfully connected to JMX endpoint via PID {}", pid);
+            return jmxAddress;
             
         } catch (AttachNotSupportedException e) {
             throw new Exception("Cannot attach to process " + pid + ": attach not supported", e);
         } catch (IOException e) {
             throw new Exception("Failed to attach to process " + pid, e);
+        } finally {
+            if (vm != null) {
+                try {
+                    vm.detach();
+                    logger.debug("Detached from VM");
+                } catch (IOException e) {
+                    logger.warn("Error detaching from VM: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the connector address cache key for a process. The process start time is part of the
+     * key so that a recycled PID never reuses the address of a previous process.
+     * 
+     * @return the cache key, or null if the process is not running or its start time is unknown
+     */
+    private static String connectorCacheKey(String pid) {
+        try {
+            return ProcessHandle.of(Long.parseLong(pid))
+                .flatMap(handle -> handle.info().startInstant())
+                .map(start -> pid + "@" + start.toEpochMilli())
+                .orElse(null);
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 
@@ -161,8 +349,11 @@ public class JMXManager {
         try {
             logger.debug("Connecting to JMX endpoint: {}", url);
             JMXServiceURL serviceURL = new JMXServiceURL(url);
-            connector = JMXConnectorFactory.connect(serviceURL, null);
-            connection = connector.getMBeanServerConnection();
+            connector = JMXConnectorFactory.connect(serviceURL, connectorEnvironment());
+            long generation = connectionGeneration.incrementAndGet();
+            connection = TimeoutMBeanServerConnection.wrap(
+                connector.getMBeanServerConnection(), ioExecutor, callTimeout, () -> markSuspect(generation));
+            watchConnection(connector, generation);
             logger.debug("Successfully connected to JMX endpoint");
         } catch (MalformedURLException e) {
             throw new Exception("Invalid JMX URL: " + url, e);
@@ -171,32 +362,115 @@ public class JMXManager {
         }
     }
 
+    /**
+     * Build the connector environment: check the connection every second so a dead target is reported
+     * promptly, keep notification long-polls shorter than the RMI read timeout, and bound the connect
+     * time of the registry lookup by the call timeout and its read time by the RMI read timeout.
+     */
+    Map<String, Object> connectorEnvironment() {
+        return Map.of(
+            CONNECTION_CHECK_PERIOD, CONNECTION_CHECK_PERIOD_MS,
+            NOTIFICATION_FETCH_TIMEOUT, Math.max(1000L, callTimeout.toMillis() / 2),
+            JNDI_SOCKET_FACTORY, new TimeoutClientSocketFactory(
+                (int) callTimeout.toMillis(), (int) rmiReadTimeout(callTimeout).toMillis()));
+    }
+
+    /**
+     * Register a listener that is notified as soon as the connection to the target JVM is lost.
+     * The listener is invoked from a notification thread and should only signal the reconcile loop.
+     */
+    public void setTargetLostListener(Runnable listener) {
+        this.targetLostListener = listener;
+    }
+
+    /**
+     * Mark the target lost when the JMX connector reports that the connection failed or was closed remotely.
+     */
+    private void watchConnection(JMXConnector jmxConnector, long generation) {
+        jmxConnector.addConnectionNotificationListener((notification, handback) -> {
+            String type = notification.getType();
+            if (JMXConnectionNotification.FAILED.equals(type) || JMXConnectionNotification.CLOSED.equals(type)) {
+                markTargetLost(generation, "JMX connection " + type);
+            }
+        }, null, null);
+    }
+
+    /**
+     * Mark the target lost as soon as the attached process exits.
+     */
+    private void watchProcessExit(String pid) {
+        long generation = connectionGeneration.get();
+        try {
+            ProcessHandle.of(Long.parseLong(pid)).ifPresent(handle -> {
+                targetStartTime = handle.info().startInstant().orElse(null);
+                handle.onExit().thenRun(() -> markTargetLost(generation, "process " + pid + " exited"));
+            });
+        } catch (NumberFormatException e) {
+            logger.debug("Cannot watch non-numeric PID {} for exit", pid);
+        }
+    }
+
+    /**
+     * Mark the connection suspect after a call timed out, so the next cycle reconnects instead of
+     * queueing more calls behind a dead socket.
+     */
+    private void markSuspect(long generation) {
+        if (generation != connectionGeneration.get() || suspect) {
+            return;
+        }
+        suspect = true;
+        Metrics.getInstance().increment("jmx_timeouts");
+        logger.warn("JMX call timed out after {}ms, connection will be re-established", callTimeout.toMillis());
+    }
+
+    private void markTargetLost(long generation, String reason) {
+        if (generation != connectionGeneration.get() || targetLost) {
+            return;
+        }
+        targetLost = true;
+        logger.warn("Lost connection to target JVM ({}), rediscovering target", reason);
+        
+        Runnable listener = targetLostListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
     /**
      * Disconnect from the JMX endpoint.
      */
     public void disconnect() {
+        // Invalidate notifications from this connection before closing it ourselves
+        connectionGeneration.incrementAndGet();
+        
         if (connector != null) {
+            JMXConnector closing = connector;
+            Future<?> closed = ioExecutor.submit(() -> {
+                closing.close();
+                return null;
+            });
             try {
-                connector.close();
+                closed.get(callTimeout.toMillis(), TimeUnit.MILLISECONDS);
                 logger.debug("Disconnected from JMX endpoint");
-            } catch (IOException e) {
-                logger.warn("Error closing JMX connection: {}", e.getMessage());
+            } catch (ExecutionException e) {
+                logger.warn("Error closing JMX connection: {}", e.getCause().getMessage());
+            } catch (TimeoutException e) {
+                logger.warn("Timed out closing JMX connection, abandoning it");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } finally {
                 connector = null;
                 connection = null;
             }
         }
-        
-        if (attachedVM != null) {
-            try {
-                attachedVM.detach();
-                logger.debug("Detached from VM");
-            } catch (IOException e) {
-                logger.warn("Error detaching from VM: {}", e.getMessage());
-            } finally {
-                attachedVM = null;
-            }
-        }
+    }
+
+    /**
+     * Disconnect from the JMX endpoint and stop the I/O threads. The manager cannot be connected again.
+     */
+    public void close() {
+        disconnect();
+        ioExecutor.shutdownNow();
     }
 
     /**
@@ -258,6 +532,8 @@ public class JMXManager {
                         contexts.add(new LoggerContext(objectName, type));
                         logger.debug("Added LoggerContext: {} (type: {})", objectName, type);
                     }
+                } catch (JMXTimeoutException e) {
+                    throw e;
                 } catch (Exception e) {
                     logger.debug("Could not inspect MBean {}: {}", objectName, e.getMessage());
                 }
@@ -289,6 +565,55 @@ public class JMXManager {
         }
     }
 
+    /**
+     * Wait for Log4j2 LoggerContext MBeans to be registered in the target JVM.
+     * Subscribes to MBean registration notifications before checking, so a context registered
+     * while we look is not missed and is picked up as soon as it appears.
+     * 
+     * @return the discovered contexts, or an empty list if none appeared within the timeout
+     */
+    public List<LoggerContext> awaitLoggerContexts(Duration timeout) throws Exception {
+        if (connection == null) {
+            throw new IllegalStateException("Not connected to JMX endpoint");
+        }
+
+        CountDownLatch registered = new CountDownLatch(1);
+        MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+        filter.disableAllTypes();
+        filter.enableType(MBeanServerNotification.REGISTRATION_NOTIFICATION);
+        filter.enableAllObjectNames();
+        NotificationListener listener = (notification, handback) -> {
+            ObjectName objectName = ((MBeanServerNotification) notification).getMBeanName();
+            if (LOG4J2_DOMAIN.equals(objectName.getDomain()) && objectName.getKeyProperty("component") == null) {
+                logger.debug("LoggerContext MBean registered: {}", objectName);
+                registered.countDown();
+            }
+        };
+
+        MBeanServerConnection current = connection;
+        current.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, listener, filter, null);
+        try {
+            List<LoggerContext> contexts = discoverLoggerContexts();
+            if (contexts.isEmpty() && registered.await(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                contexts = discoverLoggerContexts();
+            }
+            return contexts;
+        } finally {
+            try {
+                current.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, listener, filter, null);
+            } catch (Exception e) {
+                logger.debug("Could not remove MBean registration listener: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the start time of the attached target process, if known (PID connections only).
+     */
+    public Optional<Instant> getTargetStartTime() {
+        return Optional.ofNullable(targetStartTime);
+    }
+
     /**
      * Select the appropriate LoggerContext based on configuration or auto-detection.
      */
@@ -399,6 +724,8 @@ public class JMXManager {
                             logger.debug("Successfully retrieved configuration using method: {} (no params)", methodName);
                             return result.toString();
                         }
+                    } catch (JMXTimeoutException timeout) {
+                        throw timeout;
                     } catch (Exception ignored) {
                         // Continue to next method
                     }
@@ -411,6 +738,131 @@ public class JMXManager {
         }
     }
 
+    /**
+     * Get a compact snapshot of the effective level of every LoggerConfig in the given context,
+     * keyed by logger name (the root logger is reported as "root").
+     * 
+     * Rather than reading each LoggerConfig MBean in turn, the target's MBean server evaluates one
+     * level query per standard level, so the number of round trips does not grow with the number of
+     * loggers and no configuration XML is transferred. Loggers using custom levels are matched by a
+     * final query and read individually.
+     */
+    public Map<String, String> getEffectiveLevels(LoggerContext context) throws Exception {
+        if (connection == null) {
+            throw new IllegalStateException("Not connected to JMX endpoint");
+        }
+
+        try {
+            ObjectName pattern = loggerConfigName(context, "*");
+            Map<String, String> levels = new HashMap<>();
+            AttributeValueExp levelAttribute = Query.attr("Level");
+            List<QueryExp> standardLevels = new ArrayList<>(STANDARD_LEVELS.length);
+            
+            for (String level : STANDARD_LEVELS) {
+                QueryExp isLevel = Query.eq(levelAttribute, Query.value(level));
+                for (ObjectName name : connection.queryNames(pattern, isLevel)) {
+                    levels.put(loggerName(name), level);
+                }
+                standardLevels.add(isLevel);
+            }
+            
+            for (ObjectName name : connection.queryNames(pattern, Query.not(anyOf(standardLevels)))) {
+                Object level = connection.getAttribute(name, "Level");
+                if (level != null) {
+                    levels.put(loggerName(name), level.toString());
+                }
+            }
+            
+            logger.debug("Read effective levels for {} logger(s) in LoggerContext: {}", levels.size(), context.getName());
+            return Map.copyOf(levels);
+        } catch (Exception e) {
+            throw new Exception("Failed to read effective levels from LoggerContext: " + context.getName(), e);
+        }
+    }
+
+    /**
+     * Find the loggers whose effective level in the target differs from the desired level, including
+     * loggers that have no LoggerConfig at all. Uses a single query round trip: the target's MBean
+     * server matches each desired logger by MBean name before reading its level.
+     * 
+     * @return names of loggers that are not at their desired level (empty when in sync)
+     */
+    public Set<String> findLevelDrift(LoggerContext context, Map<String, String> desiredLevels) throws Exception {
+        if (connection == null) {
+            throw new IllegalStateException("Not connected to JMX endpoint");
+        }
+        if (desiredLevels.isEmpty()) {
+            return Set.of();
+        }
+
+        try {
+            AttributeValueExp levelAttribute = Query.attr("Level");
+            List<QueryExp> matches = new ArrayList<>(desiredLevels.size());
+            for (Map.Entry<String, String> entry : desiredLevels.entrySet()) {
+                matches.add(Query.and(
+                    loggerConfigName(context, escapeLoggerName(entry.getKey())),
+                    Query.eq(levelAttribute, Query.value(entry.getValue()))));
+            }
+            QueryExp inSync = anyOf(matches);
+            
+            Set<String> drifted = new HashSet<>(desiredLevels.keySet());
+            for (ObjectName name : connection.queryNames(loggerConfigName(context, "*"), inSync)) {
+                String loggerName = loggerName(name);
+                // The reconciler accepts any case for the root logger
+                drifted.removeIf(desired -> desired.equals(loggerName) 
+                    || ("root".equals(loggerName) && "root".equalsIgnoreCase(desired)));
+            }
+            return drifted;
+        } catch (Exception e) {
+            throw new Exception("Failed to verify effective levels for LoggerContext: " + context.getName(), e);
+        }
+    }
+
+    /**
+     * Query matching any of the given queries, as a balanced tree of ORs. The tree is serialized to the
+     * target and evaluated recursively there, so it is kept as shallow as possible rather than nesting one
+     * level deeper per query.
+     */
+    static QueryExp anyOf(List<QueryExp> queries) {
+        return anyOf(queries, 0, queries.size());
+    }
+
+    private static QueryExp anyOf(List<QueryExp> queries, int from, int to) {
+        if (to - from == 1) {
+            return queries.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        return Query.or(anyOf(queries, from, middle), anyOf(queries, middle, to));
+    }
+
+    private static ObjectName loggerConfigName(LoggerContext context, String name) throws MalformedObjectNameException {
+        return new ObjectName(LOG4J2_DOMAIN + ":type=" + context.getObjectName().getKeyProperty("type")
+            + ",component=Loggers,name=" + name);
+    }
+
+    private static String loggerName(ObjectName loggerConfigName) {
+        String name = loggerConfigName.getKeyProperty("name");
+        if (name == null || name.isEmpty()) {
+            return "root";
+        }
+        return name.startsWith("\"") ? ObjectName.unquote(name) : name;
+    }
+
+    /**
+     * Escape a logger name the same way Log4j2 does when registering LoggerConfig MBeans.
+     */
+    private static String escapeLoggerName(String loggerName) {
+        if ("root".equalsIgnoreCase(loggerName)) {
+            return "";
+        }
+        for (char c : loggerName.toCharArray()) {
+            if (",=:\"*?\\\n".indexOf(c) >= 0) {
+                return ObjectName.quote(loggerName);
+            }
+        }
+        return loggerName;
+    }
+
     /**
      * Set the Log4j2 configuration using XML text.
      */
@@ -454,8 +906,101 @@ public class JMXManager {
         }
     }
 
+    /**
+     * Make sure the level agent is available in the target JVM, loading it through the attach API when the
+     * target was reached by PID. Targets reached by URL can only use the agent when it was installed at
+     * startup with {@code -javaagent}.
+     * 
+     * @return true if the agent MBean is registered in the target
+     */
+    public boolean ensureLevelAgent() throws Exception {
+        if (connection == null) {
+            throw new IllegalStateException("Not connected to JMX endpoint");
+        }
+        long generation = connectionGeneration.get();
+        if (agentGeneration == generation) {
+            return true;
+        }
+
+        ObjectName agentName = new ObjectName(LevelAgent.OBJECT_NAME);
+        if (!connection.isRegistered(agentName)) {
+            if (lastConnectedPid == null) {
+                logger.debug("Level agent not present in target and target was not reached by PID, cannot load it");
+                return false;
+            }
+            loadLevelAgent(lastConnectedPid);
+            if (!connection.isRegistered(agentName)) {
+                return false;
+            }
+        }
+        agentGeneration = generation;
+        return true;
+    }
+
+    private void loadLevelAgent(String pid) throws Exception {
+        VirtualMachine vm = null;
+        try {
+            if (agentJar == null) {
+                agentJar = AgentJar.create(agentDir);
+            }
+            logger.info("Loading level agent into process {} from {}", pid, agentJar);
+            vm = VirtualMachine.attach(pid);
+            vm.loadAgent(agentJar.toString());
+        } catch (AttachNotSupportedException e) {
+            throw new Exception("Cannot attach to process " + pid + ": attach not supported", e);
+        } catch (IOException e) {
+            throw new Exception("Failed to load level agent into process " + pid, e);
+        } finally {
+            if (vm != null) {
+                try {
+                    vm.detach();
+                } catch (IOException e) {
+                    logger.warn("Error detaching from VM: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply logger levels in-process through the level agent, without reconfiguring the LoggerContext.
+     * 
+     * @param levels levels by logger name, a null level reverts an earlier override
+     * @param replace also revert earlier overrides that are not in {@code levels}
+     * @return number of loggers whose configuration changed
+     */
+    public int applyLevelsViaAgent(LoggerContext context, Map<String, String> levels, boolean replace) throws Exception {
+        if (connection == null) {
+            throw new IllegalStateException("Not connected to JMX endpoint");
+        }
+
+        String[] loggerNames = new String[levels.size()];
+        String[] loggerLevels = new String[levels.size()];
+        int i = 0;
+        for (Map.Entry<String, String> entry : levels.entrySet()) {
+            loggerNames[i] = entry.getKey();
+            loggerLevels[i] = entry.getValue();
+            i++;
+        }
+        String contextName = context.getName();
+        if (contextName != null && contextName.startsWith("\"")) {
+            contextName = ObjectName.unquote(contextName);
+        }
+
+        try {
+            return (Integer) connection.invoke(
+                new ObjectName(LevelAgent.OBJECT_NAME),
+                "applyLevels",
+                new Object[]{contextName, loggerNames, loggerLevels, replace},
+                new String[]{String.class.getName(), String[].class.getName(), String[].class.getName(), boolean.class.getName()}
+            );
+        } catch (Exception e) {
+            agentGeneration = -1;
+            throw new Exception("Failed to apply levels via agent for LoggerContext: " + context.getName(), e);
+        }
+    }
+
     public boolean isConnected() {
-        return connection != null;
+        return connection != null && !targetLost && !suspect;
     }
 
     /**
@@ -540,4 +1085,35 @@ public class JMXManager {
         
         return attachablePids;
     }
+
+    /**
+     * Client socket factory for the RMI registry lookup that applies connect and read timeouts.
+     */
+    static final class TimeoutClientSocketFactory implements RMIClientSocketFactory, Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int connectTimeoutMs;
+        private final int readTimeoutMs;
+
+        TimeoutClientSocketFactory(int connectTimeoutMs, int readTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+        }
+
+        int getReadTimeoutMs() {
+            return readTimeoutMs;
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), connectTimeoutMs);
+                socket.setSoTimeout(readTimeoutMs);
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+    }
 }
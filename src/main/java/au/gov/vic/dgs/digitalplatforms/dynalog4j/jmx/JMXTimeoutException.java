@@ -0,0 +1,12 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a JMX call to the target JVM does not complete within the configured timeout.
+ */
+public class JMXTimeoutException extends IOException {
+    public JMXTimeoutException(String message) {
+        super(message);
+    }
+}
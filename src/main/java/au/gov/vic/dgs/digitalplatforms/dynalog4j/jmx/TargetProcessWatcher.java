@@ -0,0 +1,114 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the hsperfdata directories for new Java processes so that a starting target JVM is noticed
+ * as soon as it creates its performance data file, rather than on the next polling interval.
+ * Falls back to plain waiting when the directories cannot be watched.
+ */
+public class TargetProcessWatcher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TargetProcessWatcher.class);
+    private static final String HSPERFDATA_PREFIX = "hsperfdata_";
+
+    private final Path tempDir;
+    private WatchService watchService;
+
+    public TargetProcessWatcher() {
+        this(Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    public TargetProcessWatcher(Path tempDir) {
+        this.tempDir = tempDir;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            // Watch the temp directory for new hsperfdata_<user> directories and each existing one for new processes
+            tempDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+            try (DirectoryStream<Path> dirs = Files.newDirectoryStream(tempDir, HSPERFDATA_PREFIX + "*")) {
+                for (Path dir : dirs) {
+                    registerHsperfdataDir(dir);
+                }
+            }
+            logger.debug("Watching {} for new Java processes", tempDir);
+        } catch (IOException e) {
+            logger.debug("Cannot watch {} for new Java processes, falling back to polling: {}", tempDir, e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Wait until a new Java process may have appeared or the timeout elapses.
+     * 
+     * @return true if a new process entry was observed, false on timeout
+     */
+    public boolean awaitChange(Duration timeout) throws InterruptedException {
+        if (watchService == null) {
+            Thread.sleep(timeout.toMillis());
+            return false;
+        }
+
+        WatchKey key = watchService.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        if (key == null) {
+            return false;
+        }
+
+        boolean changed = false;
+        Path watched = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+                continue;
+            }
+            Path created = watched.resolve((Path) event.context());
+            if (watched.equals(tempDir)) {
+                if (created.getFileName().toString().startsWith(HSPERFDATA_PREFIX)) {
+                    registerHsperfdataDir(created);
+                    changed = true;
+                }
+            } else {
+                logger.debug("New Java process entry detected: {}", created);
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void registerHsperfdataDir(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException e) {
+            logger.debug("Cannot watch {}: {}", dir, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing watch service: {}", e.getMessage());
+            } finally {
+                watchService = null;
+            }
+        }
+    }
+}
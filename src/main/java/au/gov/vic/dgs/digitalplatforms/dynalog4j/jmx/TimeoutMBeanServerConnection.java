@@ -0,0 +1,78 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx;
+
+import javax.management.MBeanServerConnection;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Wraps an MBeanServerConnection so that every call runs on the JMX I/O executor and fails with a
+ * {@link JMXTimeoutException} if it does not complete in time, rather than blocking the caller indefinitely.
+ */
+final class TimeoutMBeanServerConnection implements InvocationHandler {
+    private final MBeanServerConnection delegate;
+    private final ExecutorService executor;
+    private final Duration timeout;
+    private final Runnable onTimeout;
+
+    private TimeoutMBeanServerConnection(MBeanServerConnection delegate, ExecutorService executor, Duration timeout, Runnable onTimeout) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeout = timeout;
+        this.onTimeout = onTimeout;
+    }
+
+    static MBeanServerConnection wrap(MBeanServerConnection delegate, ExecutorService executor, Duration timeout, Runnable onTimeout) {
+        return (MBeanServerConnection) Proxy.newProxyInstance(
+            MBeanServerConnection.class.getClassLoader(),
+            new Class<?>[]{MBeanServerConnection.class},
+            new TimeoutMBeanServerConnection(delegate, executor, timeout, onTimeout));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(delegate, args);
+        }
+
+        Future<Object> future = executor.submit(() -> {
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw unwrap(e);
+            }
+        });
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            onTimeout.run();
+            throw new JMXTimeoutException("JMX call " + method.getName() + " timed out after " + timeout.toMillis() + "ms");
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during JMX call " + method.getName());
+        }
+    }
+
+    private static Exception unwrap(InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception exception) {
+            return exception;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return e;
+    }
+}
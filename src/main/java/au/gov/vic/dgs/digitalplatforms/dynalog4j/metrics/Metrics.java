@@ -0,0 +1,102 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide registry of simple numeric metrics (counters, values and computed gauges).
+ * Metrics are exposed through the sidecar's own platform MBean server once {@link #registerMBean()} is called.
+ */
+public final class Metrics implements MetricsMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+    private static final String OBJECT_NAME = "au.gov.vic.dgs.digitalplatforms.dynalog4j:type=Metrics";
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final Map<String, AtomicLong> values = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Increment a counter by one.
+     */
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    /**
+     * Add a delta to a counter.
+     */
+    public void add(String name, long delta) {
+        values.computeIfAbsent(name, key -> new AtomicLong()).addAndGet(delta);
+    }
+
+    /**
+     * Set a value metric.
+     */
+    public void set(String name, long value) {
+        values.computeIfAbsent(name, key -> new AtomicLong()).set(value);
+    }
+
+    /**
+     * Register a gauge that is computed each time metrics are read.
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Get the current value of a metric, or 0 if it has never been recorded.
+     */
+    public long get(String name) {
+        LongSupplier gauge = gauges.get(name);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+        AtomicLong value = values.get(name);
+        return value != null ? value.get() : 0;
+    }
+
+    @Override
+    public Map<String, Long> getValues() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        values.forEach((name, value) -> snapshot.put(name, value.get()));
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.getAsLong()));
+        return snapshot;
+    }
+
+    /**
+     * Expose the metrics on the platform MBean server so they can be read with any JMX client.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(this, objectName);
+                logger.debug("Registered metrics MBean: {}", objectName);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to register metrics MBean: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Metrics" + getValues();
+    }
+}
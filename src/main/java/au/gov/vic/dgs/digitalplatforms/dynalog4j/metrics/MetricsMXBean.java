@@ -0,0 +1,13 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing DynaLog4J's own metrics over JMX.
+ */
+public interface MetricsMXBean {
+    /**
+     * Get a snapshot of all metrics keyed by name.
+     */
+    Map<String, Long> getValues();
+}
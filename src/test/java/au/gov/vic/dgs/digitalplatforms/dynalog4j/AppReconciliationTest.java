@@ -2,19 +2,26 @@ package au.gov.vic.dgs.digitalplatforms.dynalog4j;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.AsyncBackend;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.backend.Backend;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.config.AppConfiguration;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.config.ConfigurationReconciler;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx.JMXManager;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx.LoggerContext;
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 /**
@@ -161,4 +168,308 @@ public class AppReconciliationTest {
         verify(mockReconciler, atLeastOnce()).reconcileConfiguration(eq(basicConfigXml), eq(desiredLevels));
         verify(mockJmxManager, atLeastOnce()).setConfigurationText(mockLoggerContext, currentConfigXml);
     }
+
+    @Test
+    void testBootRaceAppliesPreloadedLevelsAsSoonAsLoggerContextRegisters() throws Exception {
+        // Arrange
+        config.setBootRace(true);
+        app = new App(config, mockBackend, mockJmxManager, mockReconciler);
+        
+        Map<String, String> desiredLevels = Map.of("com.example.Service", "DEBUG");
+        when(mockBackend.fetchDesiredLevels()).thenReturn(desiredLevels);
+        
+        // Target is not attachable at first, then its LoggerContext registers on the second wait
+        when(mockJmxManager.isConnected()).thenReturn(false, false, true);
+        doThrow(new Exception("No attachable Java processes found")).doNothing().when(mockJmxManager).connect();
+        when(mockJmxManager.awaitLoggerContexts(any())).thenReturn(List.of(), List.of(mockLoggerContext));
+        when(mockJmxManager.selectLoggerContext(any())).thenReturn(mockLoggerContext);
+        when(mockLoggerContext.getName()).thenReturn("TestContext");
+        
+        when(mockJmxManager.getConfigurationText(mockLoggerContext)).thenReturn(cleanedConfigXml);
+        when(mockReconciler.reconcileConfiguration(cleanedConfigXml, desiredLevels)).thenReturn(currentConfigXml);
+        
+        // Act
+        Thread appThread = new Thread(() -> {
+            try {
+                app.start();
+            } catch (Exception e) {
+                // Expected since we'll interrupt the thread
+            }
+        });
+        
+        appThread.start();
+        Thread.sleep(1000); // Allow time for the connect retry and first apply
+        appThread.interrupt();
+        appThread.join(1000);
+        
+        // Assert - levels were preloaded before the target was attached, then applied
+        InOrder inOrder = inOrder(mockBackend, mockJmxManager);
+        inOrder.verify(mockBackend).fetchDesiredLevels();
+        inOrder.verify(mockJmxManager, times(2)).connect();
+        inOrder.verify(mockJmxManager).setConfigurationText(mockLoggerContext, currentConfigXml);
+        assertThat(Metrics.getInstance().getValues()).containsKey("first_apply_latency_ms");
+    }
+
+    @Test
+    void testUnchangedDesiredLevelsAreVerifiedWithoutFetchingConfiguration() throws Exception {
+        // Arrange
+        when(mockJmxManager.isConnected()).thenReturn(false, true);
+        when(mockJmxManager.discoverLoggerContexts()).thenReturn(List.of(mockLoggerContext));
+        when(mockJmxManager.selectLoggerContext(any())).thenReturn(mockLoggerContext);
+        when(mockLoggerContext.getName()).thenReturn("TestContext");
+        
+        Map<String, String> desiredLevels = Map.of("com.example.Service", "DEBUG");
+        when(mockBackend.fetchDesiredLevels()).thenReturn(desiredLevels);
+        when(mockJmxManager.getConfigurationText(mockLoggerContext)).thenReturn(cleanedConfigXml);
+        when(mockReconciler.reconcileConfiguration(cleanedConfigXml, desiredLevels)).thenReturn(currentConfigXml);
+        
+        // Post-apply verification and the following cycle find no drift
+        when(mockJmxManager.findLevelDrift(mockLoggerContext, desiredLevels)).thenReturn(Set.of());
+        
+        // Act - run the first cycle, then wake the loop for a second one
+        Thread appThread = new Thread(() -> {
+            try {
+                app.start();
+            } catch (Exception e) {
+                // Expected since we'll interrupt the thread
+            }
+        });
+        
+        appThread.start();
+        Thread.sleep(200);
+        app.requestReconcile();
+        Thread.sleep(200);
+        appThread.interrupt();
+        appThread.join(1000);
+        
+        // Assert - configuration text was only fetched and applied once
+        verify(mockBackend, times(2)).fetchDesiredLevels();
+        verify(mockJmxManager, times(1)).getConfigurationText(mockLoggerContext);
+        verify(mockJmxManager, times(1)).setConfigurationText(mockLoggerContext, currentConfigXml);
+        verify(mockJmxManager, times(2)).findLevelDrift(mockLoggerContext, desiredLevels);
+    }
+
+    @Test
+    void testImmutableBackendIsOnlyFetchedOnce() throws Exception {
+        // Arrange
+        when(mockJmxManager.isConnected()).thenReturn(false, true);
+        when(mockJmxManager.discoverLoggerContexts()).thenReturn(List.of(mockLoggerContext));
+        when(mockJmxManager.selectLoggerContext(any())).thenReturn(mockLoggerContext);
+        when(mockLoggerContext.getName()).thenReturn("TestContext");
+        
+        Map<String, String> desiredLevels = Map.of("com.example.Service", "DEBUG");
+        when(mockBackend.isImmutable()).thenReturn(true);
+        when(mockBackend.fetchDesiredLevels()).thenReturn(desiredLevels);
+        when(mockJmxManager.getConfigurationText(mockLoggerContext)).thenReturn(cleanedConfigXml);
+        when(mockReconciler.reconcileConfiguration(cleanedConfigXml, desiredLevels)).thenReturn(currentConfigXml);
+        when(mockJmxManager.findLevelDrift(mockLoggerContext, desiredLevels)).thenReturn(Set.of());
+        
+        // Act - run the first cycle, then wake the loop for two more
+        Thread appThread = new Thread(() -> {
+            try {
+                app.start();
+            } catch (Exception e) {
+                // Expected since we'll interrupt the thread
+            }
+        });
+        
+        appThread.start();
+        Thread.sleep(200);
+        app.requestReconcile();
+        Thread.sleep(200);
+        app.requestReconcile();
+        Thread.sleep(200);
+        appThread.interrupt();
+        appThread.join(1000);
+        
+        // Assert - later cycles only check the levels are still in effect
+        verify(mockBackend, times(1)).fetchDesiredLevels();
+        verify(mockJmxManager, times(1)).setConfigurationText(mockLoggerContext, currentConfigXml);
+        verify(mockJmxManager, times(3)).findLevelDrift(mockLoggerContext, desiredLevels);
+    }
+
+    @Test
+    void testDriftTriggersFullReconciliation() throws Exception {
+        // Arrange
+        when(mockJmxManager.isConnected()).thenReturn(false, true);
+        when(mockJmxManager.discoverLoggerContexts()).thenReturn(List.of(mockLoggerContext));
+        when(mockJmxManager.selectLoggerContext(any())).thenReturn(mockLoggerContext);
+        when(mockLoggerContext.getName()).thenReturn("TestContext");
+        
+        Map<String, String> desiredLevels = Map.of("com.example.Service", "DEBUG");
+        when(mockBackend.fetchDesiredLevels()).thenReturn(desiredLevels);
+        when(mockJmxManager.getConfigurationText(mockLoggerContext)).thenReturn(cleanedConfigXml);
+        when(mockReconciler.reconcileConfiguration(cleanedConfigXml, desiredLevels)).thenReturn(currentConfigXml);
+        
+        // Verified after the first apply, then someone resets the logger in the target
+        when(mockJmxManager.findLevelDrift(mockLoggerContext, desiredLevels))
+            .thenReturn(Set.of())
+            .thenReturn(Set.of("com.example.Service"))
+            .thenReturn(Set.of());
+        
+        // Act
+        Thread appThread = new Thread(() -> {
+            try {
+                app.start();
+            } catch (Exception e) {
+                // Expected since we'll interrupt the thread
+            }
+        });
+        
+        appThread.start();
+        Thread.sleep(200);
+        app.requestReconcile();
+        Thread.sleep(200);
+        appThread.interrupt();
+        appThread.join(1000);
+        
+        // Assert - the drift caused the configuration to be fetched and applied again
+        verify(mockJmxManager, times(2)).getConfigurationText(mockLoggerContext);
+        verify(mockJmxManager, times(2)).setConfigurationText(mockLoggerContext, currentConfigXml);
+    }
+
+    @Test
+    void testAgentModeSendsOnlyChangedLevels() throws Exception {
+        // Arrange
+        config.setAgentMode(true);
+        when(mockJmxManager.isConnected()).thenReturn(false, true);
+        when(mockJmxManager.discoverLoggerContexts()).thenReturn(List.of(mockLoggerContext));
+        when(mockJmxManager.selectLoggerContext(any())).thenReturn(mockLoggerContext);
+        when(mockLoggerContext.getName()).thenReturn("TestContext");
+        when(mockJmxManager.ensureLevelAgent()).thenReturn(true);
+        when(mockJmxManager.findLevelDrift(eq(mockLoggerContext), any())).thenReturn(Set.of());
+        
+        Map<String, String> initialLevels = Map.of("com.example.Service", "DEBUG", "com.example.Other", "WARN");
+        Map<String, String> updatedLevels = Map.of("com.example.Service", "TRACE");
+        when(mockBackend.fetchDesiredLevels()).thenReturn(initialLevels, updatedLevels);
+        
+        // Act - run the first cycle, then wake the loop for a second one
+        Thread appThread = new Thread(() -> {
+            try {
+                app.start();
+            } catch (Exception e) {
+                // Expected since we'll interrupt the thread
+            }
+        });
+        
+        appThread.start();
+        Thread.sleep(200);
+        app.requestReconcile();
+        Thread.sleep(200);
+        appThread.interrupt();
+        appThread.join(1000);
+        
+        // Assert - everything is sent first, then only the change and the removed override
+        Map<String, String> expectedDelta = new HashMap<>();
+        expectedDelta.put("com.example.Service", "TRACE");
+        expectedDelta.put("com.example.Other", null);
+        verify(mockJmxManager).applyLevelsViaAgent(mockLoggerContext, initialLevels, true);
+        verify(mockJmxManager).applyLevelsViaAgent(mockLoggerContext, expectedDelta, false);
+        verify(mockJmxManager, never()).getConfigurationText(any());
+        verify(mockJmxManager, never()).setConfigurationText(any(), any());
+    }
+
+    @Test
+    void testAgentModeFallsBackToConfigurationTextWhenAgentUnavailable() throws Exception {
+        // Arrange
+        config.setAgentMode(true);
+        when(mockJmxManager.isConnected()).thenReturn(false, true);
+        when(mockJmxManager.discoverLoggerContexts()).thenReturn(List.of(mockLoggerContext));
+        when(mockJmxManager.selectLoggerContext(any())).thenReturn(mockLoggerContext);
+        when(mockLoggerContext.getName()).thenReturn("TestContext");
+        when(mockJmxManager.ensureLevelAgent()).thenReturn(false);
+        
+        Map<String, String> desiredLevels = Map.of("com.example.Service", "DEBUG");
+        when(mockBackend.fetchDesiredLevels()).thenReturn(desiredLevels);
+        when(mockJmxManager.getConfigurationText(mockLoggerContext)).thenReturn(cleanedConfigXml);
+        when(mockReconciler.reconcileConfiguration(cleanedConfigXml, desiredLevels)).thenReturn(currentConfigXml);
+        
+        // Act
+        Thread appThread = new Thread(() -> {
+            try {
+                app.start();
+            } catch (Exception e) {
+                // Expected since we'll interrupt the thread
+            }
+        });
+        
+        appThread.start();
+        Thread.sleep(200);
+        appThread.interrupt();
+        appThread.join(1000);
+        
+        // Assert
+        verify(mockJmxManager, never()).applyLevelsViaAgent(any(), any(), anyBoolean());
+        verify(mockJmxManager).setConfigurationText(mockLoggerContext, currentConfigXml);
+    }
+
+    @Test
+    void testAsyncBackendLevelsAreAppliedWithoutBlockingFetch() throws Exception {
+        // Arrange
+        AsyncBackend asyncBackend = mock(AsyncBackend.class);
+        app = new App(config, asyncBackend, mockJmxManager, mockReconciler);
+        when(mockJmxManager.isConnected()).thenReturn(false, true);
+        when(mockJmxManager.discoverLoggerContexts()).thenReturn(List.of(mockLoggerContext));
+        when(mockJmxManager.selectLoggerContext(any())).thenReturn(mockLoggerContext);
+        when(mockLoggerContext.getName()).thenReturn("TestContext");
+        
+        Map<String, String> desiredLevels = Map.of("com.example.Service", "DEBUG");
+        when(asyncBackend.fetchDesiredLevelsAsync()).thenReturn(CompletableFuture.completedFuture(desiredLevels));
+        when(mockJmxManager.getConfigurationText(mockLoggerContext)).thenReturn(cleanedConfigXml);
+        when(mockReconciler.reconcileConfiguration(cleanedConfigXml, desiredLevels)).thenReturn(currentConfigXml);
+        
+        // Act
+        Thread appThread = new Thread(() -> {
+            try {
+                app.start();
+            } catch (Exception e) {
+                // Expected since we'll interrupt the thread
+            }
+        });
+        
+        appThread.start();
+        Thread.sleep(200);
+        appThread.interrupt();
+        appThread.join(1000);
+        
+        // Assert
+        verify(asyncBackend, atLeastOnce()).fetchDesiredLevelsAsync();
+        verify(asyncBackend, never()).fetchDesiredLevels();
+        verify(mockJmxManager).setConfigurationText(mockLoggerContext, currentConfigXml);
+    }
+
+    @Test
+    void testLoopWakesWhenOverrideExpires() throws Exception {
+        // Arrange - the override expires long before the next regular cycle
+        config.setReconcileIntervalSeconds(60L);
+        when(mockJmxManager.isConnected()).thenReturn(false, true);
+        when(mockJmxManager.discoverLoggerContexts()).thenReturn(List.of(mockLoggerContext));
+        when(mockJmxManager.selectLoggerContext(any())).thenReturn(mockLoggerContext);
+        when(mockLoggerContext.getName()).thenReturn("TestContext");
+        
+        Map<String, String> desiredLevels = Map.of("com.example.Service", "DEBUG");
+        when(mockBackend.fetchDesiredLevels()).thenReturn(desiredLevels, Map.of());
+        when(mockBackend.getExpiries())
+            .thenReturn(Map.of("com.example.Service", Instant.now().plusMillis(300)), Map.of());
+        when(mockJmxManager.getConfigurationText(mockLoggerContext)).thenReturn(currentConfigXml);
+        when(mockReconciler.reconcileConfiguration(eq(currentConfigXml), any())).thenReturn(cleanedConfigXml);
+        
+        // Act
+        Thread appThread = new Thread(() -> {
+            try {
+                app.start();
+            } catch (Exception e) {
+                // Expected since we'll interrupt the thread
+            }
+        });
+        
+        appThread.start();
+        Thread.sleep(800);
+        appThread.interrupt();
+        appThread.join(1000);
+        
+        // Assert - a second cycle ran at the expiry and applied the levels without the expired override
+        verify(mockBackend, times(2)).fetchDesiredLevels();
+        verify(mockReconciler).reconcileConfiguration(currentConfigXml, Map.of());
+    }
 }
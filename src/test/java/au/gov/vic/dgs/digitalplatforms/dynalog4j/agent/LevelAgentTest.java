@@ -0,0 +1,121 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.agent;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LevelAgentTest {
+
+    private LoggerContext context;
+    private LevelAgent agent;
+
+    @BeforeEach
+    void setUp() {
+        context = (LoggerContext) LogManager.getContext(false);
+        Instrumentation instrumentation = mock(Instrumentation.class);
+        when(instrumentation.getAllLoadedClasses()).thenReturn(new Class<?>[]{String.class, LogManager.class});
+        agent = new LevelAgent(instrumentation);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Revert everything the test applied
+        agent.applyLevels(context.getName(), new String[0], new String[0], true);
+    }
+
+    @Test
+    void testAddsAndRevertsLoggerConfiguration() {
+        // When
+        int changed = agent.applyLevels(context.getName(),
+            new String[]{"levelagent.test.added"}, new String[]{"debug"}, false);
+
+        // Then - the new logger config applies to child loggers
+        assertThat(changed).isEqualTo(1);
+        assertThat(context.getConfiguration().getLoggers()).containsKey("levelagent.test.added");
+        assertThat(LogManager.getLogger("levelagent.test.added.Child").isDebugEnabled()).isTrue();
+
+        // When - the override is removed
+        changed = agent.applyLevels(context.getName(),
+            new String[]{"levelagent.test.added"}, new String[]{null}, false);
+
+        // Then - the logger config is gone again
+        assertThat(changed).isEqualTo(1);
+        assertThat(context.getConfiguration().getLoggers()).doesNotContainKey("levelagent.test.added");
+        assertThat(LogManager.getLogger("levelagent.test.added.Child").getLevel()).isEqualTo(context.getRootLogger().getLevel());
+    }
+
+    @Test
+    void testReplaceRestoresOriginalLevelOfExistingLogger() {
+        // Given
+        Level originalRootLevel = context.getConfiguration().getRootLogger().getLevel();
+        agent.applyLevels(context.getName(), new String[]{"root"}, new String[]{"ERROR"}, false);
+        assertThat(context.getConfiguration().getRootLogger().getLevel()).isEqualTo(Level.ERROR);
+
+        // When - a full batch without the root logger is applied
+        agent.applyLevels(context.getName(), new String[]{"levelagent.test.other"}, new String[]{"WARN"}, true);
+
+        // Then
+        assertThat(context.getConfiguration().getRootLogger().getLevel()).isEqualTo(originalRootLevel);
+        assertThat(context.getConfiguration().getLoggers()).containsKey("levelagent.test.other");
+    }
+
+    @Test
+    void testUnchangedLevelIsNotCounted() {
+        // Given
+        agent.applyLevels(context.getName(), new String[]{"levelagent.test.same"}, new String[]{"INFO"}, false);
+
+        // When
+        int changed = agent.applyLevels(context.getName(), new String[]{"levelagent.test.same"}, new String[]{"INFO"}, false);
+
+        // Then
+        assertThat(changed).isZero();
+    }
+
+    @Test
+    void testUnknownLevelRejectsWholeBatch() {
+        // When/Then
+        assertThatThrownBy(() -> agent.applyLevels(context.getName(),
+                new String[]{"levelagent.test.valid", "levelagent.test.invalid"}, new String[]{"DEBUG", "LOUD"}, false))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("LOUD");
+        assertThat(context.getConfiguration().getLoggers()).doesNotContainKey("levelagent.test.valid");
+    }
+
+    @Test
+    void testUnknownContextIsRejected() {
+        assertThatThrownBy(() -> agent.applyLevels("no-such-context", new String[]{"root"}, new String[]{"DEBUG"}, false))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("LoggerContext not found");
+    }
+
+    @Test
+    void testAgentJarContainsOnlyAgentClasses(@TempDir Path tempDir) throws Exception {
+        // When
+        Path jar = AgentJar.create(tempDir);
+
+        // Then
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            assertThat(jarFile.getManifest().getMainAttributes().getValue("Agent-Class")).isEqualTo(LevelAgent.class.getName());
+            List<String> entries = new ArrayList<>();
+            jarFile.stream().filter(entry -> entry.getName().endsWith(".class")).forEach(entry -> entries.add(entry.getName()));
+            assertThat(entries).containsExactlyInAnyOrder(
+                "au/gov/vic/dgs/digitalplatforms/dynalog4j/agent/LevelAgent.class",
+                "au/gov/vic/dgs/digitalplatforms/dynalog4j/agent/LevelAgentMBean.class");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AdaptiveRateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void testReadsAreAllowedUntilTheirCostExceedsTheRate() {
+        // Given
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1, nanos::get);
+
+        // When - a read consumed twice the capacity earned per second
+        assertThat(limiter.tryAcquire()).isTrue();
+        limiter.onRead(2);
+
+        // Then - the next read waits until the debt is paid off
+        assertThat(limiter.tryAcquire()).isFalse();
+        nanos.addAndGet(500_000_000L);
+        assertThat(limiter.tryAcquire()).isFalse();
+        nanos.addAndGet(500_000_000L);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void testThrottlingHalvesTheRateAndSuccessfulReadsRestoreIt() {
+        // Given
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(4, nanos::get);
+        limiter.onRead(1);
+
+        // When
+        limiter.onThrottled();
+        limiter.onThrottled();
+
+        // Then - the rate halves per throttle and the next read waits for a read's cost at that rate
+        assertThat(limiter.getRate()).isEqualTo(1);
+        assertThat(limiter.tryAcquire()).isFalse();
+        nanos.addAndGet(2_000_000_000L);
+        assertThat(limiter.tryAcquire()).isTrue();
+
+        // When - reads succeed again
+        for (int i = 0; i < 100; i++) {
+            limiter.onRead(0);
+        }
+
+        // Then
+        assertThat(limiter.getRate()).isEqualTo(4);
+    }
+
+    @Test
+    void testRateIsNeverHalvedBelowMinimum() {
+        // Given
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(1, nanos::get);
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            limiter.onThrottled();
+        }
+
+        // Then
+        assertThat(limiter.getRate()).isEqualTo(0.001);
+    }
+}
@@ -6,6 +6,7 @@ import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
@@ -59,6 +60,24 @@ class BackendFactoryIntegrationTest {
         assertThat(backend).isInstanceOf(FileBackend.class);
     }
 
+    @Test
+    void testCompositeBackendCreationWithLayerTimeouts() throws Exception {
+        // Arrange
+        AppConfiguration config = AppConfiguration.parse(new String[]{"--backend", "composite",
+            "--composite-layers", "env, file:250", "--composite-timeout", "1000"});
+
+        // Act
+        Backend backend = BackendFactory.createBackend(config);
+        List<CompositeBackend.Layer> layers = BackendFactory.createLayers(config);
+
+        // Assert
+        assertThat(backend).isInstanceOf(CompositeBackend.class);
+        assertThat(layers).extracting(CompositeBackend.Layer::name).containsExactly("env", "file");
+        assertThat(layers).extracting(CompositeBackend.Layer::timeout)
+            .containsExactly(Duration.ofSeconds(1), Duration.ofMillis(250));
+        assertThat(layers.get(1).backend()).isInstanceOf(FileBackend.class);
+    }
+
     @Test
     void testEnvBackendDoesNotThrowException() {
         // Act & Assert - EnvBackend should work without throwing exceptions
@@ -106,7 +125,7 @@ class BackendFactoryIntegrationTest {
         when(mockClient.query(any(QueryRequest.class))).thenReturn(mockResponse);
         
         // Act - Create DynamoDB backend with mocked client
-        DynamoDBBackend backend = new DynamoDBBackend("test-table", "test-service", mockClient);
+        DynamoDBBackend backend = new DynamoDBBackend(DynamoDBBackend.Settings.of("test-table", "test-service"), mockClient);
         Map<String, String> result = backend.fetchDesiredLevels();
         
         // Assert
@@ -128,7 +147,7 @@ class BackendFactoryIntegrationTest {
         when(mockClient.query(any(QueryRequest.class))).thenReturn(emptyResponse);
         
         // Act - Create DynamoDB backend with mocked client
-        DynamoDBBackend backend = new DynamoDBBackend("test-table", "test-service", mockClient);
+        DynamoDBBackend backend = new DynamoDBBackend(DynamoDBBackend.Settings.of("test-table", "test-service"), mockClient);
         Map<String, String> result = backend.fetchDesiredLevels();
         
         // Assert
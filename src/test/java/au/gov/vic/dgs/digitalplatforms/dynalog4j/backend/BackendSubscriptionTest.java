@@ -0,0 +1,116 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+class BackendSubscriptionTest {
+
+    /**
+     * Push-capable backend whose changes are signalled by the test.
+     */
+    private static class PushBackend implements Backend {
+        private volatile Runnable changeListener;
+
+        @Override
+        public Map<String, String> fetchDesiredLevels() {
+            return Map.of();
+        }
+
+        @Override
+        public void setChangeListener(Runnable listener) {
+            this.changeListener = listener;
+        }
+
+        void change() {
+            changeListener.run();
+        }
+    }
+
+    @Test
+    void testChangesAreDeliveredOnDedicatedThread() {
+        // Given
+        PushBackend backend = new PushBackend();
+        AtomicReference<String> deliveryThread = new AtomicReference<>();
+        BackendSubscription subscription = backend.subscribe(() -> deliveryThread.set(Thread.currentThread().getName()));
+
+        // When
+        backend.change();
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).until(() -> deliveryThread.get() != null);
+        assertThat(deliveryThread.get()).isEqualTo("dynalog4j-backend-changes");
+        subscription.close();
+    }
+
+    @Test
+    void testFloodOfChangesIsCoalesced() throws Exception {
+        // Given - the first delivery blocks while more changes arrive
+        PushBackend backend = new PushBackend();
+        CountDownLatch firstDelivery = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger deliveries = new AtomicInteger();
+        BackendSubscription subscription = backend.subscribe(() -> {
+            deliveries.incrementAndGet();
+            firstDelivery.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        backend.change();
+        assertThat(firstDelivery.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            backend.change();
+        }
+        release.countDown();
+
+        // Then - the changes made during the first delivery produce exactly one more
+        await().atMost(Duration.ofSeconds(5)).until(() -> deliveries.get() == 2);
+        Thread.sleep(100);
+        assertThat(deliveries.get()).isEqualTo(2);
+        subscription.close();
+    }
+
+    @Test
+    void testCloseDetachesFromBackend() throws Exception {
+        // Given
+        PushBackend backend = new PushBackend();
+        AtomicInteger deliveries = new AtomicInteger();
+        BackendSubscription subscription = backend.subscribe(deliveries::incrementAndGet);
+
+        // When
+        subscription.close();
+        backend.change();
+
+        // Then
+        Thread.sleep(100);
+        assertThat(subscription.isClosed()).isTrue();
+        assertThat(deliveries.get()).isZero();
+    }
+
+    @Test
+    void testPollingBackendNeverDelivers() throws Exception {
+        // Given
+        Backend backend = new EnvBackend();
+
+        // When
+        BackendSubscription subscription = backend.subscribe(() -> fail("Polling backend delivered a change"));
+        backend.fetchDesiredLevels();
+
+        // Then
+        subscription.close();
+        assertThat(subscription.isClosed()).isTrue();
+    }
+}
@@ -0,0 +1,192 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.*;
+
+class CachingBackendTest {
+
+    private static final Duration TTL = Duration.ofSeconds(10);
+    private static final Duration STALE_WHILE_REVALIDATE = Duration.ofSeconds(20);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private CachingBackend cachingBackend;
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        if (cachingBackend != null) {
+            cachingBackend.close();
+        }
+    }
+
+    @Test
+    void testFreshOverridesAreServedFromCache() throws Exception {
+        // Given
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels()).thenReturn(Map.of("root", "WARN"));
+        cachingBackend = new CachingBackend(delegate, TTL, STALE_WHILE_REVALIDATE, nanos::get);
+        cachingBackend.fetchDesiredLevels();
+
+        // When
+        nanos.addAndGet(TTL.toNanos() - 1);
+        Map<String, String> result = cachingBackend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("root", "WARN"));
+        verify(delegate, times(1)).fetchDesiredLevels();
+    }
+
+    @Test
+    void testStaleOverridesAreServedImmediatelyWhileRefreshingInBackground() throws Exception {
+        // Given - the refresh blocks until released
+        CountDownLatch release = new CountDownLatch(1);
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels())
+            .thenReturn(Map.of("root", "WARN"))
+            .thenAnswer(invocation -> {
+                release.await(5, TimeUnit.SECONDS);
+                return Map.of("root", "ERROR");
+            });
+        cachingBackend = new CachingBackend(delegate, TTL, STALE_WHILE_REVALIDATE, nanos::get);
+        AtomicInteger changes = new AtomicInteger();
+        cachingBackend.setChangeListener(changes::incrementAndGet);
+        cachingBackend.fetchDesiredLevels();
+        nanos.addAndGet(TTL.toNanos());
+
+        // When
+        Map<String, String> stale = cachingBackend.fetchDesiredLevels();
+
+        // Then - the stale overrides came back without waiting for the refresh
+        assertThat(stale).containsOnly(entry("root", "WARN"));
+        release.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> changes.get() == 1);
+        assertThat(cachingBackend.fetchDesiredLevels()).containsOnly(entry("root", "ERROR"));
+        verify(delegate, times(2)).fetchDesiredLevels();
+    }
+
+    @Test
+    void testOverridesPastStaleWindowAreFetchedBeforeReturning() throws Exception {
+        // Given
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels())
+            .thenReturn(Map.of("root", "WARN"))
+            .thenReturn(Map.of("root", "ERROR"));
+        cachingBackend = new CachingBackend(delegate, TTL, STALE_WHILE_REVALIDATE, nanos::get);
+        cachingBackend.fetchDesiredLevels();
+
+        // When
+        nanos.addAndGet(TTL.plus(STALE_WHILE_REVALIDATE).toNanos());
+        Map<String, String> result = cachingBackend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("root", "ERROR"));
+    }
+
+    @Test
+    void testPushedChangeWithinTtlReturnsNewOverrides() throws Exception {
+        // Given
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels())
+            .thenReturn(Map.of("root", "WARN"))
+            .thenReturn(Map.of("root", "ERROR"));
+        cachingBackend = new CachingBackend(delegate, TTL, STALE_WHILE_REVALIDATE, nanos::get);
+        AtomicInteger changes = new AtomicInteger();
+        cachingBackend.setChangeListener(changes::incrementAndGet);
+        ArgumentCaptor<Runnable> pushListener = ArgumentCaptor.forClass(Runnable.class);
+        verify(delegate).setChangeListener(pushListener.capture());
+        cachingBackend.fetchDesiredLevels();
+
+        // When - the backend pushes a change well within the TTL
+        nanos.addAndGet(TTL.toNanos() / 10);
+        pushListener.getValue().run();
+        Map<String, String> result = cachingBackend.fetchDesiredLevels();
+
+        // Then
+        assertThat(changes).hasValue(1);
+        assertThat(result).containsOnly(entry("root", "ERROR"));
+        verify(delegate, times(2)).fetchDesiredLevels();
+    }
+
+    @Test
+    void testFailedFetchWithoutCachedOverridesFails() throws Exception {
+        // Given
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels()).thenThrow(new Exception("Backend unavailable"));
+        cachingBackend = new CachingBackend(delegate, TTL, STALE_WHILE_REVALIDATE, nanos::get);
+
+        // When/Then
+        assertThatThrownBy(cachingBackend::fetchDesiredLevels).hasMessage("Backend unavailable");
+    }
+
+    @Test
+    void testConcurrentFetchesShareSingleBackendFetch() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Map.of("root", "WARN");
+        });
+        cachingBackend = new CachingBackend(delegate, TTL, STALE_WHILE_REVALIDATE, nanos::get);
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+
+        try {
+            // When
+            List<Future<Map<String, String>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(cachingBackend::fetchDesiredLevels));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            // Then
+            for (Future<Map<String, String>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsOnly(entry("root", "WARN"));
+            }
+            verify(delegate, times(1)).fetchDesiredLevels();
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWrapsFileBackendUnchanged() throws Exception {
+        // Given
+        Path file = tempDir.resolve("log-levels.yaml");
+        Files.writeString(file, "loggers:\n  root: WARN\n");
+        cachingBackend = new CachingBackend(new FileBackend(file.toString()), TTL, Duration.ZERO, nanos::get);
+        cachingBackend.fetchDesiredLevels();
+        Files.writeString(file, "loggers:\n  root: ERROR\n");
+
+        // When
+        Map<String, String> cached = cachingBackend.fetchDesiredLevels();
+        nanos.addAndGet(TTL.toNanos());
+        Map<String, String> refreshed = cachingBackend.fetchDesiredLevels();
+
+        // Then
+        assertThat(cached).containsOnly(entry("root", "WARN"));
+        assertThat(refreshed).containsOnly(entry("root", "ERROR"));
+    }
+}
@@ -0,0 +1,204 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CompositeBackendTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(200);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CompositeBackend compositeBackend;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (compositeBackend != null) {
+            compositeBackend.close();
+        }
+    }
+
+    @Test
+    void testLaterLayersTakePrecedence() throws Exception {
+        // Given
+        Backend env = mock(Backend.class);
+        when(env.fetchDesiredLevels()).thenReturn(Map.of("root", "INFO", "com.example", "INFO"));
+        Backend file = mock(Backend.class);
+        when(file.fetchDesiredLevels()).thenReturn(Map.of("com.example", "WARN", "com.example.db", "ERROR"));
+        Backend dynamodb = mock(Backend.class);
+        when(dynamodb.fetchDesiredLevels()).thenReturn(Map.of("com.example", "DEBUG"));
+        compositeBackend = new CompositeBackend(List.of(
+            new CompositeBackend.Layer("env", env, TIMEOUT),
+            new CompositeBackend.Layer("file", file, TIMEOUT),
+            new CompositeBackend.Layer("dynamodb", dynamodb, TIMEOUT)));
+
+        // When
+        Map<String, String> result = compositeBackend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(
+            entry("root", "INFO"), entry("com.example", "DEBUG"), entry("com.example.db", "ERROR"));
+        assertThat(compositeBackend.getSources()).containsOnly(
+            entry("root", "env"), entry("com.example", "dynamodb"), entry("com.example.db", "file"));
+    }
+
+    @Test
+    void testImmutableLayerIsOnlyFetchedOnce() throws Exception {
+        // Given
+        Backend env = mock(Backend.class);
+        when(env.isImmutable()).thenReturn(true);
+        when(env.fetchDesiredLevels()).thenReturn(Map.of("root", "INFO"));
+        Backend file = mock(Backend.class);
+        when(file.fetchDesiredLevels()).thenReturn(Map.of("com.example", "DEBUG"), Map.of("com.example", "WARN"));
+        compositeBackend = new CompositeBackend(List.of(
+            new CompositeBackend.Layer("env", env, TIMEOUT),
+            new CompositeBackend.Layer("file", file, TIMEOUT)));
+        compositeBackend.fetchDesiredLevels();
+
+        // When
+        Map<String, String> result = compositeBackend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("root", "INFO"), entry("com.example", "WARN"));
+        assertThat(compositeBackend.isImmutable()).isFalse();
+        verify(env, times(1)).fetchDesiredLevels();
+        verify(file, times(2)).fetchDesiredLevels();
+    }
+
+    @Test
+    void testUnchangedLayersReturnTheSameMerge() throws Exception {
+        // Given
+        LevelOverrides envLevels = LevelOverrides.copyOf(Map.of("root", "INFO"));
+        LevelOverrides fileLevels = LevelOverrides.copyOf(Map.of("com.example", "DEBUG"));
+        Backend env = mock(Backend.class);
+        when(env.fetchDesiredLevels()).thenReturn(envLevels);
+        Backend file = mock(Backend.class);
+        when(file.fetchDesiredLevels()).thenReturn(fileLevels, fileLevels, LevelOverrides.copyOf(Map.of("com.example", "WARN")));
+        compositeBackend = new CompositeBackend(List.of(
+            new CompositeBackend.Layer("env", env, TIMEOUT),
+            new CompositeBackend.Layer("file", file, TIMEOUT)));
+
+        // When
+        Map<String, String> first = compositeBackend.fetchDesiredLevels();
+        Map<String, String> second = compositeBackend.fetchDesiredLevels();
+        Map<String, String> third = compositeBackend.fetchDesiredLevels();
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(third).containsOnly(entry("root", "INFO"), entry("com.example", "WARN"));
+    }
+
+    @Test
+    void testSlowLayerUsesLastGoodOverridesWithoutHoldingUpOthers() throws Exception {
+        // Given - the second fetch from the file layer blocks past its deadline
+        Backend env = mock(Backend.class);
+        when(env.fetchDesiredLevels()).thenReturn(Map.of("root", "INFO"), Map.of("root", "WARN"));
+        Backend file = mock(Backend.class);
+        when(file.fetchDesiredLevels())
+            .thenReturn(Map.of("com.example", "DEBUG"))
+            .thenAnswer(invocation -> {
+                release.await(5, TimeUnit.SECONDS);
+                return Map.of("com.example", "ERROR");
+            });
+        compositeBackend = new CompositeBackend(List.of(
+            new CompositeBackend.Layer("env", env, TIMEOUT),
+            new CompositeBackend.Layer("file", file, TIMEOUT)));
+        compositeBackend.fetchDesiredLevels();
+
+        // When
+        long start = System.nanoTime();
+        Map<String, String> result = compositeBackend.fetchDesiredLevels();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertThat(result).containsOnly(entry("root", "WARN"), entry("com.example", "DEBUG"));
+        assertThat(elapsedMillis).isLessThan(2000);
+    }
+
+    @Test
+    void testSlowLayerIsNotFetchedAgainWhileBusy() throws Exception {
+        // Given
+        AsyncBackend slow = mock(AsyncBackend.class);
+        when(slow.fetchDesiredLevelsAsync()).thenReturn(new CompletableFuture<>());
+        Backend env = mock(Backend.class);
+        when(env.fetchDesiredLevels()).thenReturn(Map.of("root", "INFO"));
+        compositeBackend = new CompositeBackend(List.of(
+            new CompositeBackend.Layer("env", env, TIMEOUT),
+            new CompositeBackend.Layer("slow", slow, TIMEOUT)));
+
+        // When
+        compositeBackend.fetchDesiredLevels();
+        compositeBackend.fetchDesiredLevels();
+
+        // Then
+        verify(slow, times(1)).fetchDesiredLevelsAsync();
+        verify(env, times(2)).fetchDesiredLevels();
+    }
+
+    @Test
+    void testFailingLayerWithoutLastGoodOverridesContributesNothing() throws Exception {
+        // Given
+        Backend env = mock(Backend.class);
+        when(env.fetchDesiredLevels()).thenReturn(Map.of("root", "INFO"));
+        Backend dynamodb = mock(Backend.class);
+        when(dynamodb.fetchDesiredLevels()).thenThrow(new Exception("Table not found"));
+        compositeBackend = new CompositeBackend(List.of(
+            new CompositeBackend.Layer("env", env, TIMEOUT),
+            new CompositeBackend.Layer("dynamodb", dynamodb, TIMEOUT)));
+
+        // When
+        Map<String, String> result = compositeBackend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("root", "INFO"));
+    }
+
+    @Test
+    void testFailsWhenNoLayerReturnsOverrides() throws Exception {
+        // Given
+        Backend dynamodb = mock(Backend.class);
+        when(dynamodb.fetchDesiredLevels()).thenThrow(new Exception("Table not found"));
+        compositeBackend = new CompositeBackend(List.of(new CompositeBackend.Layer("dynamodb", dynamodb, TIMEOUT)));
+
+        // When/Then
+        assertThatThrownBy(compositeBackend::fetchDesiredLevels).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void testExpiredOverrideLetsLowerLayerApply() throws Exception {
+        // Given - the DynamoDB layer's last good override expires after it stops responding
+        Instant expiry = Instant.now().plusMillis(300);
+        Backend env = mock(Backend.class);
+        when(env.fetchDesiredLevels()).thenReturn(Map.of("com.example", "INFO"));
+        Backend dynamodb = mock(Backend.class);
+        when(dynamodb.fetchDesiredLevels())
+            .thenReturn(Map.of("com.example", "DEBUG"))
+            .thenThrow(new Exception("Connection refused"));
+        when(dynamodb.getExpiries()).thenReturn(Map.of("com.example", expiry));
+        compositeBackend = new CompositeBackend(List.of(
+            new CompositeBackend.Layer("env", env, TIMEOUT),
+            new CompositeBackend.Layer("dynamodb", dynamodb, TIMEOUT)));
+        assertThat(compositeBackend.fetchDesiredLevels()).containsOnly(entry("com.example", "DEBUG"));
+        assertThat(compositeBackend.getExpiries()).containsOnly(entry("com.example", expiry));
+
+        // When
+        Thread.sleep(400);
+        Map<String, String> result = compositeBackend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("com.example", "INFO"));
+        assertThat(compositeBackend.getSources()).containsOnly(entry("com.example", "env"));
+        assertThat(compositeBackend.getExpiries()).isEmpty();
+    }
+}
@@ -0,0 +1,129 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryBackendTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DirectoryBackend directoryBackend;
+    // Files are dated in the past, as files outside the racy window, each write a minute later than the last
+    private Instant modified = Instant.now().minus(Duration.ofHours(1));
+
+    @BeforeEach
+    void setUp() {
+        directoryBackend = new DirectoryBackend(tempDir.toString());
+    }
+
+    private void write(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        modified = modified.plus(Duration.ofMinutes(1));
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+    }
+
+    @Test
+    void testMergesFilesInNameOrder() throws Exception {
+        // Arrange
+        write("20-payments.json", "{\"loggers\": {\"com.example.payments\": \"DEBUG\", \"root\": \"ERROR\"}}");
+        write("10-defaults.yaml", """
+            loggers:
+              root: WARN
+              com.example.payments: INFO
+              com.example.orders: INFO
+            """);
+        write("notes.txt", "loggers:\n  root: TRACE\n");
+        write(".10-defaults.yaml", "loggers:\n  root: TRACE\n");
+
+        // Act
+        Map<String, String> result = directoryBackend.fetchDesiredLevels();
+
+        // Assert
+        assertEquals(Map.of("root", "ERROR", "com.example.payments", "DEBUG", "com.example.orders", "INFO"), result);
+    }
+
+    @Test
+    void testUnchangedFilesAreNotReadAgain() throws Exception {
+        // Arrange
+        write("10-defaults.yaml", "loggers:\n  root: WARN\n");
+        write("20-payments.yaml", "loggers:\n  com.example.payments: DEBUG\n");
+        directoryBackend.fetchDesiredLevels();
+        long version = directoryBackend.getSnapshot().getVersion();
+        long readsBefore = Metrics.getInstance().get("directory_files_read");
+
+        // Act
+        Map<String, String> result = directoryBackend.fetchDesiredLevels();
+
+        // Assert
+        assertEquals(Map.of("root", "WARN", "com.example.payments", "DEBUG"), result);
+        assertEquals(version, directoryBackend.getSnapshot().getVersion());
+        assertEquals(readsBefore, Metrics.getInstance().get("directory_files_read"));
+    }
+
+    @Test
+    void testChangedAndRemovedFilesAreApplied() throws Exception {
+        // Arrange
+        write("10-defaults.yaml", "loggers:\n  root: WARN\n");
+        write("20-payments.yaml", "loggers:\n  com.example.payments: DEBUG\n");
+        write("30-orders.yaml", "loggers:\n  com.example.orders: TRACE\n");
+        directoryBackend.fetchDesiredLevels();
+        long version = directoryBackend.getSnapshot().getVersion();
+        long readsBefore = Metrics.getInstance().get("directory_files_read");
+
+        // Act
+        write("20-payments.yaml", "loggers:\n  com.example.payments: ERROR\n");
+        Files.delete(tempDir.resolve("30-orders.yaml"));
+        Map<String, String> result = directoryBackend.fetchDesiredLevels();
+
+        // Assert - only the changed file is read again
+        assertEquals(Map.of("root", "WARN", "com.example.payments", "ERROR"), result);
+        assertEquals(1, Metrics.getInstance().get("directory_files_read") - readsBefore);
+        LevelsDelta delta = directoryBackend.changesSince(version);
+        assertEquals(Map.of("com.example.payments", "ERROR"), delta.getChanged());
+        assertEquals(Set.of("com.example.orders"), delta.getRemoved());
+    }
+
+    @Test
+    void testUnreadableFileKeepsItsLastOverrides() throws Exception {
+        // Arrange
+        write("10-defaults.yaml", "loggers:\n  root: WARN\n");
+        write("20-payments.yaml", "loggers:\n  com.example.payments: DEBUG\n");
+        directoryBackend.fetchDesiredLevels();
+
+        // Act
+        write("10-defaults.yaml", "loggers:\n  root: INFO\n");
+        write("20-payments.yaml", "loggers: [unclosed\n");
+        Map<String, String> result = directoryBackend.fetchDesiredLevels();
+
+        // Assert
+        assertEquals(Map.of("root", "INFO", "com.example.payments", "DEBUG"), result);
+    }
+
+    @Test
+    void testMissingDirectoryReturnsEmptyConfiguration() throws Exception {
+        // Arrange
+        directoryBackend = new DirectoryBackend(tempDir.resolve("missing").toString());
+
+        // Act
+        Map<String, String> result = directoryBackend.fetchDesiredLevels();
+
+        // Assert
+        assertTrue(result.isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DynamoDBAsyncBackendTest {
+
+    @Mock
+    private DynamoDbAsyncClientWrapper mockDynamoDbClient;
+
+    private DynamoDBAsyncBackend backend;
+
+    @BeforeEach
+    void setUp() {
+        backend = new DynamoDBAsyncBackend("test-table", "test-service", mockDynamoDbClient, false);
+    }
+
+    @Test
+    void testFetchDesiredLevelsAsyncCompletesWhenLastPageArrives() throws Exception {
+        // Arrange - overrides split across two pages, the second one still in flight
+        Map<String, AttributeValue> lastKey = Map.of(
+            "service", AttributeValue.builder().s("test-service").build(),
+            "logger", AttributeValue.builder().s("com.example.First").build()
+        );
+        QueryResponse firstPage = QueryResponse.builder()
+            .items(List.of(item("com.example.First", "DEBUG")))
+            .lastEvaluatedKey(lastKey)
+            .build();
+        CompletableFuture<QueryResponse> secondPage = new CompletableFuture<>();
+        when(mockDynamoDbClient.query(any(QueryRequest.class)))
+            .thenReturn(CompletableFuture.completedFuture(firstPage), secondPage);
+
+        // Act
+        CompletableFuture<Map<String, String>> result = backend.fetchDesiredLevelsAsync();
+
+        // Assert - the caller is not held while the second page is in flight
+        assertThat(result).isNotDone();
+        secondPage.complete(QueryResponse.builder().items(List.of(item("com.example.Second", "warn"))).build());
+        assertThat(result.get()).containsOnly(
+            entry("com.example.First", "DEBUG"),
+            entry("com.example.Second", "WARN"));
+        assertThat(result.get()).isInstanceOf(LevelOverrides.class);
+        ArgumentCaptor<QueryRequest> requests = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(mockDynamoDbClient, times(2)).query(requests.capture());
+        assertThat(requests.getAllValues().get(0).projectionExpression()).isEqualTo("#logger, #level, #ttl");
+        assertThat(requests.getAllValues().get(1).exclusiveStartKey()).isEqualTo(lastKey);
+    }
+
+    @Test
+    void testFetchDesiredLevelsThrowsExceptionOnDynamoDbError() {
+        // Arrange
+        when(mockDynamoDbClient.query(any(QueryRequest.class)))
+            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Table not found")));
+
+        // Act & Assert - the synchronous fetch reports the same error as the blocking backend
+        assertThatThrownBy(() -> backend.fetchDesiredLevels())
+            .isInstanceOf(Exception.class)
+            .hasMessageContaining("Failed to query DynamoDB")
+            .hasCauseInstanceOf(RuntimeException.class);
+        assertThat(backend.fetchDesiredLevelsAsync()).isCompletedExceptionally();
+    }
+
+    @Test
+    void testVersionCheckSkipsQueryWhileVersionIsUnchanged() throws Exception {
+        // Arrange
+        DynamoDBAsyncBackend versionedBackend = new DynamoDBAsyncBackend("test-table", "test-service", mockDynamoDbClient, true);
+        when(mockDynamoDbClient.getItem(any(GetItemRequest.class)))
+            .thenReturn(CompletableFuture.completedFuture(versionResponse("1")));
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(CompletableFuture.completedFuture(
+            QueryResponse.builder().items(List.of(item("com.example.Service", "DEBUG"))).build()));
+
+        // Act
+        Map<String, String> first = versionedBackend.fetchDesiredLevelsAsync().get();
+        Map<String, String> second = versionedBackend.fetchDesiredLevelsAsync().get();
+
+        // Assert - the query after the version read is strongly consistent and only runs once
+        assertThat(first).containsOnly(entry("com.example.Service", "DEBUG"));
+        assertThat(second).isEqualTo(first);
+        verify(mockDynamoDbClient, times(2)).getItem(any(GetItemRequest.class));
+        ArgumentCaptor<QueryRequest> query = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(mockDynamoDbClient).query(query.capture());
+        assertThat(query.getValue().consistentRead()).isTrue();
+    }
+
+    private static Map<String, AttributeValue> item(String logger, String level) {
+        return Map.of(
+            "logger", AttributeValue.builder().s(logger).build(),
+            "level", AttributeValue.builder().s(level).build()
+        );
+    }
+
+    private static GetItemResponse versionResponse(String version) {
+        return GetItemResponse.builder()
+            .item(Map.of("version", AttributeValue.builder().n(version).build()))
+            .consumedCapacity(ConsumedCapacity.builder().tableName("test-table").capacityUnits(0.5).build())
+            .build();
+    }
+}
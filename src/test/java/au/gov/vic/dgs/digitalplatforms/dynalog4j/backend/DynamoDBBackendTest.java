@@ -3,18 +3,31 @@ package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -28,7 +41,7 @@ class DynamoDBBackendTest {
 
     @BeforeEach
     void setUp() {
-        backend = new DynamoDBBackend("test-table", "test-service", mockDynamoDbClient);
+        backend = new DynamoDBBackend(DynamoDBBackend.Settings.of("test-table", "test-service"), mockDynamoDbClient);
     }
 
     @Test
@@ -288,12 +301,13 @@ class DynamoDBBackendTest {
     @Test
     void testFetchDesiredLevelsWithTTLItem() throws Exception {
         // Arrange - Items with TTL attributes should still work
+        long ttl = Instant.now().plusSeconds(3600).getEpochSecond();
         List<Map<String, AttributeValue>> items = List.of(
             Map.of(
                 "service", AttributeValue.builder().s("test-service").build(),
                 "logger", AttributeValue.builder().s("com.example.Temporary").build(),
                 "level", AttributeValue.builder().s("DEBUG").build(),
-                "ttl", AttributeValue.builder().n("1672531200").build() // TTL timestamp
+                "ttl", AttributeValue.builder().n(String.valueOf(ttl)).build() // TTL timestamp
             ),
             Map.of(
                 "service", AttributeValue.builder().s("test-service").build(),
@@ -316,10 +330,37 @@ class DynamoDBBackendTest {
         assertThat(result).hasSize(2);
         assertThat(result).containsEntry("com.example.Temporary", "DEBUG");
         assertThat(result).containsEntry("com.example.Permanent", "INFO");
+        assertThat(backend.getExpiries()).containsOnly(entry("com.example.Temporary", Instant.ofEpochSecond(ttl)));
 
         verify(mockDynamoDbClient).query(any(QueryRequest.class));
     }
 
+    @Test
+    void testFetchDesiredLevelsSkipsItemsWhoseTTLHasPassed() throws Exception {
+        // Arrange - DynamoDB has not deleted the expired item yet
+        List<Map<String, AttributeValue>> items = List.of(
+            Map.of(
+                "logger", AttributeValue.builder().s("com.example.Expired").build(),
+                "level", AttributeValue.builder().s("DEBUG").build(),
+                "ttl", AttributeValue.builder().n("1672531200").build()
+            ),
+            Map.of(
+                "logger", AttributeValue.builder().s("com.example.Permanent").build(),
+                "level", AttributeValue.builder().s("INFO").build()
+            )
+        );
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder().items(items).build());
+        long skippedBefore = Metrics.getInstance().get("dynamodb_expired_items_skipped");
+
+        // Act
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Assert
+        assertThat(result).containsOnly(entry("com.example.Permanent", "INFO"));
+        assertThat(backend.getExpiries()).isEmpty();
+        assertThat(Metrics.getInstance().get("dynamodb_expired_items_skipped") - skippedBefore).isEqualTo(1);
+    }
+
     @Test
     void testFetchDesiredLevelsVerifiesCorrectQueryRequest() throws Exception {
         // Arrange
@@ -334,4 +375,406 @@ class DynamoDBBackendTest {
         // Assert - Verify the query was called with correct parameters
         verify(mockDynamoDbClient, times(1)).query(any(QueryRequest.class));
     }
+
+    @Test
+    void testFetchDesiredLevelsFollowsLastEvaluatedKey() throws Exception {
+        // Arrange - overrides split across two pages
+        Map<String, AttributeValue> lastKey = Map.of(
+            "service", AttributeValue.builder().s("test-service").build(),
+            "logger", AttributeValue.builder().s("com.example.First").build()
+        );
+        QueryResponse firstPage = QueryResponse.builder()
+            .items(List.of(Map.of(
+                "logger", AttributeValue.builder().s("com.example.First").build(),
+                "level", AttributeValue.builder().s("DEBUG").build()
+            )))
+            .lastEvaluatedKey(lastKey)
+            .build();
+        QueryResponse secondPage = QueryResponse.builder()
+            .items(List.of(Map.of(
+                "logger", AttributeValue.builder().s("com.example.Second").build(),
+                "level", AttributeValue.builder().s("WARN").build()
+            )))
+            .build();
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(firstPage, secondPage);
+
+        // Act
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Assert - the second request continues from the first page's last key
+        assertThat(result).containsOnly(
+            entry("com.example.First", "DEBUG"),
+            entry("com.example.Second", "WARN"));
+        ArgumentCaptor<QueryRequest> requests = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(mockDynamoDbClient, times(2)).query(requests.capture());
+        assertThat(requests.getAllValues().get(0).hasExclusiveStartKey()).isFalse();
+        assertThat(requests.getAllValues().get(1).exclusiveStartKey()).isEqualTo(lastKey);
+    }
+
+    @Test
+    void testFetchDesiredLevelsUsesProjectedEventuallyConsistentQuery() throws Exception {
+        // Arrange
+        QueryResponse response = QueryResponse.builder()
+            .items(new ArrayList<>())
+            .build();
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(response);
+
+        // Act
+        backend.fetchDesiredLevels();
+
+        // Assert
+        ArgumentCaptor<QueryRequest> request = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(mockDynamoDbClient).query(request.capture());
+        assertThat(request.getValue().projectionExpression()).isEqualTo("#logger, #level, #ttl");
+        assertThat(request.getValue().expressionAttributeNames()).containsOnly(
+            entry("#logger", "logger"),
+            entry("#level", "level"),
+            entry("#ttl", "ttl"));
+        assertThat(request.getValue().consistentRead()).isFalse();
+        assertThat(request.getValue().returnConsumedCapacity()).isEqualTo(ReturnConsumedCapacity.TOTAL);
+    }
+
+    @Test
+    void testFetchDesiredLevelsReportsConsumedCapacity() throws Exception {
+        // Arrange
+        QueryResponse response = QueryResponse.builder()
+            .items(new ArrayList<>())
+            .consumedCapacity(ConsumedCapacity.builder().tableName("test-table").capacityUnits(0.5).build())
+            .build();
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(response);
+        long before = Metrics.getInstance().get("dynamodb_consumed_rcu_milli");
+
+        // Act
+        backend.fetchDesiredLevels();
+
+        // Assert
+        assertThat(Metrics.getInstance().get("dynamodb_consumed_rcu_milli") - before).isEqualTo(500);
+    }
+
+    @Test
+    void testVersionCheckSkipsQueryWhileVersionIsUnchanged() throws Exception {
+        // Arrange
+        DynamoDBBackend versionedBackend = new DynamoDBBackend(
+            DynamoDBBackend.Settings.of("test-table", "test-service").withVersionCheck(true), mockDynamoDbClient);
+        when(mockDynamoDbClient.getItem(any(GetItemRequest.class)))
+            .thenReturn(versionResponse("1"), versionResponse("1"), versionResponse("2"));
+        QueryResponse response = QueryResponse.builder()
+            .items(List.of(Map.of(
+                "logger", AttributeValue.builder().s("com.example.Service").build(),
+                "level", AttributeValue.builder().s("DEBUG").build()
+            )))
+            .consumedCapacity(ConsumedCapacity.builder().tableName("test-table").capacityUnits(2.0).build())
+            .build();
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(response);
+        long savedBefore = Metrics.getInstance().get("dynamodb_saved_rcu_milli");
+
+        // Act
+        Map<String, String> first = versionedBackend.fetchDesiredLevels();
+        Map<String, String> second = versionedBackend.fetchDesiredLevels();
+        versionedBackend.fetchDesiredLevels();
+
+        // Assert - the unchanged version is served from the previous query, the new one queries again
+        assertThat(first).containsOnly(entry("com.example.Service", "DEBUG"));
+        assertThat(second).isEqualTo(first);
+        verify(mockDynamoDbClient, times(3)).getItem(any(GetItemRequest.class));
+        verify(mockDynamoDbClient, times(2)).query(any(QueryRequest.class));
+        // A strongly consistent 2 RCU query saves 1 RCU over an eventually consistent one, minus the 0.5 RCU GetItem
+        assertThat(Metrics.getInstance().get("dynamodb_saved_rcu_milli") - savedBefore).isEqualTo(500);
+    }
+
+    @Test
+    void testOverrideVersionOnlyMovesWhenOverridesChange() throws Exception {
+        // Arrange
+        DynamoDBBackend versionedBackend = new DynamoDBBackend(
+            DynamoDBBackend.Settings.of("test-table", "test-service").withVersionCheck(true), mockDynamoDbClient);
+        when(mockDynamoDbClient.getItem(any(GetItemRequest.class)))
+            .thenReturn(versionResponse("1"), versionResponse("1"), versionResponse("2"));
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(
+            QueryResponse.builder().items(List.of(Map.of(
+                "logger", AttributeValue.builder().s("com.example.Service").build(),
+                "level", AttributeValue.builder().s("DEBUG").build()
+            ))).build(),
+            QueryResponse.builder().items(List.of(Map.of(
+                "logger", AttributeValue.builder().s("com.example.Service").build(),
+                "level", AttributeValue.builder().s("WARN").build()
+            ))).build());
+
+        // Act
+        versionedBackend.fetchDesiredLevels();
+        long first = versionedBackend.getSnapshot().getVersion();
+        versionedBackend.fetchDesiredLevels();
+        long second = versionedBackend.getSnapshot().getVersion();
+        versionedBackend.fetchDesiredLevels();
+        LevelsDelta delta = versionedBackend.changesSince(second);
+
+        // Assert - the cached overrides of the unchanged version keep the version
+        assertThat(second).isEqualTo(first);
+        assertThat(versionedBackend.getSnapshot().getVersion()).isEqualTo(first + 1);
+        assertThat(delta.getChanged()).containsOnly(entry("com.example.Service", "WARN"));
+        assertThat(delta.getRemoved()).isEmpty();
+    }
+
+    @Test
+    void testVersionCheckReadsVersionItemAndQueriesConsistentlyAfterChange() throws Exception {
+        // Arrange
+        DynamoDBBackend versionedBackend = new DynamoDBBackend(
+            DynamoDBBackend.Settings.of("test-table", "test-service").withVersionCheck(true), mockDynamoDbClient);
+        when(mockDynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(versionResponse("7"));
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+            .items(List.of(Map.of(
+                "logger", AttributeValue.builder().s(DynamoDBBackend.VERSION_ITEM_LOGGER).build()
+            )))
+            .build());
+
+        // Act
+        Map<String, String> result = versionedBackend.fetchDesiredLevels();
+
+        // Assert - the version item itself is not treated as an override
+        assertThat(result).isEmpty();
+        ArgumentCaptor<GetItemRequest> getItem = ArgumentCaptor.forClass(GetItemRequest.class);
+        verify(mockDynamoDbClient).getItem(getItem.capture());
+        assertThat(getItem.getValue().key()).containsEntry("logger",
+            AttributeValue.builder().s(DynamoDBBackend.VERSION_ITEM_LOGGER).build());
+        assertThat(getItem.getValue().consistentRead()).isFalse();
+        ArgumentCaptor<QueryRequest> query = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(mockDynamoDbClient).query(query.capture());
+        assertThat(query.getValue().consistentRead()).isTrue();
+    }
+
+    @Test
+    void testVersionCheckWithoutVersionItemAlwaysQueries() throws Exception {
+        // Arrange
+        DynamoDBBackend versionedBackend = new DynamoDBBackend(
+            DynamoDBBackend.Settings.of("test-table", "test-service").withVersionCheck(true), mockDynamoDbClient);
+        when(mockDynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().build());
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+            .items(new ArrayList<>())
+            .build());
+
+        // Act
+        versionedBackend.fetchDesiredLevels();
+        versionedBackend.fetchDesiredLevels();
+
+        // Assert
+        verify(mockDynamoDbClient, times(2)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void testPackedItemDefinesOverridesWithSingleGetItem() throws Exception {
+        // Arrange
+        DynamoDBBackend packedBackend = new DynamoDBBackend(
+            DynamoDBBackend.Settings.of("test-table", "test-service").withPacked(true), mockDynamoDbClient);
+        long ttl = Instant.now().plusSeconds(3600).getEpochSecond();
+        String packed = "{\"loggers\": {\"root\": \"warn\", "
+            + "\"com.example.Debug\": {\"level\": \"DEBUG\", \"ttl\": " + ttl + "}, "
+            + "\"com.example.Expired\": {\"level\": \"TRACE\", \"ttl\": 1672531200}}}";
+        when(mockDynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder()
+            .item(Map.of("overrides", AttributeValue.builder().s(packed).build()))
+            .build());
+
+        // Act
+        Map<String, String> result = packedBackend.fetchDesiredLevels();
+
+        // Assert - per-logger items are not read while the packed item exists
+        assertThat(result).containsOnly(entry("root", "WARN"), entry("com.example.Debug", "DEBUG"));
+        assertThat(packedBackend.getExpiries()).containsOnly(entry("com.example.Debug", Instant.ofEpochSecond(ttl)));
+        ArgumentCaptor<GetItemRequest> getItem = ArgumentCaptor.forClass(GetItemRequest.class);
+        verify(mockDynamoDbClient).getItem(getItem.capture());
+        assertThat(getItem.getValue().key()).containsEntry("logger",
+            AttributeValue.builder().s(DynamoDBBackend.PACKED_ITEM_LOGGER).build());
+        verify(mockDynamoDbClient, never()).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void testPackedLayoutQueriesPerLoggerItemsWithoutPackedItem() throws Exception {
+        // Arrange
+        DynamoDBBackend packedBackend = new DynamoDBBackend(
+            DynamoDBBackend.Settings.of("test-table", "test-service").withPacked(true), mockDynamoDbClient);
+        when(mockDynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().build());
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+            .items(List.of(Map.of(
+                "logger", AttributeValue.builder().s("com.example.Service").build(),
+                "level", AttributeValue.builder().s("DEBUG").build()
+            )))
+            .build());
+
+        // Act
+        Map<String, String> result = packedBackend.fetchDesiredLevels();
+
+        // Assert
+        assertThat(result).containsOnly(entry("com.example.Service", "DEBUG"));
+        verify(mockDynamoDbClient).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void testScopesAreReadWithSingleBatchGetItemAndMergedByPrecedence() throws Exception {
+        // Arrange - the environment scope has per-logger items only
+        DynamoDBBackend scopedBackend = new DynamoDBBackend(
+            DynamoDBBackend.Settings.of("test-table", "test-service")
+                .withPacked(true)
+                .withScopes(List.of("global", "env:prod", "test-service")),
+            mockDynamoDbClient);
+        when(mockDynamoDbClient.batchGetItem(any(BatchGetItemRequest.class))).thenReturn(BatchGetItemResponse.builder()
+            .responses(Map.of("test-table", List.of(
+                packedItem("test-service", "{\"loggers\": {\"com.example.Service\": \"DEBUG\"}}"),
+                packedItem("global", "{\"loggers\": {\"root\": \"WARN\", \"com.example.Service\": \"INFO\", \"com.example.Repo\": \"INFO\"}}"))))
+            .build());
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+            .items(List.of(Map.of(
+                "logger", AttributeValue.builder().s("com.example.Repo").build(),
+                "level", AttributeValue.builder().s("ERROR").build()
+            )))
+            .build());
+
+        // Act
+        Map<String, String> result = scopedBackend.fetchDesiredLevels();
+
+        // Assert - later scopes win
+        assertThat(result).containsOnly(
+            entry("root", "WARN"),
+            entry("com.example.Repo", "ERROR"),
+            entry("com.example.Service", "DEBUG"));
+        ArgumentCaptor<BatchGetItemRequest> batch = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        verify(mockDynamoDbClient).batchGetItem(batch.capture());
+        assertThat(batch.getValue().requestItems().get("test-table").keys())
+            .extracting(key -> key.get("service").s())
+            .containsExactly("global", "env:prod", "test-service");
+        ArgumentCaptor<QueryRequest> query = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(mockDynamoDbClient).query(query.capture());
+        assertThat(query.getValue().expressionAttributeValues().get(":service").s()).isEqualTo("env:prod");
+        verify(mockDynamoDbClient, never()).getItem(any());
+    }
+
+    @Test
+    void testScopesWithoutPackedLayoutAreQueriedWithoutBatchRead() throws Exception {
+        // Arrange
+        DynamoDBBackend scopedBackend = new DynamoDBBackend(
+            DynamoDBBackend.Settings.of("test-table", "test-service").withScopes(List.of("global", "test-service")),
+            mockDynamoDbClient);
+        when(mockDynamoDbClient.query(any(QueryRequest.class)))
+            .thenReturn(QueryResponse.builder()
+                .items(List.of(Map.of(
+                    "logger", AttributeValue.builder().s("root").build(),
+                    "level", AttributeValue.builder().s("WARN").build())))
+                .build())
+            .thenReturn(QueryResponse.builder()
+                .items(List.of(Map.of(
+                    "logger", AttributeValue.builder().s("root").build(),
+                    "level", AttributeValue.builder().s("DEBUG").build())))
+                .build());
+
+        // Act
+        Map<String, String> result = scopedBackend.fetchDesiredLevels();
+
+        // Assert - one query per scope, and no packed items are probed
+        assertThat(result).containsOnly(entry("root", "DEBUG"));
+        ArgumentCaptor<QueryRequest> queries = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(mockDynamoDbClient, times(2)).query(queries.capture());
+        assertThat(queries.getAllValues())
+            .extracting(query -> query.expressionAttributeValues().get(":service").s())
+            .containsExactly("global", "test-service");
+        verify(mockDynamoDbClient, never()).batchGetItem(any(BatchGetItemRequest.class));
+    }
+
+    @Test
+    void testUnchangedScopesAreServedFromScopeCache() throws Exception {
+        // Arrange
+        DynamoDBBackend scopedBackend = new DynamoDBBackend(
+            DynamoDBBackend.Settings.of("test-table", "test-service")
+                .withPacked(true)
+                .withScopes(List.of("global", "test-service")),
+            mockDynamoDbClient);
+        when(mockDynamoDbClient.batchGetItem(any(BatchGetItemRequest.class))).thenReturn(BatchGetItemResponse.builder()
+            .responses(Map.of("test-table", List.of(
+                packedItem("global", "{\"loggers\": {\"root\": \"WARN\"}}"),
+                packedItem("test-service", "{\"loggers\": {\"root\": \"DEBUG\"}}"))))
+            .build());
+        Map<String, String> first = scopedBackend.fetchDesiredLevels();
+        long hitsBefore = Metrics.getInstance().get("dynamodb_scope_cache_hits");
+
+        // Act
+        Map<String, String> second = scopedBackend.fetchDesiredLevels();
+
+        // Assert
+        assertThat(second).isEqualTo(first).containsOnly(entry("root", "DEBUG"));
+        assertThat(Metrics.getInstance().get("dynamodb_scope_cache_hits") - hitsBefore).isEqualTo(2);
+        verify(mockDynamoDbClient, times(2)).batchGetItem(any(BatchGetItemRequest.class));
+        verify(mockDynamoDbClient, never()).query(any());
+    }
+
+    @Test
+    void testThrottledReadServesLastOverridesAndLowersAllowedRate() throws Exception {
+        // Arrange
+        when(mockDynamoDbClient.query(any(QueryRequest.class)))
+            .thenReturn(QueryResponse.builder()
+                .items(List.of(Map.of(
+                    "logger", AttributeValue.builder().s("com.example.Service").build(),
+                    "level", AttributeValue.builder().s("DEBUG").build()
+                )))
+                .build())
+            .thenThrow(ProvisionedThroughputExceededException.builder().message("Rate exceeded").build());
+        Map<String, String> first = backend.fetchDesiredLevels();
+        long throttlesBefore = Metrics.getInstance().get("dynamodb_throttles");
+
+        // Act
+        Map<String, String> second = backend.fetchDesiredLevels();
+
+        // Assert
+        assertThat(second).isEqualTo(first).containsOnly(entry("com.example.Service", "DEBUG"));
+        assertThat(Metrics.getInstance().get("dynamodb_throttles") - throttlesBefore).isEqualTo(1);
+        assertThat(Metrics.getInstance().get("dynamodb_allowed_rcu_milli_per_second"))
+            .isEqualTo(Math.round(DynamoDBBackend.DEFAULT_MAX_READ_RATE * 1000 / 2));
+    }
+
+    @Test
+    void testThrottledReadWithoutPreviousOverridesFails() {
+        // Arrange
+        when(mockDynamoDbClient.query(any(QueryRequest.class)))
+            .thenThrow(ProvisionedThroughputExceededException.builder().message("Rate exceeded").build());
+
+        // Act & Assert
+        assertThatThrownBy(() -> backend.fetchDesiredLevels())
+            .isInstanceOf(Exception.class)
+            .hasMessageContaining("Failed to query DynamoDB");
+    }
+
+    @Test
+    void testRateLimitedCycleSkipsReadUntilCapacityIsEarned() throws Exception {
+        // Arrange - a read consumes 1.3 seconds' worth of the allowed rate
+        DynamoDBBackend limitedBackend = new DynamoDBBackend(
+            DynamoDBBackend.Settings.of("test-table", "test-service").withMaxReadRate(10), mockDynamoDbClient);
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+            .items(List.of(Map.of(
+                "logger", AttributeValue.builder().s("com.example.Service").build(),
+                "level", AttributeValue.builder().s("DEBUG").build()
+            )))
+            .consumedCapacity(ConsumedCapacity.builder().tableName("test-table").capacityUnits(13.0).build())
+            .build());
+        limitedBackend.fetchDesiredLevels();
+
+        // Act
+        Map<String, String> limited = limitedBackend.fetchDesiredLevels();
+
+        // Assert - the limited cycle returned the last overrides without reading, and reads resume once the
+        // bucket is out of debt
+        assertThat(limited).containsOnly(entry("com.example.Service", "DEBUG"));
+        verify(mockDynamoDbClient, times(1)).query(any(QueryRequest.class));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            limitedBackend.fetchDesiredLevels();
+            verify(mockDynamoDbClient, times(2)).query(any(QueryRequest.class));
+        });
+    }
+
+    private static Map<String, AttributeValue> packedItem(String scope, String json) {
+        return Map.of(
+            "service", AttributeValue.builder().s(scope).build(),
+            PackedOverrides.ATTRIBUTE, AttributeValue.builder().s(json).build());
+    }
+
+    private static GetItemResponse versionResponse(String version) {
+        return GetItemResponse.builder()
+            .item(Map.of("version", AttributeValue.builder().n(version).build()))
+            .consumedCapacity(ConsumedCapacity.builder().tableName("test-table").capacityUnits(0.5).build())
+            .build();
+    }
 }
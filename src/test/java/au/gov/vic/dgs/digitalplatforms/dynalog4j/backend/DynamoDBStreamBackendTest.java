@@ -0,0 +1,152 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DynamoDBStreamBackendTest {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    @Mock
+    private DynamoDbClientWrapper mockDynamoDbClient;
+
+    private DynamoDBStreamBackend backend;
+
+    @AfterEach
+    void tearDown() {
+        if (backend != null) {
+            backend.close();
+        }
+    }
+
+    @Test
+    void testStreamChangesUpdateLevelsWithoutQuerying() throws Exception {
+        // Given
+        InMemoryDynamoDbStream stream = new InMemoryDynamoDbStream(true);
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(queryResponse("root", "INFO"));
+        backend = new DynamoDBStreamBackend("test-table", "test-service", mockDynamoDbClient, stream, POLL_INTERVAL);
+        AtomicInteger notifications = new AtomicInteger();
+        backend.setChangeListener(notifications::incrementAndGet);
+        assertThat(backend.fetchDesiredLevels()).containsExactly(Map.entry("root", "INFO"));
+
+        // When
+        stream.put("test-service", "com.example.Service", "DEBUG");
+
+        // Then - the listener is signalled and the change is served without another query
+        await().atMost(Duration.ofSeconds(5)).until(() -> notifications.get() > 0);
+        assertThat(backend.fetchDesiredLevels())
+            .containsEntry("root", "INFO")
+            .containsEntry("com.example.Service", "DEBUG");
+        verify(mockDynamoDbClient, times(1)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void testOtherServicesIgnoredAndRemovalsApplied() throws Exception {
+        // Given
+        InMemoryDynamoDbStream stream = new InMemoryDynamoDbStream(true);
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(queryResponse("com.example.Service", "DEBUG"));
+        backend = new DynamoDBStreamBackend("test-table", "test-service", mockDynamoDbClient, stream, POLL_INTERVAL);
+        AtomicInteger notifications = new AtomicInteger();
+        backend.setChangeListener(notifications::incrementAndGet);
+        backend.fetchDesiredLevels();
+
+        // When
+        stream.put("other-service", "com.example.Other", "TRACE");
+        stream.put("test-service", DynamoDBBackend.VERSION_ITEM_LOGGER, "1");
+        stream.remove("test-service", "com.example.Service");
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).until(() -> notifications.get() > 0);
+        assertThat(backend.fetchDesiredLevels()).isEmpty();
+        assertThat(notifications.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testExpiredIteratorReloadsWithFullQuery() throws Exception {
+        // Given
+        InMemoryDynamoDbStream stream = new InMemoryDynamoDbStream(true);
+        when(mockDynamoDbClient.query(any(QueryRequest.class)))
+            .thenReturn(queryResponse("root", "INFO"))
+            .thenReturn(queryResponse("root", "WARN"));
+        backend = new DynamoDBStreamBackend("test-table", "test-service", mockDynamoDbClient, stream, POLL_INTERVAL);
+        AtomicInteger notifications = new AtomicInteger();
+        backend.setChangeListener(notifications::incrementAndGet);
+        backend.fetchDesiredLevels();
+        long resyncsBefore = Metrics.getInstance().get("dynamodb_stream_resyncs");
+
+        // When
+        stream.expireIterators();
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).until(() -> notifications.get() > 0);
+        assertThat(backend.fetchDesiredLevels()).containsExactly(Map.entry("root", "WARN"));
+        assertThat(Metrics.getInstance().get("dynamodb_stream_resyncs")).isEqualTo(resyncsBefore + 1);
+        verify(mockDynamoDbClient, times(2)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void testFailedShardReadKeepsRecordsOfOtherShards() throws Exception {
+        // Given
+        InMemoryDynamoDbStream stream = new InMemoryDynamoDbStream(true, 2);
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(queryResponse("root", "INFO"));
+        backend = new DynamoDBStreamBackend("test-table", "test-service", mockDynamoDbClient, stream, POLL_INTERVAL);
+        backend.fetchDesiredLevels();
+
+        // When - reading the second shard fails right after the first one returned its records
+        stream.failAfterRecords(1);
+        stream.put(0, "test-service", "com.example.Orders", "DEBUG");
+        stream.put(1, "test-service", "com.example.Payments", "TRACE");
+
+        // Then - the first shard's records are read again once the stream is readable
+        await().atMost(Duration.ofSeconds(10)).until(() -> backend.fetchDesiredLevels().size() == 3);
+        assertThat(backend.fetchDesiredLevels())
+            .containsEntry("com.example.Orders", "DEBUG")
+            .containsEntry("com.example.Payments", "TRACE");
+        verify(mockDynamoDbClient, times(1)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    void testWithoutStreamFallsBackToQueryingEveryFetch() throws Exception {
+        // Given
+        InMemoryDynamoDbStream stream = new InMemoryDynamoDbStream(false);
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(queryResponse("root", "INFO"));
+        backend = new DynamoDBStreamBackend("test-table", "test-service", mockDynamoDbClient, stream, POLL_INTERVAL);
+
+        // When
+        backend.fetchDesiredLevels();
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsExactly(Map.entry("root", "INFO"));
+        verify(mockDynamoDbClient, times(2)).query(any(QueryRequest.class));
+    }
+
+    private static QueryResponse queryResponse(String logger, String level) {
+        return QueryResponse.builder()
+            .items(List.of(Map.of(
+                "service", AttributeValue.builder().s("test-service").build(),
+                "logger", AttributeValue.builder().s(logger).build(),
+                "level", AttributeValue.builder().s(level).build())))
+            .build();
+    }
+}
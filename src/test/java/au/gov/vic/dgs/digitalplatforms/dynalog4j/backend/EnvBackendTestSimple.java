@@ -75,6 +75,21 @@ class EnvBackendTestSimple {
         assertThat(result.isEmpty()).isTrue();
     }
 
+    @Test
+    void testEnvironmentIsOnlyReadOnce() throws Exception {
+        // Arrange
+        environment.set("LOG_LEVEL_com.example.Class1", "DEBUG");
+        Map<String, String> first = envBackend.fetchDesiredLevels();
+        environment.set("LOG_LEVEL_com.example.Class2", "INFO");
+
+        // Act
+        Map<String, String> second = envBackend.fetchDesiredLevels();
+
+        // Assert
+        assertThat(envBackend.isImmutable()).isTrue();
+        assertThat(second).isSameAs(first).containsOnlyKeys("com.example.Class1");
+    }
+
     @Test
     void testFetchDesiredLevelsDoesNotThrowException() {
         // Act & Assert
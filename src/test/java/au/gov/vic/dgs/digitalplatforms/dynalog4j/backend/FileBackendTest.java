@@ -7,6 +7,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -223,4 +224,35 @@ class FileBackendTest {
             assertNotNull(result);
         });
     }
+
+    @Test
+    void testVersionOnlyMovesWhenFileChanges() throws Exception {
+        // Arrange
+        Files.writeString(configFile, """
+            loggers:
+              com.example.Class1: DEBUG
+              com.example.Class2: INFO
+            """);
+        fileBackend = new FileBackend(configFile.toString());
+        fileBackend.fetchDesiredLevels();
+        long initialVersion = fileBackend.getSnapshot().getVersion();
+
+        // Act
+        fileBackend.fetchDesiredLevels();
+        long unchangedVersion = fileBackend.getSnapshot().getVersion();
+        Files.writeString(configFile, """
+            loggers:
+              com.example.Class1: WARN
+              com.example.Class3: ERROR
+            """);
+        fileBackend.fetchDesiredLevels();
+        LevelsDelta delta = fileBackend.changesSince(initialVersion);
+
+        // Assert
+        assertEquals(initialVersion, unchangedVersion);
+        assertEquals(initialVersion + 1, fileBackend.getSnapshot().getVersion());
+        assertFalse(delta.isFull());
+        assertEquals(Map.of("com.example.Class1", "WARN", "com.example.Class3", "ERROR"), delta.getChanged());
+        assertEquals(Set.of("com.example.Class2"), delta.getRemoved());
+    }
 }
@@ -0,0 +1,153 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+class HedgingDynamoDbClientWrapperTest {
+
+    private final LatencyInjectingDynamoDbClientWrapper primary = new LatencyInjectingDynamoDbClientWrapper("DEBUG");
+    private final LatencyInjectingDynamoDbClientWrapper secondary = new LatencyInjectingDynamoDbClientWrapper("WARN");
+    private HedgingDynamoDbClientWrapper hedgingClient;
+
+    @AfterEach
+    void tearDown() {
+        if (hedgingClient != null) {
+            hedgingClient.close();
+        }
+    }
+
+    @Test
+    void testSlowReadIsHedgedToSecondaryAndFasterResponseWins() throws Exception {
+        // Given - fast reads teach the hedge delay and earn hedges
+        hedgingClient = new HedgingDynamoDbClientWrapper(primary, secondary, 95, 0.1);
+        DynamoDBBackend backend = new DynamoDBBackend(DynamoDBBackend.Settings.of("test-table", "test-service"), hedgingClient);
+        warmUp(backend);
+        long winsBefore = Metrics.getInstance().get("dynamodb_hedge_wins");
+        primary.setLatency(Duration.ofSeconds(5));
+
+        // When
+        long start = System.nanoTime();
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Then - the secondary answered long before the primary would have
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(result).containsOnly(entry("com.example.Service", "WARN"));
+        assertThat(secondary.queries()).isEqualTo(1);
+        assertThat(Metrics.getInstance().get("dynamodb_hedge_wins") - winsBefore).isEqualTo(1);
+    }
+
+    @Test
+    void testSlowReadWaitsForPrimaryWhenHedgeBudgetIsSpent() throws Exception {
+        // Given - no hedges are ever earned
+        hedgingClient = new HedgingDynamoDbClientWrapper(primary, secondary, 95, 0);
+        DynamoDBBackend backend = new DynamoDBBackend(DynamoDBBackend.Settings.of("test-table", "test-service"), hedgingClient);
+        warmUp(backend);
+        long overBudgetBefore = Metrics.getInstance().get("dynamodb_hedges_over_budget");
+        primary.setLatency(Duration.ofMillis(200));
+
+        // When
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("com.example.Service", "DEBUG"));
+        assertThat(secondary.queries()).isZero();
+        assertThat(Metrics.getInstance().get("dynamodb_hedges_over_budget") - overBudgetBefore).isEqualTo(1);
+    }
+
+    @Test
+    void testHedgeAnswersWhenPrimaryFails() throws Exception {
+        // Given
+        hedgingClient = new HedgingDynamoDbClientWrapper(primary, secondary, 95, 0.1);
+        DynamoDBBackend backend = new DynamoDBBackend(DynamoDBBackend.Settings.of("test-table", "test-service"), hedgingClient);
+        warmUp(backend);
+        primary.setLatency(Duration.ofMillis(200));
+        primary.setFailure(new IllegalStateException("throttled"));
+        secondary.setLatency(Duration.ofMillis(400));
+
+        // When
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("com.example.Service", "WARN"));
+    }
+
+    @Test
+    void testStronglyConsistentReadsAreNeverHedged() {
+        // Given
+        hedgingClient = new HedgingDynamoDbClientWrapper(primary, secondary, 95, 1);
+        for (int i = 0; i < HedgingDynamoDbClientWrapper.MIN_LATENCY_SAMPLES; i++) {
+            hedgingClient.query(QueryRequest.builder().build());
+        }
+        primary.setLatency(Duration.ofMillis(100));
+
+        // When
+        hedgingClient.query(QueryRequest.builder().consistentRead(true).build());
+
+        // Then
+        assertThat(primary.queries()).isEqualTo(HedgingDynamoDbClientWrapper.MIN_LATENCY_SAMPLES + 1);
+        assertThat(secondary.queries()).isZero();
+    }
+
+    @Test
+    void testCapacityOfLosingReadIsReported() {
+        // Given
+        hedgingClient = new HedgingDynamoDbClientWrapper(primary, secondary, 95, 1);
+        List<Double> lostCapacity = new CopyOnWriteArrayList<>();
+        hedgingClient.setLostReadCapacityListener(lostCapacity::add);
+        for (int i = 0; i < HedgingDynamoDbClientWrapper.MIN_LATENCY_SAMPLES; i++) {
+            hedgingClient.query(QueryRequest.builder().build());
+        }
+        primary.setLatency(Duration.ofMillis(300));
+        primary.setConsumedCapacity(1.5);
+        secondary.setConsumedCapacity(0.5);
+
+        // When
+        var response = hedgingClient.query(QueryRequest.builder().build());
+
+        // Then - the hedge answered and the primary's read is reported once it returns
+        assertThat(response.consumedCapacity().capacityUnits()).isEqualTo(0.5);
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> assertThat(lostCapacity).containsExactly(1.5));
+    }
+
+    @Test
+    void testWritesAreNeverHedged() {
+        // Given
+        hedgingClient = new HedgingDynamoDbClientWrapper(primary, secondary, 95, 1);
+        for (int i = 0; i < HedgingDynamoDbClientWrapper.MIN_LATENCY_SAMPLES; i++) {
+            hedgingClient.query(QueryRequest.builder().build());
+        }
+        primary.setLatency(Duration.ofMillis(100));
+
+        // When
+        hedgingClient.putItem(PutItemRequest.builder().build());
+
+        // Then
+        assertThat(primary.writes()).isEqualTo(1);
+        assertThat(secondary.writes()).isZero();
+    }
+
+    @Test
+    void testRejectsInvalidPercentile() {
+        assertThatThrownBy(() -> new HedgingDynamoDbClientWrapper(primary, secondary, 100, 0.1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void warmUp(DynamoDBBackend backend) throws Exception {
+        for (int i = 0; i < HedgingDynamoDbClientWrapper.MIN_LATENCY_SAMPLES; i++) {
+            backend.fetchDesiredLevels();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+class HttpBackendTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpBackend backend;
+
+    // Overrides served by the stand-in config service, and their ETag
+    private final Object lock = new Object();
+    private String body = "{\"loggers\": {\"com.example.Service\": \"DEBUG\"}}";
+    private String etag = "\"v1\"";
+    private volatile int status = 200;
+    private volatile boolean gzip;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/overrides", this::handle);
+        // Held long-polls must not block other requests
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (backend != null) {
+            backend.close();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    /**
+     * Serve the overrides, holding requests with a wait parameter until they change or the wait elapses.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String query = exchange.getRequestURI().getQuery();
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String responseBody;
+        String responseEtag;
+        synchronized (lock) {
+            if (query != null && query.startsWith("wait=") && etag.equals(ifNoneMatch)) {
+                long deadline = System.currentTimeMillis() + Long.parseLong(query.substring(5)) * 1000;
+                while (etag.equals(ifNoneMatch) && System.currentTimeMillis() < deadline) {
+                    try {
+                        lock.wait(Math.max(1, deadline - System.currentTimeMillis()));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            responseBody = body;
+            responseEtag = etag;
+        }
+
+        if (status != 200) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", responseEtag);
+        if (responseEtag.equals(ifNoneMatch)) {
+            notModifiedResponses.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        fullResponses.incrementAndGet();
+        byte[] bytes = responseBody.getBytes(StandardCharsets.UTF_8);
+        if (gzip && "gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void changeOverrides(String newBody, String newEtag) {
+        synchronized (lock) {
+            body = newBody;
+            etag = newEtag;
+            lock.notifyAll();
+        }
+    }
+
+    private URI overridesUri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/overrides");
+    }
+
+    @Test
+    void testUnchangedOverridesCostNotModified() throws Exception {
+        // Arrange
+        backend = new HttpBackend(overridesUri(), TIMEOUT, null);
+
+        // Act
+        Map<String, String> first = backend.fetchDesiredLevels();
+        long firstVersion = backend.getSnapshot().getVersion();
+        Map<String, String> second = backend.fetchDesiredLevels();
+
+        // Assert
+        assertThat(first).containsOnly(entry("com.example.Service", "DEBUG"));
+        assertThat(second).isEqualTo(first);
+        assertThat(backend.getSnapshot().getVersion()).isEqualTo(firstVersion);
+        assertThat(fullResponses.get()).isEqualTo(1);
+        assertThat(notModifiedResponses.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testChangedOverridesAreFetchedAgain() throws Exception {
+        // Arrange
+        backend = new HttpBackend(overridesUri(), TIMEOUT, null);
+        backend.fetchDesiredLevels();
+
+        // Act
+        changeOverrides("{\"loggers\": {\"com.example.Service\": \"warn\", \"root\": \"bogus\"}}", "\"v2\"");
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Assert - levels are normalised and invalid ones skipped
+        assertThat(result).containsOnly(entry("com.example.Service", "WARN"));
+        assertThat(fullResponses.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testGzipResponseIsDecompressed() throws Exception {
+        // Arrange
+        gzip = true;
+        backend = new HttpBackend(overridesUri(), TIMEOUT, null);
+
+        // Act
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Assert
+        assertThat(result).containsOnly(entry("com.example.Service", "DEBUG"));
+    }
+
+    @Test
+    void testMissingOverridesAreEmptyAndErrorsFail() throws Exception {
+        // Arrange
+        backend = new HttpBackend(overridesUri(), TIMEOUT, null);
+
+        // Act
+        status = 404;
+        Map<String, String> missing = backend.fetchDesiredLevels();
+        status = 503;
+
+        // Assert
+        assertThat(missing).isEmpty();
+        assertThatThrownBy(backend::fetchDesiredLevels).hasMessageContaining("503");
+    }
+
+    @Test
+    void testLongPollDeliversChangeWithoutPolling() throws Exception {
+        // Arrange
+        backend = new HttpBackend(overridesUri(), TIMEOUT, Duration.ofSeconds(30));
+        AtomicInteger changes = new AtomicInteger();
+        backend.setChangeListener(changes::incrementAndGet);
+        backend.fetchDesiredLevels();
+
+        // Act
+        Thread.sleep(200);
+        changeOverrides("{\"loggers\": {\"com.example.Service\": \"ERROR\"}}", "\"v2\"");
+
+        // Assert - the held request returns the change, and fetches use it without a request of their own
+        await().atMost(Duration.ofSeconds(5)).until(() -> changes.get() == 1);
+        int responses = fullResponses.get();
+        assertThat(backend.fetchDesiredLevels()).containsOnly(entry("com.example.Service", "ERROR"));
+        assertThat(fullResponses.get()).isEqualTo(responses);
+    }
+
+    @Test
+    void testLongPollWithoutEtagDoesNotHammerServer() throws Exception {
+        // Arrange - without overrides there is no ETag for the server to hold a long-poll on
+        status = 404;
+        backend = new HttpBackend(overridesUri(), TIMEOUT, Duration.ofSeconds(30));
+
+        // Act
+        backend.fetchDesiredLevels();
+        Thread.sleep(1000);
+
+        // Assert - the fetch and a single long-poll, then the long-poll waits before asking again
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testWaitParameterKeepsExistingQuery() {
+        assertThat(HttpBackend.withWait(URI.create("http://config/overrides"), Duration.ofSeconds(30)))
+            .isEqualTo(URI.create("http://config/overrides?wait=30"));
+        assertThat(HttpBackend.withWait(URI.create("http://config/overrides?service=app"), Duration.ofSeconds(30)))
+            .isEqualTo(URI.create("http://config/overrides?service=app&wait=30"));
+    }
+}
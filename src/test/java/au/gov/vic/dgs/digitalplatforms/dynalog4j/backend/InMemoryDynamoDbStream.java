@@ -0,0 +1,157 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamResponse;
+import software.amazon.awssdk.services.dynamodb.model.ExpiredIteratorException;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorResponse;
+import software.amazon.awssdk.services.dynamodb.model.ListStreamsRequest;
+import software.amazon.awssdk.services.dynamodb.model.ListStreamsResponse;
+import software.amazon.awssdk.services.dynamodb.model.OperationType;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.SequenceNumberRange;
+import software.amazon.awssdk.services.dynamodb.model.Shard;
+import software.amazon.awssdk.services.dynamodb.model.ShardIteratorType;
+import software.amazon.awssdk.services.dynamodb.model.Stream;
+import software.amazon.awssdk.services.dynamodb.model.StreamDescription;
+import software.amazon.awssdk.services.dynamodb.model.StreamRecord;
+import software.amazon.awssdk.services.dynamodb.model.StreamStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DynamoDB stream held in memory, for tests of the streams backend.
+ * Shard iterators are the shard's index and the index of the next record to read in it.
+ */
+class InMemoryDynamoDbStream implements DynamoDbStreamsClientWrapper {
+    static final String STREAM_ARN = "arn:aws:dynamodb:us-east-1:123456789012:table/test-table/stream/test";
+    private static final String SHARD_ID_PREFIX = "shardId-0000000";
+
+    private final List<List<Record>> shards = new ArrayList<>();
+    private final boolean enabled;
+    private boolean expired;
+    // Shard whose next read fails once another shard returned records, -1 for none
+    private int failingShard = -1;
+    private boolean recordsReturned;
+
+    InMemoryDynamoDbStream(boolean enabled) {
+        this(enabled, 1);
+    }
+
+    InMemoryDynamoDbStream(boolean enabled, int shardCount) {
+        this.enabled = enabled;
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+    }
+
+    synchronized void put(String service, String logger, String level) {
+        put(0, service, logger, level);
+    }
+
+    synchronized void put(int shard, String service, String logger, String level) {
+        shards.get(shard).add(record(shard, OperationType.MODIFY, StreamRecord.builder()
+            .keys(keys(service, logger))
+            .newImage(Map.of(
+                "service", AttributeValue.builder().s(service).build(),
+                "logger", AttributeValue.builder().s(logger).build(),
+                "level", AttributeValue.builder().s(level).build()))));
+    }
+
+    synchronized void remove(String service, String logger) {
+        shards.get(0).add(record(0, OperationType.REMOVE, StreamRecord.builder().keys(keys(service, logger))));
+    }
+
+    /**
+     * Fail the next read of the given shard that follows a read of another shard returning records, as a
+     * throttled or dropped request part way through reading the shards.
+     */
+    synchronized void failAfterRecords(int shard) {
+        failingShard = shard;
+        recordsReturned = false;
+    }
+
+    /**
+     * Make every iterator handed out so far invalid, as if the consumer fell behind the stream's retention.
+     */
+    synchronized void expireIterators() {
+        expired = true;
+    }
+
+    @Override
+    public ListStreamsResponse listStreams(ListStreamsRequest request) {
+        return ListStreamsResponse.builder()
+            .streams(enabled ? List.of(Stream.builder().streamArn(STREAM_ARN).tableName(request.tableName()).build()) : List.of())
+            .build();
+    }
+
+    @Override
+    public DescribeStreamResponse describeStream(DescribeStreamRequest request) {
+        return DescribeStreamResponse.builder()
+            .streamDescription(StreamDescription.builder()
+                .streamArn(STREAM_ARN)
+                .streamStatus(StreamStatus.ENABLED)
+                .shards(shardList())
+                .build())
+            .build();
+    }
+
+    @Override
+    public synchronized GetShardIteratorResponse getShardIterator(GetShardIteratorRequest request) {
+        expired = false;
+        int shard = Integer.parseInt(request.shardId().substring(SHARD_ID_PREFIX.length()));
+        int position = request.shardIteratorType() == ShardIteratorType.LATEST ? shards.get(shard).size() : 0;
+        return GetShardIteratorResponse.builder().shardIterator(shard + ":" + position).build();
+    }
+
+    @Override
+    public synchronized GetRecordsResponse getRecords(GetRecordsRequest request) {
+        if (expired) {
+            throw ExpiredIteratorException.builder().message("Iterator expired").build();
+        }
+        String[] iterator = request.shardIterator().split(":");
+        int shard = Integer.parseInt(iterator[0]);
+        int position = Integer.parseInt(iterator[1]);
+        if (shard == failingShard && recordsReturned) {
+            failingShard = -1;
+            throw new IllegalStateException("Rate of requests exceeds the allowed throughput");
+        }
+        List<Record> records = shards.get(shard);
+        if (position < records.size()) {
+            recordsReturned = true;
+        }
+        return GetRecordsResponse.builder()
+            .records(new ArrayList<>(records.subList(position, records.size())))
+            .nextShardIterator(shard + ":" + records.size())
+            .build();
+    }
+
+    private List<Shard> shardList() {
+        List<Shard> list = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            list.add(Shard.builder()
+                .shardId(SHARD_ID_PREFIX + i)
+                .sequenceNumberRange(SequenceNumberRange.builder().startingSequenceNumber("0").build())
+                .build());
+        }
+        return list;
+    }
+
+    private Record record(int shard, OperationType operation, StreamRecord.Builder data) {
+        return Record.builder()
+            .eventName(operation)
+            .dynamodb(data.sequenceNumber(String.valueOf(shards.get(shard).size() + 1)).build())
+            .build();
+    }
+
+    private static Map<String, AttributeValue> keys(String service, String logger) {
+        return Map.of(
+            "service", AttributeValue.builder().s(service).build(),
+            "logger", AttributeValue.builder().s(logger).build());
+    }
+}
@@ -0,0 +1,225 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+class KubernetesBackendTest {
+
+    private static final String PODS_PATH = "/api/v1/namespaces/default/pods";
+    // Queued in place of an event to end the watch response
+    private static final String END_OF_WATCH = "";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private KubernetesBackend backend;
+
+    // State of the fake API server
+    private volatile String pod = pod("100", "com.example=DEBUG");
+    private final BlockingQueue<String> watchEvents = new LinkedBlockingQueue<>();
+    private final List<String> watchVersions = new CopyOnWriteArrayList<>();
+    private final List<Long> watchStarts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger podReads = new AtomicInteger();
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(PODS_PATH, this::handle);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        backend = new KubernetesBackend(URI.create("http://127.0.0.1:" + server.getAddress().getPort()),
+                                        "default", "my-pod", "test-token", HttpClient.newHttpClient(), Duration.ofMillis(50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        backend.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals(PODS_PATH + "/my-pod")) {
+            podReads.incrementAndGet();
+            byte[] body = pod.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            return;
+        }
+
+        String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8);
+        assertThat(query).contains("watch=true", "fieldSelector=metadata.name=my-pod");
+        watchVersions.add(query.replaceAll(".*resourceVersion=([^&]*).*", "$1"));
+        watchStarts.add(System.nanoTime());
+        // Stream the queued events, one JSON object per line, until the end of the watch
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            while (true) {
+                String event = watchEvents.poll(100, TimeUnit.MILLISECONDS);
+                if (END_OF_WATCH.equals(event)) {
+                    return;
+                }
+                if (event != null) {
+                    out.write((event + "\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    private static String pod(String resourceVersion, String levels) {
+        return """
+            {"kind": "Pod", "metadata": {"name": "my-pod", "namespace": "default", "resourceVersion": "%s",
+             "annotations": {"dynalog4j/levels": "%s", "other": "ignored"}}}""".formatted(resourceVersion, levels);
+    }
+
+    private static String event(String type, String object) {
+        return "{\"type\": \"" + type + "\", \"object\": " + object.replace("\n", " ") + "}";
+    }
+
+    @Test
+    void testReadsAnnotationOfOwnPod() throws Exception {
+        // Act
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Assert
+        assertThat(result).containsOnly(entry("com.example", "DEBUG"));
+        assertThat(authorizations).first().isEqualTo("Bearer test-token");
+    }
+
+    @Test
+    void testAnnotationChangeIsPushed() throws Exception {
+        // Arrange
+        AtomicInteger changes = new AtomicInteger();
+        backend.setChangeListener(changes::incrementAndGet);
+        backend.fetchDesiredLevels();
+        long initialVersion = backend.getSnapshot().getVersion();
+
+        // Act
+        watchEvents.add(event("MODIFIED", pod("101", "com.example=DEBUG")));
+        watchEvents.add(event("MODIFIED", pod("102", "com.example=WARN,root=ERROR")));
+
+        // Assert - only the change to the annotation notifies
+        await().atMost(Duration.ofSeconds(5)).until(() -> changes.get() == 1);
+        assertThat(backend.fetchDesiredLevels()).containsOnly(entry("com.example", "WARN"), entry("root", "ERROR"));
+        assertThat(backend.changesSince(initialVersion).getChanged())
+            .containsOnly(entry("com.example", "WARN"), entry("root", "ERROR"));
+        assertThat(watchVersions).containsExactly("100");
+    }
+
+    @Test
+    void testWatchResumesFromLastResourceVersion() throws Exception {
+        // Arrange
+        backend.fetchDesiredLevels();
+        watchEvents.add(event("MODIFIED", pod("105", "com.example=INFO")));
+        watchEvents.add(event("BOOKMARK", "{\"kind\": \"Pod\", \"metadata\": {\"resourceVersion\": \"110\"}}"));
+
+        // Act
+        watchEvents.add(END_OF_WATCH);
+
+        // Assert
+        await().atMost(Duration.ofSeconds(5)).until(() -> watchVersions.size() == 2);
+        assertThat(watchVersions).containsExactly("100", "110");
+        assertThat(podReads.get()).isEqualTo(1);
+        assertThat(backend.fetchDesiredLevels()).containsOnly(entry("com.example", "INFO"));
+    }
+
+    @Test
+    void testExpiredResourceVersionReadsPodAgain() throws Exception {
+        // Arrange
+        AtomicInteger changes = new AtomicInteger();
+        backend.setChangeListener(changes::incrementAndGet);
+        backend.fetchDesiredLevels();
+        pod = pod("200", "com.example=TRACE");
+
+        // Act
+        watchEvents.add(event("ERROR", "{\"kind\": \"Status\", \"code\": 410, \"reason\": \"Expired\"}"));
+
+        // Assert
+        await().atMost(Duration.ofSeconds(5)).until(() -> watchVersions.size() == 2);
+        assertThat(watchVersions).containsExactly("100", "200");
+        assertThat(podReads.get()).isEqualTo(2);
+        assertThat(changes.get()).isEqualTo(1);
+        assertThat(backend.fetchDesiredLevels()).containsOnly(entry("com.example", "TRACE"));
+    }
+
+    @Test
+    void testWatchErrorIsResumedAfterRetryDelay() throws Exception {
+        // Arrange
+        backend.close();
+        backend = new KubernetesBackend(URI.create("http://127.0.0.1:" + server.getAddress().getPort()),
+                                        "default", "my-pod", "test-token", HttpClient.newHttpClient(), Duration.ofMillis(500));
+        backend.fetchDesiredLevels();
+
+        // Act
+        watchEvents.add(event("ERROR", "{\"kind\": \"Status\", \"code\": 500, \"message\": \"etcd unavailable\"}"));
+
+        // Assert - resumed from the same version, but only after the retry delay
+        await().atMost(Duration.ofSeconds(5)).until(() -> watchVersions.size() == 2);
+        assertThat(watchVersions).containsExactly("100", "100");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(watchStarts.get(1) - watchStarts.get(0))).isGreaterThanOrEqualTo(500);
+        assertThat(podReads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testRotatedTokenIsUsedForLaterRequests(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path tokenFile = tempDir.resolve("token");
+        Files.writeString(tokenFile, "first-token\n");
+        backend.close();
+        backend = new KubernetesBackend(URI.create("http://127.0.0.1:" + server.getAddress().getPort()),
+                                        "default", "my-pod", tokenFile, HttpClient.newHttpClient(), Duration.ofMillis(50));
+        backend.fetchDesiredLevels();
+
+        // Act
+        Files.writeString(tokenFile, "second-token\n");
+        watchEvents.add(END_OF_WATCH);
+
+        // Assert
+        await().atMost(Duration.ofSeconds(5)).until(() -> watchVersions.size() == 2);
+        assertThat(authorizations).startsWith("Bearer first-token").endsWith("Bearer second-token");
+    }
+
+    @Test
+    void testParseLevelsSkipsInvalidPairs() {
+        assertThat(KubernetesBackend.parseLevels("com.example=debug, root = WARN\norg.bad=LOUD\nnoLevel\n=INFO,"))
+            .containsOnly(entry("com.example", "DEBUG"), entry("root", "WARN"));
+        assertThat(KubernetesBackend.parseLevels("")).isEmpty();
+    }
+}
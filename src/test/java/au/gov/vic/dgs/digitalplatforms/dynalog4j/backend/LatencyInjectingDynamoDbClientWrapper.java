@@ -0,0 +1,116 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DynamoDbClientWrapper that answers every query with a single override of the given level after a
+ * configurable delay, for tests of latency handling.
+ */
+class LatencyInjectingDynamoDbClientWrapper implements DynamoDbClientWrapper {
+    private final String level;
+    private volatile Duration latency = Duration.ZERO;
+    private volatile RuntimeException failure;
+    private volatile Double consumedCapacity;
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicInteger writes = new AtomicInteger();
+
+    LatencyInjectingDynamoDbClientWrapper(String level) {
+        this.level = level;
+    }
+
+    void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    void setFailure(RuntimeException failure) {
+        this.failure = failure;
+    }
+
+    void setConsumedCapacity(double consumedCapacity) {
+        this.consumedCapacity = consumedCapacity;
+    }
+
+    int queries() {
+        return queries.get();
+    }
+
+    int writes() {
+        return writes.get();
+    }
+
+    @Override
+    public QueryResponse query(QueryRequest request) {
+        queries.incrementAndGet();
+        delay();
+        if (failure != null) {
+            throw failure;
+        }
+        return QueryResponse.builder()
+            .items(List.of(Map.of(
+                "logger", AttributeValue.builder().s("com.example.Service").build(),
+                "level", AttributeValue.builder().s(level).build())))
+            .consumedCapacity(consumedCapacity != null
+                ? ConsumedCapacity.builder().capacityUnits(consumedCapacity).build()
+                : null)
+            .build();
+    }
+
+    @Override
+    public GetItemResponse getItem(GetItemRequest request) {
+        delay();
+        return GetItemResponse.builder().build();
+    }
+
+    @Override
+    public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+        delay();
+        return BatchGetItemResponse.builder().build();
+    }
+
+    @Override
+    public PutItemResponse putItem(PutItemRequest request) {
+        writes.incrementAndGet();
+        delay();
+        return PutItemResponse.builder().build();
+    }
+
+    @Override
+    public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+        writes.incrementAndGet();
+        delay();
+        return DeleteItemResponse.builder().build();
+    }
+
+    @Override
+    public UpdateItemResponse updateItem(UpdateItemRequest request) {
+        writes.incrementAndGet();
+        delay();
+        return UpdateItemResponse.builder().build();
+    }
+
+    private void delay() {
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
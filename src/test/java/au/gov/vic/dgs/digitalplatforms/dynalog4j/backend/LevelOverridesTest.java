@@ -0,0 +1,128 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LevelOverridesTest {
+
+    @Test
+    void testLevelsAreParsedInAnyCase() {
+        assertThat(LogLevel.parse("DEBUG")).isEqualTo(LogLevel.DEBUG);
+        assertThat(LogLevel.parse("warn")).isEqualTo(LogLevel.WARN);
+        assertThat(LogLevel.parse("Info")).isEqualTo(LogLevel.INFO);
+        assertThat(LogLevel.parse("VERBOSE")).isNull();
+        assertThat(LogLevel.parse(" INFO")).isNull();
+        assertThat(LogLevel.parse("")).isNull();
+        assertThat(LogLevel.parse(null)).isNull();
+    }
+
+    @Test
+    void testCopiesShareLoggerNamesAndLevels() {
+        // Given
+        String first = new String("com.example.payments");
+        String second = new String("com.example.payments");
+
+        // When
+        LevelOverrides a = LevelOverrides.copyOf(Map.of(first, new String("DEBUG")));
+        LevelOverrides b = LevelOverrides.copyOf(Map.of(second, new String("DEBUG")));
+
+        // Then
+        assertThat(a.keySet().iterator().next()).isSameAs(b.keySet().iterator().next());
+        assertThat(a.get("com.example.payments")).isSameAs(LogLevel.DEBUG.name());
+        assertThat(a).isEqualTo(b);
+    }
+
+    @Test
+    void testEqualsAndHashCodeMatchOtherMaps() {
+        // Given
+        Map<String, String> levels = new HashMap<>(Map.of("root", "WARN", "com.example", "DEBUG"));
+
+        // When
+        LevelOverrides overrides = LevelOverrides.copyOf(levels);
+
+        // Then
+        assertThat(overrides).isEqualTo(levels);
+        assertThat(levels).isEqualTo(overrides);
+        assertThat(overrides.hashCode()).isEqualTo(levels.hashCode());
+        assertThat(overrides).isNotEqualTo(LevelOverrides.copyOf(Map.of("root", "WARN")));
+        assertThat(overrides).isNotEqualTo(LevelOverrides.copyOf(Map.of("root", "WARN", "com.example", "INFO")));
+    }
+
+    @Test
+    void testBuilderBuildsImmutableOverrides() {
+        // Given
+        LevelOverrides.Builder builder = LevelOverrides.builder()
+                .put("root", LogLevel.WARN)
+                .put("com.example", LogLevel.TRACE);
+
+        // When
+        LevelOverrides overrides = builder.build();
+
+        // Then
+        assertThat(overrides).containsExactlyInAnyOrderEntriesOf(Map.of("root", "WARN", "com.example", "TRACE"));
+        assertThat(LevelOverrides.copyOf(overrides)).isSameAs(overrides);
+        assertThat(LevelOverrides.builder().build()).isSameAs(LevelOverrides.EMPTY);
+        assertThatThrownBy(() -> overrides.put("root", "DEBUG"))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void testCustomLevelsResolveOnceRegistered() {
+        try {
+            // Given
+            assertThat(LogLevel.resolve("VERBOSE")).isNull();
+
+            // When
+            int registered = LogLevel.registerCustomLevels(List.of("Verbose", "NOTICE", "DEBUG", "not-a-level"));
+
+            // Then
+            assertThat(registered).isEqualTo(2);
+            assertThat(LogLevel.resolve("verbose")).isEqualTo("VERBOSE").isSameAs(LogLevel.resolve("Verbose"));
+            assertThat(LogLevel.resolve("notice")).isEqualTo("NOTICE");
+            assertThat(LogLevel.resolve("debug")).isSameAs(LogLevel.DEBUG.name());
+            assertThat(LogLevel.resolve("LOUD")).isNull();
+        } finally {
+            LogLevel.registerCustomLevels(List.of());
+        }
+    }
+
+    @Test
+    void testUnchangedOverridesAreNotCopied() {
+        // Given
+        LevelsHistory history = new LevelsHistory();
+        LevelOverrides overrides = LevelOverrides.copyOf(Map.of("root", "WARN", "com.example", "DEBUG"));
+        VersionedLevels first = history.update(overrides);
+
+        // When
+        VersionedLevels second = history.update(first.getLevels());
+        Map<String, String> unexpired = LevelOverrides.withoutExpired(overrides,
+            Map.of("com.example", Instant.now().plusSeconds(60)), Instant.now());
+
+        // Then
+        assertThat(second).isSameAs(first);
+        assertThat(unexpired).isSameAs(overrides);
+        assertThat(LevelOverrides.withoutExpired(overrides, Map.of("com.example", Instant.now().minusSeconds(1)), Instant.now()))
+            .containsOnly(entry("root", "WARN"));
+    }
+
+    @Test
+    void testWithoutExpiredDropsOverridesExpiredAtTheGivenTime() {
+        // Given
+        Instant now = Instant.parse("2026-01-01T00:00:00Z");
+        Map<String, String> levels = Map.of("com.example.Expired", "DEBUG", "com.example.Later", "TRACE", "root", "WARN");
+        Map<String, Instant> expiries = Map.of("com.example.Expired", now, "com.example.Later", now.plusSeconds(1));
+
+        // When
+        Map<String, String> result = LevelOverrides.withoutExpired(levels, expiries, now);
+
+        // Then
+        assertThat(result).containsOnly(entry("com.example.Later", "TRACE"), entry("root", "WARN"));
+        assertThat(LevelOverrides.expiriesOf(result, expiries)).containsOnlyKeys("com.example.Later");
+    }
+}
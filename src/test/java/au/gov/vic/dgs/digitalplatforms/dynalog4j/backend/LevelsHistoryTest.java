@@ -0,0 +1,80 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LevelsHistoryTest {
+
+    private final LevelsHistory history = new LevelsHistory();
+
+    @Test
+    void testVersionOnlyMovesWhenLevelsChange() {
+        // Given
+        long initial = history.update(Map.of("root", "WARN")).getVersion();
+
+        // When
+        long unchanged = history.update(new HashMap<>(Map.of("root", "WARN"))).getVersion();
+        long changed = history.update(Map.of("root", "ERROR")).getVersion();
+
+        // Then
+        assertThat(unchanged).isEqualTo(initial);
+        assertThat(changed).isEqualTo(initial + 1);
+        assertThat(history.changesSince(changed).isEmpty()).isTrue();
+    }
+
+    @Test
+    void testChangesSinceCombinesDeltas() {
+        // Given
+        long start = history.update(Map.of("a", "DEBUG", "b", "INFO")).getVersion();
+        history.update(Map.of("a", "DEBUG", "b", "WARN", "c", "ERROR"));
+        history.update(Map.of("b", "WARN", "c", "ERROR"));
+        history.update(Map.of("a", "TRACE", "b", "WARN"));
+
+        // When
+        LevelsDelta delta = history.changesSince(start);
+
+        // Then
+        assertThat(delta.isFull()).isFalse();
+        assertThat(delta.getFromVersion()).isEqualTo(start);
+        assertThat(delta.getToVersion()).isEqualTo(start + 3);
+        assertThat(delta.getChanged()).containsOnly(entry("a", "TRACE"), entry("b", "WARN"));
+        assertThat(delta.getRemoved()).containsOnly("c");
+    }
+
+    @Test
+    void testChangesSinceUnknownVersionIsFull() {
+        // Given
+        long start = history.update(Map.of("root", "INFO")).getVersion();
+        for (int i = 0; i <= LevelsHistory.MAX_DELTAS; i++) {
+            history.update(Map.of("root", i % 2 == 0 ? "WARN" : "INFO"));
+        }
+
+        // When
+        LevelsDelta tooOld = history.changesSince(start);
+        LevelsDelta neverSeen = history.changesSince(VersionedLevels.NO_VERSION);
+
+        // Then
+        assertThat(tooOld.isFull()).isTrue();
+        assertThat(tooOld.getChanged()).isEqualTo(history.getSnapshot().getLevels());
+        assertThat(neverSeen.isFull()).isTrue();
+    }
+
+    @Test
+    void testUnchangedSourceKeepsVersionWithoutComparingLevels() {
+        // Given
+        long initial = history.update(Map.of("a", "DEBUG", "b", "INFO")).getVersion();
+
+        // When - an override of the unchanged source expired
+        long sameSize = history.update(Map.of("a", "DEBUG", "b", "INFO"), true).getVersion();
+        long expired = history.update(Map.of("a", "DEBUG"), true).getVersion();
+
+        // Then
+        assertThat(sameSize).isEqualTo(initial);
+        assertThat(expired).isEqualTo(initial + 1);
+        assertThat(history.changesSince(initial).getRemoved()).containsOnly("b");
+    }
+}
@@ -0,0 +1,69 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OverrideSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTripsOverridesExpiriesAndFetchTime() throws Exception {
+        // Given
+        Path file = tempDir.resolve("snapshot.bin");
+        Instant fetchedAt = Instant.ofEpochMilli(1_700_000_000_123L);
+        OverrideSnapshot snapshot = new OverrideSnapshot(
+            Map.of("root", "WARN", "com.example.Service", "DEBUG"),
+            Map.of("com.example.Service", Instant.ofEpochSecond(1_800_000_000L)),
+            fetchedAt);
+
+        // When
+        snapshot.writeTo(file);
+        OverrideSnapshot read = OverrideSnapshot.readFrom(file);
+
+        // Then - only the snapshot file is left in the directory
+        assertThat(read.getLevels()).isEqualTo(snapshot.getLevels());
+        assertThat(read.getExpiries()).isEqualTo(snapshot.getExpiries());
+        assertThat(read.getFetchedAt()).isEqualTo(fetchedAt);
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    void testRejectsCorruptedSnapshot() throws Exception {
+        // Given
+        Path file = tempDir.resolve("snapshot.bin");
+        new OverrideSnapshot(Map.of("root", "WARN"), Map.of(), Instant.now()).writeTo(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(file, bytes);
+
+        // When/Then
+        assertThatThrownBy(() -> OverrideSnapshot.readFrom(file))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("checksum");
+    }
+
+    @Test
+    void testReplacesExistingSnapshot() throws Exception {
+        // Given
+        Path file = tempDir.resolve("snapshot.bin");
+        new OverrideSnapshot(Map.of("root", "WARN"), Map.of(), Instant.now()).writeTo(file);
+
+        // When
+        new OverrideSnapshot(Map.of("root", "ERROR"), Map.of(), Instant.now()).writeTo(file);
+
+        // Then
+        assertThat(OverrideSnapshot.readFrom(file).getLevels()).containsOnly(entry("root", "ERROR"));
+    }
+}
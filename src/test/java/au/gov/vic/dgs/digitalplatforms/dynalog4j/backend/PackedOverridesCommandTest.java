@@ -0,0 +1,131 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import picocli.CommandLine;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PackedOverridesCommandTest {
+
+    @Mock
+    private DynamoDbClientWrapper mockDynamoDbClient;
+
+    @Test
+    void testPackWritesCompressedPackedItemAndBumpsVersion() throws Exception {
+        // Arrange
+        long ttl = Instant.now().plusSeconds(3600).getEpochSecond();
+        when(mockDynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().build());
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+            .items(List.of(
+                item("root", "WARN", null),
+                item("com.example.Debug", "debug", ttl)))
+            .build());
+
+        // Act
+        int exitCode = execute("pack", "--compress");
+
+        // Assert - the packed item decodes back to the per-logger overrides
+        assertThat(exitCode).isZero();
+        ArgumentCaptor<PutItemRequest> put = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(mockDynamoDbClient).putItem(put.capture());
+        Map<String, AttributeValue> packedItem = put.getValue().item();
+        assertThat(packedItem.get("logger").s()).isEqualTo(DynamoDBBackend.PACKED_ITEM_LOGGER);
+        assertThat(packedItem.get("version").n()).isEqualTo("1");
+        assertThat(packedItem.get("overrides").b()).isNotNull();
+        Map<String, String> levels = new HashMap<>();
+        Map<String, Instant> expiries = new HashMap<>();
+        PackedOverrides.decode(packedItem.get("overrides"), levels, expiries);
+        assertThat(levels).containsOnly(entry("root", "WARN"), entry("com.example.Debug", "DEBUG"));
+        assertThat(expiries).containsOnly(entry("com.example.Debug", Instant.ofEpochSecond(ttl)));
+        verify(mockDynamoDbClient, never()).deleteItem(any());
+        verify(mockDynamoDbClient).updateItem(any(UpdateItemRequest.class));
+    }
+
+    @Test
+    void testPackRefusesToReplaceExistingPackedItemWithoutForce() {
+        // Arrange
+        when(mockDynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(packedItemResponse("{\"loggers\": {}}"));
+
+        // Act
+        int exitCode = execute("pack");
+
+        // Assert
+        assertThat(exitCode).isEqualTo(1);
+        verify(mockDynamoDbClient, never()).putItem(any());
+        verify(mockDynamoDbClient, never()).updateItem(any());
+    }
+
+    @Test
+    void testUnpackMakesPerLoggerItemsMatchPackedItem() {
+        // Arrange
+        when(mockDynamoDbClient.getItem(any(GetItemRequest.class)))
+            .thenReturn(packedItemResponse("{\"loggers\": {\"com.example.Service\": \"DEBUG\"}}"));
+        when(mockDynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+            .items(List.of(
+                Map.of("logger", AttributeValue.builder().s("com.example.Service").build()),
+                Map.of("logger", AttributeValue.builder().s("com.example.Stale").build()),
+                Map.of("logger", AttributeValue.builder().s(DynamoDBBackend.VERSION_ITEM_LOGGER).build())))
+            .build());
+
+        // Act
+        int exitCode = execute("unpack");
+
+        // Assert - the stale item and then the packed item are deleted, the version item is kept
+        assertThat(exitCode).isZero();
+        ArgumentCaptor<PutItemRequest> put = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(mockDynamoDbClient).putItem(put.capture());
+        assertThat(put.getValue().item().get("logger").s()).isEqualTo("com.example.Service");
+        assertThat(put.getValue().item().get("level").s()).isEqualTo("DEBUG");
+        ArgumentCaptor<DeleteItemRequest> delete = ArgumentCaptor.forClass(DeleteItemRequest.class);
+        verify(mockDynamoDbClient, times(2)).deleteItem(delete.capture());
+        assertThat(delete.getAllValues()).extracting(request -> request.key().get("logger").s())
+            .containsExactly("com.example.Stale", DynamoDBBackend.PACKED_ITEM_LOGGER);
+        verify(mockDynamoDbClient).updateItem(any(UpdateItemRequest.class));
+    }
+
+    private int execute(String... args) {
+        String[] fullArgs = new String[args.length + 4];
+        System.arraycopy(args, 0, fullArgs, 0, args.length);
+        System.arraycopy(new String[]{"--table-name", "test-table", "--service-name", "test-service"}, 0, fullArgs, args.length, 4);
+        return new CommandLine(new PackedOverridesCommand(mockDynamoDbClient)).execute(fullArgs);
+    }
+
+    private static Map<String, AttributeValue> item(String logger, String level, Long ttl) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("logger", AttributeValue.builder().s(logger).build());
+        item.put("level", AttributeValue.builder().s(level).build());
+        if (ttl != null) {
+            item.put("ttl", AttributeValue.builder().n(String.valueOf(ttl)).build());
+        }
+        return item;
+    }
+
+    private static GetItemResponse packedItemResponse(String json) {
+        return GetItemResponse.builder()
+            .item(Map.of(
+                "logger", AttributeValue.builder().s(DynamoDBBackend.PACKED_ITEM_LOGGER).build(),
+                "overrides", AttributeValue.builder().s(json).build()))
+            .build();
+    }
+}
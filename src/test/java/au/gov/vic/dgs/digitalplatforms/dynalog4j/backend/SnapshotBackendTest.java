@@ -0,0 +1,207 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.backend;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics.Metrics;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SnapshotBackendTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSuccessfulFetchIsWrittenToSnapshot() throws Exception {
+        // Given
+        Path file = tempDir.resolve("snapshot.bin");
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels()).thenReturn(Map.of("root", "WARN"));
+        Backend backend = SnapshotBackend.wrap(delegate, file);
+
+        // When
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("root", "WARN"));
+        assertThat(OverrideSnapshot.readFrom(file).getLevels()).containsOnly(entry("root", "WARN"));
+        assertThat(Metrics.getInstance().get("snapshot_age_seconds")).isBetween(0L, 1L);
+    }
+
+    @Test
+    void testLoadedSnapshotIsAppliedFirstAndBackendFetchedRightAfter() throws Exception {
+        // Given
+        Path file = tempDir.resolve("snapshot.bin");
+        new OverrideSnapshot(Map.of("root", "WARN"), Map.of(), Instant.now().minus(Duration.ofHours(1))).writeTo(file);
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels()).thenReturn(Map.of("root", "ERROR"));
+        Backend backend = SnapshotBackend.wrap(delegate, file);
+        AtomicInteger reconcileRequests = new AtomicInteger();
+        backend.setChangeListener(reconcileRequests::incrementAndGet);
+
+        // When
+        Map<String, String> first = backend.fetchDesiredLevels();
+
+        // Then - the backend was not waited on
+        assertThat(first).containsOnly(entry("root", "WARN"));
+        assertThat(reconcileRequests).hasValue(1);
+        verify(delegate, never()).fetchDesiredLevels();
+        assertThat(Metrics.getInstance().get("snapshot_age_seconds")).isGreaterThanOrEqualTo(3600);
+
+        // When
+        Map<String, String> second = backend.fetchDesiredLevels();
+
+        // Then
+        assertThat(second).containsOnly(entry("root", "ERROR"));
+        assertThat(OverrideSnapshot.readFrom(file).getLevels()).containsOnly(entry("root", "ERROR"));
+    }
+
+    @Test
+    void testFailingBackendFallsBackToSnapshotWithoutExpiredOverrides() throws Exception {
+        // Given
+        Path file = tempDir.resolve("snapshot.bin");
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels())
+            .thenReturn(Map.of("root", "WARN", "com.example.Expired", "DEBUG"))
+            .thenThrow(new Exception("DynamoDB unreachable"));
+        when(delegate.getExpiries()).thenReturn(Map.of("com.example.Expired", Instant.now().plusMillis(50)));
+        Backend backend = SnapshotBackend.wrap(delegate, file);
+        backend.fetchDesiredLevels();
+        long fallbacksBefore = Metrics.getInstance().get("snapshot_fallbacks");
+        Thread.sleep(100);
+
+        // When
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("root", "WARN"));
+        assertThat(Metrics.getInstance().get("snapshot_fallbacks") - fallbacksBefore).isEqualTo(1);
+    }
+
+    @Test
+    void testFailingBackendWithoutSnapshotFails() throws Exception {
+        // Given
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels()).thenThrow(new Exception("DynamoDB unreachable"));
+        Backend backend = SnapshotBackend.wrap(delegate, tempDir.resolve("snapshot.bin"));
+
+        // When/Then
+        assertThatThrownBy(backend::fetchDesiredLevels).hasMessage("DynamoDB unreachable");
+    }
+
+    @Test
+    void testUnreadableSnapshotIsIgnored() throws Exception {
+        // Given
+        Path file = tempDir.resolve("snapshot.bin");
+        Files.writeString(file, "not a snapshot");
+        Backend delegate = mock(Backend.class);
+        when(delegate.fetchDesiredLevels()).thenReturn(Map.of("root", "INFO"));
+
+        // When
+        Map<String, String> result = SnapshotBackend.wrap(delegate, file).fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("root", "INFO"));
+    }
+
+    @Test
+    void testStaleSnapshotOfEnvironmentIsNotKeptAsImmutable() throws Exception {
+        // Given - a snapshot left by a run with other environment variables
+        Path file = tempDir.resolve("snapshot.bin");
+        new OverrideSnapshot(Map.of("com.example.stale", "TRACE"), Map.of(), Instant.now().minus(Duration.ofHours(1))).writeTo(file);
+        Backend backend = SnapshotBackend.wrap(new EnvBackend(), file);
+
+        // When
+        Map<String, String> first = backend.fetchDesiredLevels();
+
+        // Then - the snapshot is applied but not taken as the environment's levels
+        assertThat(first).containsOnly(entry("com.example.stale", "TRACE"));
+        assertThat(backend.isImmutable()).isFalse();
+
+        // When
+        Map<String, String> second = backend.fetchDesiredLevels();
+
+        // Then
+        assertThat(second).isEqualTo(new EnvBackend().fetchDesiredLevels()).doesNotContainKey("com.example.stale");
+        assertThat(backend.isImmutable()).isTrue();
+    }
+
+    @Test
+    void testSnapshotFallbackIsNotImmutable() throws Exception {
+        // Given
+        Path file = tempDir.resolve("snapshot.bin");
+        Backend delegate = mock(Backend.class);
+        when(delegate.isImmutable()).thenReturn(true);
+        when(delegate.fetchDesiredLevels()).thenThrow(new Exception("unavailable"));
+        new OverrideSnapshot(Map.of("root", "WARN"), Map.of(), Instant.now()).writeTo(file);
+        Backend backend = SnapshotBackend.wrap(delegate, file);
+        backend.fetchDesiredLevels();
+
+        // When
+        Map<String, String> result = backend.fetchDesiredLevels();
+
+        // Then
+        assertThat(result).containsOnly(entry("root", "WARN"));
+        assertThat(backend.isImmutable()).isFalse();
+    }
+
+    @Test
+    void testAsyncBackendStaysAsyncAndFallsBackToSnapshot() throws Exception {
+        // Given
+        Path file = tempDir.resolve("snapshot.bin");
+        AsyncBackend delegate = mock(AsyncBackend.class);
+        when(delegate.fetchDesiredLevelsAsync())
+            .thenReturn(CompletableFuture.completedFuture(Map.of("root", "WARN")))
+            .thenReturn(CompletableFuture.failedFuture(new CompletionException(new Exception("timeout"))));
+        Backend backend = SnapshotBackend.wrap(delegate, file);
+        assertThat(backend).isInstanceOf(AsyncBackend.class);
+        AsyncBackend asyncBackend = (AsyncBackend) backend;
+
+        // When
+        Map<String, String> first = asyncBackend.fetchDesiredLevelsAsync().get();
+        Map<String, String> second = asyncBackend.fetchDesiredLevelsAsync().get();
+
+        // Then
+        assertThat(first).containsOnly(entry("root", "WARN"));
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    void testAsyncSnapshotIsNotWrittenOnTheBackendsCompletionThread() throws Exception {
+        // Given - the backend's future is completed by its own I/O thread
+        Path file = tempDir.resolve("snapshot.bin");
+        AsyncBackend delegate = mock(AsyncBackend.class);
+        CompletableFuture<Map<String, String>> response = new CompletableFuture<>();
+        when(delegate.fetchDesiredLevelsAsync()).thenReturn(response);
+        AtomicReference<String> recordingThread = new AtomicReference<>();
+        when(delegate.getExpiries()).thenAnswer(invocation -> {
+            recordingThread.set(Thread.currentThread().getName());
+            return Map.of();
+        });
+        AsyncBackend backend = (AsyncBackend) SnapshotBackend.wrap(delegate, file);
+
+        // When
+        CompletableFuture<Map<String, String>> result = backend.fetchDesiredLevelsAsync();
+        Thread ioThread = new Thread(() -> response.complete(Map.of("root", "WARN")), "backend-io");
+        ioThread.start();
+
+        // Then
+        assertThat(result.get(5, TimeUnit.SECONDS)).containsOnly(entry("root", "WARN"));
+        assertThat(recordingThread.get()).isEqualTo("dynalog4j-snapshot-writer");
+        assertThat(OverrideSnapshot.readFrom(file).getLevels()).containsOnly(entry("root", "WARN"));
+        backend.close();
+    }
+}
@@ -3,20 +3,30 @@ package au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import au.gov.vic.dgs.digitalplatforms.dynalog4j.agent.LevelAgent;
 import au.gov.vic.dgs.digitalplatforms.dynalog4j.config.AppConfiguration;
 
+import com.sun.tools.attach.VirtualMachine;
+
 import javax.management.*;
+import javax.management.remote.JMXConnectionNotification;
 import javax.management.remote.JMXConnector;
 import javax.management.remote.JMXConnectorFactory;
 import javax.management.remote.JMXServiceURL;
 import java.io.IOException;
+import java.rmi.server.RMISocketFactory;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -81,7 +91,7 @@ class JMXManagerTest {
     void testConnectSuccess() throws Exception {
         // Given
         try (MockedStatic<JMXConnectorFactory> factoryMock = mockStatic(JMXConnectorFactory.class)) {
-            factoryMock.when(() -> JMXConnectorFactory.connect(any(JMXServiceURL.class), isNull()))
+            factoryMock.when(() -> JMXConnectorFactory.connect(any(JMXServiceURL.class), anyMap()))
                 .thenReturn(mockConnector);
             when(mockConnector.getMBeanServerConnection()).thenReturn(mockConnection);
 
@@ -109,7 +119,7 @@ class JMXManagerTest {
     void testConnectWithIOException() throws Exception {
         // Given
         try (MockedStatic<JMXConnectorFactory> factoryMock = mockStatic(JMXConnectorFactory.class)) {
-            factoryMock.when(() -> JMXConnectorFactory.connect(any(JMXServiceURL.class), isNull()))
+            factoryMock.when(() -> JMXConnectorFactory.connect(any(JMXServiceURL.class), anyMap()))
                 .thenThrow(new IOException("Connection failed"));
 
             // When/Then
@@ -119,6 +129,115 @@ class JMXManagerTest {
         }
     }
 
+    @Test
+    void testConnectViaPidReusesCachedConnectorAddress() throws Exception {
+        // Given
+        String pid = String.valueOf(ProcessHandle.current().pid());
+        AppConfiguration config = new AppConfiguration();
+        config.setJmxPid(pid);
+        JMXManager pidManager = new JMXManager(config);
+
+        VirtualMachine mockVm = mock(VirtualMachine.class);
+        Properties agentProperties = new Properties();
+        agentProperties.setProperty("com.sun.management.jmxremote.localConnectorAddress",
+            "service:jmx:rmi:///jndi/rmi://localhost:9999/jmxrmi");
+        when(mockVm.getAgentProperties()).thenReturn(agentProperties);
+
+        try (MockedStatic<VirtualMachine> vmMock = mockStatic(VirtualMachine.class);
+             MockedStatic<JMXConnectorFactory> factoryMock = mockStatic(JMXConnectorFactory.class)) {
+            vmMock.when(() -> VirtualMachine.attach(pid)).thenReturn(mockVm);
+            factoryMock.when(() -> JMXConnectorFactory.connect(any(JMXServiceURL.class), anyMap()))
+                .thenReturn(mockConnector);
+            when(mockConnector.getMBeanServerConnection()).thenReturn(mockConnection);
+
+            // When
+            pidManager.connect();
+            pidManager.disconnect();
+            pidManager.connect();
+
+            // Then (attach only once, and the attach handle is released straight away)
+            assertThat(pidManager.isConnected()).isTrue();
+            vmMock.verify(() -> VirtualMachine.attach(pid), times(1));
+            verify(mockVm).detach();
+            factoryMock.verify(() -> JMXConnectorFactory.connect(any(JMXServiceURL.class), anyMap()), times(2));
+        }
+    }
+
+    @Test
+    void testConnectViaPidReattachesWhenCachedAddressFails() throws Exception {
+        // Given
+        String pid = String.valueOf(ProcessHandle.current().pid());
+        AppConfiguration config = new AppConfiguration();
+        config.setJmxPid(pid);
+        JMXManager pidManager = new JMXManager(config);
+
+        VirtualMachine mockVm = mock(VirtualMachine.class);
+        Properties agentProperties = new Properties();
+        agentProperties.setProperty("com.sun.management.jmxremote.localConnectorAddress",
+            "service:jmx:rmi:///jndi/rmi://localhost:9999/jmxrmi");
+        when(mockVm.getAgentProperties()).thenReturn(agentProperties);
+
+        try (MockedStatic<VirtualMachine> vmMock = mockStatic(VirtualMachine.class);
+             MockedStatic<JMXConnectorFactory> factoryMock = mockStatic(JMXConnectorFactory.class)) {
+            vmMock.when(() -> VirtualMachine.attach(pid)).thenReturn(mockVm);
+            factoryMock.when(() -> JMXConnectorFactory.connect(any(JMXServiceURL.class), anyMap()))
+                .thenReturn(mockConnector)
+                .thenThrow(new IOException("Connection refused"))
+                .thenReturn(mockConnector);
+            when(mockConnector.getMBeanServerConnection()).thenReturn(mockConnection);
+
+            // When
+            pidManager.connect();
+            pidManager.disconnect();
+            pidManager.connect();
+
+            // Then (cached address failed, so the attach path is used again)
+            assertThat(pidManager.isConnected()).isTrue();
+            vmMock.verify(() -> VirtualMachine.attach(pid), times(2));
+            verify(mockVm, times(2)).detach();
+        }
+    }
+
+    @Test
+    void testConnectionFailureNotificationMarksTargetLost() throws Exception {
+        // Given
+        AtomicBoolean lostSignalled = new AtomicBoolean(false);
+        jmxManager.setTargetLostListener(() -> lostSignalled.set(true));
+        connectManager();
+
+        ArgumentCaptor<NotificationListener> listenerCaptor = ArgumentCaptor.forClass(NotificationListener.class);
+        verify(mockConnector).addConnectionNotificationListener(listenerCaptor.capture(), isNull(), isNull());
+
+        // When
+        listenerCaptor.getValue().handleNotification(
+            new JMXConnectionNotification(JMXConnectionNotification.FAILED, mockConnector, "conn-1", 1L, "failed", null),
+            null);
+
+        // Then
+        assertThat(jmxManager.isConnected()).isFalse();
+        assertThat(lostSignalled).isTrue();
+    }
+
+    @Test
+    void testOwnDisconnectDoesNotSignalTargetLost() throws Exception {
+        // Given
+        AtomicBoolean lostSignalled = new AtomicBoolean(false);
+        jmxManager.setTargetLostListener(() -> lostSignalled.set(true));
+        connectManager();
+
+        ArgumentCaptor<NotificationListener> listenerCaptor = ArgumentCaptor.forClass(NotificationListener.class);
+        verify(mockConnector).addConnectionNotificationListener(listenerCaptor.capture(), isNull(), isNull());
+
+        // When (the connector reports CLOSED because we closed it)
+        jmxManager.disconnect();
+        listenerCaptor.getValue().handleNotification(
+            new JMXConnectionNotification(JMXConnectionNotification.CLOSED, mockConnector, "conn-1", 1L, "closed", null),
+            null);
+
+        // Then
+        assertThat(lostSignalled).isFalse();
+    }
+
     @Test
     void testDisconnectSuccess() throws Exception {
         // Given
@@ -148,6 +267,35 @@ class JMXManagerTest {
         assertThatCode(() -> jmxManager.disconnect()).doesNotThrowAnyException();
     }
 
+    @Test
+    void testRmiSocketTimeoutsAreOnlySetPerConnection() {
+        // When
+        JMXManager.configureRmiTimeouts(Duration.ofSeconds(10));
+        Map<String, Object> environment = jmxManager.connectorEnvironment();
+
+        // Then - the read timeout leaves a margin beyond the call timeout
+        assertThat(RMISocketFactory.getSocketFactory()).isNull();
+        assertThat(environment.get("com.sun.jndi.rmi.factory.socket"))
+            .isInstanceOfSatisfying(JMXManager.TimeoutClientSocketFactory.class,
+                factory -> assertThat(factory.getReadTimeoutMs()).isGreaterThan(10_000));
+    }
+
+    @Test
+    void testCloseDisconnectsAndRejectsReconnect() throws Exception {
+        // Given
+        connectManager();
+
+        // When
+        jmxManager.close();
+
+        // Then
+        verify(mockConnector).close();
+        assertThatCode(() -> jmxManager.disconnect()).doesNotThrowAnyException();
+        assertThatThrownBy(() -> jmxManager.connect())
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("closed");
+    }
+
     @Test
     void testDiscoverLoggerContextsWithConfigOperations() throws Exception {
         // Given
@@ -446,6 +594,172 @@ class JMXManagerTest {
             .hasMessageContaining("Failed to get configuration text from LoggerContext");
     }
 
+    @Test
+    void testGetEffectiveLevelsQueriesOncePerLevel() throws Exception {
+        // Given
+        connectManager();
+        LoggerContext context = createTestContext("TestContext");
+        ObjectName root = new ObjectName("org.apache.logging.log4j2:type=Context,component=Loggers,name=");
+        ObjectName service = new ObjectName("org.apache.logging.log4j2:type=Context,component=Loggers,name=com.example.Service");
+        ObjectName quoted = new ObjectName("org.apache.logging.log4j2:type=Context,component=Loggers,name=" + ObjectName.quote("com.example:Special"));
+        ObjectName custom = new ObjectName("org.apache.logging.log4j2:type=Context,component=Loggers,name=com.example.Custom");
+
+        // Queries run in order OFF, FATAL, ERROR, WARN, INFO, DEBUG, TRACE, ALL, then custom levels
+        when(mockConnection.queryNames(any(ObjectName.class), any(QueryExp.class)))
+            .thenReturn(Set.of(), Set.of(), Set.of(), Set.of(quoted), Set.of(root), Set.of(service), Set.of(), Set.of())
+            .thenReturn(Set.of(custom));
+        when(mockConnection.getAttribute(custom, "Level")).thenReturn("VERBOSE");
+
+        // When
+        Map<String, String> levels = jmxManager.getEffectiveLevels(context);
+
+        // Then
+        assertThat(levels).containsOnly(
+            entry("root", "INFO"),
+            entry("com.example.Service", "DEBUG"),
+            entry("com.example:Special", "WARN"),
+            entry("com.example.Custom", "VERBOSE"));
+        verify(mockConnection, times(9)).queryNames(any(ObjectName.class), any(QueryExp.class));
+        verify(mockConnection, never()).invoke(any(ObjectName.class), eq("getConfigText"), any(), any());
+    }
+
+    @Test
+    void testGetEffectiveLevelsNotConnected() {
+        // Given
+        LoggerContext context = createTestContext("TestContext");
+
+        // When/Then
+        assertThatThrownBy(() -> jmxManager.getEffectiveLevels(context))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Not connected to JMX endpoint");
+    }
+
+    @Test
+    void testFindLevelDriftUsesSingleQuery() throws Exception {
+        // Given
+        connectManager();
+        LoggerContext context = createTestContext("TestContext");
+        ObjectName root = new ObjectName("org.apache.logging.log4j2:type=Context,component=Loggers,name=");
+        when(mockConnection.queryNames(any(ObjectName.class), any(QueryExp.class))).thenReturn(Set.of(root));
+
+        // When (only the root logger is reported at its desired level)
+        Set<String> drift = jmxManager.findLevelDrift(context, Map.of("ROOT", "WARN", "com.example.Service", "DEBUG"));
+
+        // Then
+        assertThat(drift).containsExactly("com.example.Service");
+        verify(mockConnection, times(1)).queryNames(any(ObjectName.class), any(QueryExp.class));
+    }
+
+    @Test
+    void testAnyOfBuildsShallowQuery() throws Exception {
+        // Given
+        List<QueryExp> loggers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            loggers.add(new ObjectName("org.apache.logging.log4j2:type=Context,component=Loggers,name=logger" + i));
+        }
+
+        // When
+        QueryExp query = JMXManager.anyOf(loggers);
+
+        // Then - nested about log2(1000) levels deep rather than 1000, matching the same names
+        int depth = 0;
+        int maxDepth = 0;
+        for (char c : query.toString().toCharArray()) {
+            depth += c == '(' ? 1 : c == ')' ? -1 : 0;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        assertThat(maxDepth).isLessThanOrEqualTo(11);
+        assertThat(query.apply(new ObjectName("org.apache.logging.log4j2:type=Context,component=Loggers,name=logger999"))).isTrue();
+        assertThat(query.apply(new ObjectName("org.apache.logging.log4j2:type=Context,component=Loggers,name=other"))).isFalse();
+    }
+
+    @Test
+    void testFindLevelDriftWithNoDesiredLevels() throws Exception {
+        // Given
+        connectManager();
+        LoggerContext context = createTestContext("TestContext");
+
+        // When
+        Set<String> drift = jmxManager.findLevelDrift(context, Map.of());
+
+        // Then
+        assertThat(drift).isEmpty();
+        verify(mockConnection, never()).queryNames(any(ObjectName.class), any(QueryExp.class));
+    }
+
+    @Test
+    void testSlowJmxCallTimesOutAndMarksConnectionSuspect() throws Exception {
+        // Given
+        AppConfiguration config = new AppConfiguration();
+        config.setJmxHost("remotehost");
+        config.setJmxTimeoutSeconds(1L);
+        JMXManager timeoutManager = new JMXManager(config);
+        LoggerContext context = createTestContext("TestContext");
+
+        try (MockedStatic<JMXConnectorFactory> factoryMock = mockStatic(JMXConnectorFactory.class)) {
+            factoryMock.when(() -> JMXConnectorFactory.connect(any(JMXServiceURL.class), anyMap()))
+                .thenReturn(mockConnector);
+            when(mockConnector.getMBeanServerConnection()).thenReturn(mockConnection);
+            timeoutManager.connect();
+        }
+        when(mockConnection.invoke(any(ObjectName.class), eq("setConfigText"), any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return null;
+        });
+
+        // When/Then
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> timeoutManager.setConfigurationText(context, "<config></config>"))
+            .hasMessageContaining("Failed to set configuration text")
+            .hasCauseInstanceOf(JMXTimeoutException.class);
+        assertThat(System.nanoTime() - start).isLessThan(4_000_000_000L);
+        assertThat(timeoutManager.isConnected()).isFalse();
+    }
+
+    @Test
+    void testEnsureLevelAgentChecksRegistrationOncePerConnection() throws Exception {
+        // Given
+        connectManager();
+        when(mockConnection.isRegistered(new ObjectName(LevelAgent.OBJECT_NAME))).thenReturn(true);
+
+        // When/Then
+        assertThat(jmxManager.ensureLevelAgent()).isTrue();
+        assertThat(jmxManager.ensureLevelAgent()).isTrue();
+        verify(mockConnection, times(1)).isRegistered(any(ObjectName.class));
+    }
+
+    @Test
+    void testEnsureLevelAgentWithoutPidDoesNotAttach() throws Exception {
+        // Given
+        connectManager();
+        when(mockConnection.isRegistered(new ObjectName(LevelAgent.OBJECT_NAME))).thenReturn(false);
+
+        try (MockedStatic<VirtualMachine> vmMock = mockStatic(VirtualMachine.class)) {
+            // When/Then - a target reached by URL cannot have the agent loaded into it
+            assertThat(jmxManager.ensureLevelAgent()).isFalse();
+            vmMock.verifyNoInteractions();
+        }
+    }
+
+    @Test
+    void testApplyLevelsViaAgentInvokesAgentMBean() throws Exception {
+        // Given
+        connectManager();
+        LoggerContext context = createTestContext("TestContext");
+        when(mockConnection.invoke(any(ObjectName.class), eq("applyLevels"), any(), any())).thenReturn(1);
+
+        // When
+        int changed = jmxManager.applyLevelsViaAgent(context, Map.of("com.example.Service", "DEBUG"), true);
+
+        // Then
+        ArgumentCaptor<Object[]> params = ArgumentCaptor.forClass(Object[].class);
+        verify(mockConnection).invoke(eq(new ObjectName(LevelAgent.OBJECT_NAME)), eq("applyLevels"), params.capture(),
+            eq(new String[]{"java.lang.String", "[Ljava.lang.String;", "[Ljava.lang.String;", "boolean"}));
+        assertThat(changed).isEqualTo(1);
+        assertThat(params.getValue()).containsExactly(
+            "TestContext", new String[]{"com.example.Service"}, new String[]{"DEBUG"}, true);
+    }
+
     @Test
     void testSetConfigurationTextSuccess() throws Exception {
         // Given
@@ -548,7 +862,7 @@ class JMXManagerTest {
 
     private void connectManager() throws Exception {
         try (MockedStatic<JMXConnectorFactory> factoryMock = mockStatic(JMXConnectorFactory.class)) {
-            factoryMock.when(() -> JMXConnectorFactory.connect(any(JMXServiceURL.class), isNull()))
+            factoryMock.when(() -> JMXConnectorFactory.connect(any(JMXServiceURL.class), anyMap()))
                 .thenReturn(mockConnector);
             when(mockConnector.getMBeanServerConnection()).thenReturn(mockConnection);
             jmxManager.connect();
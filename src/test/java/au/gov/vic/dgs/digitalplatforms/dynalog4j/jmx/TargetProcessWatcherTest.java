@@ -0,0 +1,69 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.jmx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TargetProcessWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testDetectsNewProcessInExistingHsperfdataDir() throws Exception {
+        // Given
+        Path hsperfdata = Files.createDirectory(tempDir.resolve("hsperfdata_app"));
+
+        try (TargetProcessWatcher watcher = new TargetProcessWatcher(tempDir)) {
+            // When
+            Files.createFile(hsperfdata.resolve("12345"));
+
+            // Then
+            assertThat(awaitChange(watcher)).isTrue();
+        }
+    }
+
+    @Test
+    void testDetectsNewHsperfdataDir() throws Exception {
+        try (TargetProcessWatcher watcher = new TargetProcessWatcher(tempDir)) {
+            // When
+            Files.createDirectory(tempDir.resolve("hsperfdata_app"));
+
+            // Then
+            assertThat(awaitChange(watcher)).isTrue();
+        }
+    }
+
+    @Test
+    void testIgnoresUnrelatedFiles() throws Exception {
+        try (TargetProcessWatcher watcher = new TargetProcessWatcher(tempDir)) {
+            // When
+            Files.createFile(tempDir.resolve("unrelated.txt"));
+
+            // Then
+            assertThat(watcher.awaitChange(Duration.ofMillis(500))).isFalse();
+        }
+    }
+
+    @Test
+    void testFallsBackToWaitingWhenDirectoryMissing() throws Exception {
+        try (TargetProcessWatcher watcher = new TargetProcessWatcher(tempDir.resolve("missing"))) {
+            assertThat(watcher.awaitChange(Duration.ofMillis(50))).isFalse();
+        }
+    }
+
+    // Polling watch services (e.g. on macOS) can take several seconds to report events
+    private boolean awaitChange(TargetProcessWatcher watcher) throws InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            if (watcher.awaitChange(Duration.ofMillis(500))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+package au.gov.vic.dgs.digitalplatforms.dynalog4j.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class MetricsTest {
+
+    private final Metrics metrics = Metrics.getInstance();
+
+    @Test
+    void testCountersAccumulate() {
+        // When
+        metrics.increment("test_counter");
+        metrics.add("test_counter", 4);
+
+        // Then
+        assertThat(metrics.get("test_counter")).isGreaterThanOrEqualTo(5);
+    }
+
+    @Test
+    void testSetOverwritesValue() {
+        // When
+        metrics.set("test_value", 10);
+        metrics.set("test_value", 3);
+
+        // Then
+        assertThat(metrics.get("test_value")).isEqualTo(3);
+        assertThat(metrics.getValues()).containsEntry("test_value", 3L);
+    }
+
+    @Test
+    void testGaugeIsComputedOnRead() {
+        // Given
+        long[] source = {1};
+        metrics.gauge("test_gauge", () -> source[0]);
+
+        // When
+        source[0] = 42;
+
+        // Then
+        assertThat(metrics.get("test_gauge")).isEqualTo(42);
+        assertThat(metrics.getValues()).containsEntry("test_gauge", 42L);
+    }
+
+    @Test
+    void testUnknownMetricIsZero() {
+        assertThat(metrics.get("test_unknown")).isZero();
+    }
+}